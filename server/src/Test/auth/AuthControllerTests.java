@@ -0,0 +1,167 @@
+package com.knowMoreQR.server.auth;
+
+import com.knowMoreQR.server.config.AuthExecutorConfig;
+import com.knowMoreQR.server.config.JwtUtil;
+import com.knowMoreQR.server.service.RefreshTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthControllerTests {
+
+    private static final String EMAIL = "ada@example.com";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private final UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+    private final ConsumerLoginRepository consumerRepo = mock(ConsumerLoginRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final AuthExecutorConfig executors = new AuthExecutorConfig();
+    private final ThreadPoolTaskExecutor authExecutor = executors.authExecutor(1, 1, 1);
+    private final ThreadPoolTaskExecutor registrationExecutor = executors.registrationExecutor(1, 1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        authExecutor.shutdown();
+        registrationExecutor.shutdown();
+    }
+
+    @Test
+    void passwordIsCheckedOnTheBcryptPoolNotTheRequestThread() throws Exception {
+        AuthController controller = controller(new LoginRateLimiter(20, 60, 5, 10, 5, 5, 1000, new SimpleMeterRegistry()));
+        AtomicReference<String> checkedOn = new AtomicReference<>();
+        when(passwordEncoder.matches(PASSWORD, "hash")).thenAnswer(inv -> {
+            checkedOn.set(Thread.currentThread().getName());
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        DeferredResult<ResponseEntity<?>> result = controller.consumerLogin(login(EMAIL), client("10.0.0.1"));
+        // the request thread is back while bcrypt is still running
+        assertThat(result.hasResult()).isFalse();
+        release.countDown();
+
+        assertThat(await(result).getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(checkedOn.get()).startsWith("bcrypt-").doesNotStartWith("bcrypt-register-");
+    }
+
+    @Test
+    void fullLoginPoolAnswers503WhileRegistrationStillRuns() throws Exception {
+        AuthController controller = controller(new LoginRateLimiter(20, 60, 5, 10, 5, 5, 1000, new SimpleMeterRegistry()));
+        when(passwordEncoder.matches(PASSWORD, "hash")).thenAnswer(inv -> release.await(5, TimeUnit.SECONDS));
+        when(passwordEncoder.encode(PASSWORD)).thenReturn("new-hash");
+        when(consumerRepo.findByEmail("new@example.com")).thenReturn(Optional.empty());
+        when(consumerRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        controller.consumerLogin(login(EMAIL), client("10.0.0.1"));     // running
+        controller.consumerLogin(login(EMAIL), client("10.0.0.2"));     // queued
+        DeferredResult<ResponseEntity<?>> shed = controller.consumerLogin(login(EMAIL), client("10.0.0.3"));
+
+        ResponseEntity<?> busy = (ResponseEntity<?>) shed.getResult();
+        assertThat(busy.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(busy.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+
+        DeferredResult<ResponseEntity<?>> registered = controller.registerConsumer(login("new@example.com"), client("10.0.0.4"));
+        assertThat(await(registered).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        verify(userDetailsService).evict("new@example.com");
+    }
+
+    @Test
+    void loginsOverTheEmailLimitAreRefusedBeforeAnyLookup() throws Exception {
+        AuthController controller = controller(new LoginRateLimiter(20, 60, 2, 1, 5, 5, 1000, new SimpleMeterRegistry()));
+        when(passwordEncoder.matches(anyString(), anyString())).thenReturn(false);
+
+        assertThat(await(controller.consumerLogin(login(EMAIL), client("10.0.0.1"))).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(await(controller.consumerLogin(login(EMAIL), client("10.0.0.2"))).getStatusCode())
+                .isEqualTo(HttpStatus.UNAUTHORIZED);
+        ResponseEntity<?> limited = await(controller.consumerLogin(login(" ADA@example.com"), client("10.0.0.3")));
+
+        assertThat(limited.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        verify(userDetailsService, times(2)).findAccount(anyString(), eq("consumer"));
+    }
+
+    @Test
+    void registrationsAreLimitedPerClient() throws Exception {
+        AuthController controller = controller(new LoginRateLimiter(20, 60, 5, 10, 2, 1, 1000, new SimpleMeterRegistry()));
+        when(consumerRepo.findByEmail(anyString())).thenReturn(Optional.of(new ConsumerLogin()));
+
+        assertThat(await(controller.registerConsumer(login("a@example.com"), client("10.0.0.1"))).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThat(await(controller.registerConsumer(login("b@example.com"), client("10.0.0.1"))).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+        ResponseEntity<?> limited = await(controller.registerCompany(login("c@example.com"), client("10.0.0.1")));
+
+        assertThat(limited.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(await(controller.registerConsumer(login("d@example.com"), client("10.0.0.2"))).getStatusCode())
+                .isEqualTo(HttpStatus.CONFLICT);
+        verify(passwordEncoder, never()).encode(anyString());
+    }
+
+    private AuthController controller(LoginRateLimiter limiter) {
+        CustomUserDetails account = new CustomUserDetails(7L, "consumer", EMAIL, "hash",
+                List.of(new SimpleGrantedAuthority("ROLE_CONSUMER")));
+        when(userDetailsService.findAccount(EMAIL, "consumer")).thenReturn(Optional.of(account));
+
+        AuthController controller = new AuthController();
+        ReflectionTestUtils.setField(controller, "consumerRepo", consumerRepo);
+        ReflectionTestUtils.setField(controller, "companyRepo", mock(CompanyLoginRepository.class));
+        ReflectionTestUtils.setField(controller, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(controller, "jwtUtil", mock(JwtUtil.class));
+        ReflectionTestUtils.setField(controller, "refreshTokenService", mock(RefreshTokenService.class));
+        ReflectionTestUtils.setField(controller, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(controller, "loginRateLimiter", limiter);
+        ReflectionTestUtils.setField(controller, "authExecutor", authExecutor);
+        ReflectionTestUtils.setField(controller, "registrationExecutor", registrationExecutor);
+        ReflectionTestUtils.setField(controller, "authDeadlineMs", 5000L);
+        return controller;
+    }
+
+    private static LoginRequest login(String email) {
+        LoginRequest request = new LoginRequest();
+        request.setEmail(email);
+        request.setPassword(PASSWORD);
+        return request;
+    }
+
+    private static MockHttpServletRequest client(String ip) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(ip);
+        return request;
+    }
+
+    private static ResponseEntity<?> await(DeferredResult<ResponseEntity<?>> result) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.hasResult()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        return (ResponseEntity<?>) result.getResult();
+    }
+}
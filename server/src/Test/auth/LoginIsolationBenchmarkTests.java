@@ -0,0 +1,144 @@
+package com.knowMoreQR.server.auth;
+
+import com.knowMoreQR.server.config.AuthExecutorConfig;
+import com.knowMoreQR.server.config.JwtUtil;
+import com.knowMoreQR.server.service.RefreshTokenService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scan latency during a login storm, with bcrypt run inline on the request threads vs through
+ * AuthController and its authExecutor. A fixed pool stands in for Tomcat's request threads and a
+ * scan is a ~1 ms I/O-bound request.
+ */
+@Tag("benchmark")
+class LoginIsolationBenchmarkTests {
+
+    private static final int REQUEST_THREADS = 8;
+    private static final int LOGIN_CLIENTS = 32;
+    private static final long RUN_MILLIS = 2_000;
+    private static final String EMAIL = "ada@example.com";
+    private static final String PASSWORD = "correct horse battery staple";
+
+    // cost 8 keeps the run short; production strength 10 only makes the inline case worse
+    private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(8);
+    private final String hash = encoder.encode(PASSWORD);
+
+    @Test
+    void bcryptOffRequestThreadsKeepsScanLatencyLow() throws Exception {
+        double inline = scanP99Millis(null);
+        ThreadPoolTaskExecutor authExecutor = new AuthExecutorConfig().authExecutor(2, 4, 16);
+        try {
+            double isolated = scanP99Millis(controller(authExecutor));
+            assertThat(isolated).isLessThan(inline);
+        } finally {
+            authExecutor.shutdown();
+        }
+    }
+
+    // controller == null runs bcrypt inline on the request thread, as AuthController used to
+    private double scanP99Millis(AuthController controller) throws Exception {
+        ExecutorService requestPool = Executors.newFixedThreadPool(REQUEST_THREADS);
+        ExecutorService clients = Executors.newFixedThreadPool(LOGIN_CLIENTS + 1);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger logins = new AtomicInteger();
+        List<Long> scanNanos = Collections.synchronizedList(new ArrayList<>());
+
+        for (int c = 0; c < LOGIN_CLIENTS; c++) {
+            MockHttpServletRequest client = new MockHttpServletRequest();
+            client.setRemoteAddr("10.0.0." + c);
+            clients.execute(() -> {
+                while (running.get()) {
+                    CompletableFuture<Boolean> response = new CompletableFuture<>();
+                    requestPool.execute(() -> {
+                        if (controller == null) {
+                            response.complete(encoder.matches(PASSWORD, hash));
+                            return;
+                        }
+                        LoginRequest request = new LoginRequest();
+                        request.setEmail(EMAIL);
+                        request.setPassword(PASSWORD);
+                        DeferredResult<ResponseEntity<?>> result = controller.consumerLogin(request, client);
+                        result.setResultHandler(r -> response.complete(
+                                ((ResponseEntity<?>) r).getStatusCode() == HttpStatus.OK));
+                    });
+                    if (response.join()) {
+                        logins.incrementAndGet();
+                    } else {
+                        sleepQuietly(5); // client backs off briefly after a 503
+                    }
+                }
+            });
+        }
+        clients.execute(() -> {
+            while (running.get()) {
+                long start = System.nanoTime();
+                CompletableFuture.runAsync(() -> sleepQuietly(1), requestPool).join();
+                scanNanos.add(System.nanoTime() - start);
+                sleepQuietly(5);
+            }
+        });
+
+        Thread.sleep(RUN_MILLIS);
+        running.set(false);
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+        requestPool.shutdownNow();
+
+        assertThat(logins.get()).isPositive();
+        List<Long> sorted = new ArrayList<>(scanNanos);
+        Collections.sort(sorted);
+        assertThat(sorted).isNotEmpty();
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.ceil(sorted.size() * 0.99) - 1)) / 1e6;
+    }
+
+    private AuthController controller(ThreadPoolTaskExecutor authExecutor) {
+        UserDetailsServiceImpl userDetailsService = mock(UserDetailsServiceImpl.class);
+        when(userDetailsService.findAccount(EMAIL, "consumer")).thenReturn(Optional.of(new CustomUserDetails(
+                7L, "consumer", EMAIL, hash, List.of(new SimpleGrantedAuthority("ROLE_CONSUMER")))));
+        // limits high enough that every attempt reaches bcrypt
+        LoginRateLimiter limiter = new LoginRateLimiter(1e9, 1e9, 1e9, 1e9, 5, 5, 1000, new SimpleMeterRegistry());
+
+        AuthController controller = new AuthController();
+        ReflectionTestUtils.setField(controller, "passwordEncoder", encoder);
+        ReflectionTestUtils.setField(controller, "jwtUtil", mock(JwtUtil.class));
+        ReflectionTestUtils.setField(controller, "refreshTokenService", mock(RefreshTokenService.class));
+        ReflectionTestUtils.setField(controller, "userDetailsService", userDetailsService);
+        ReflectionTestUtils.setField(controller, "loginRateLimiter", limiter);
+        ReflectionTestUtils.setField(controller, "authExecutor", authExecutor);
+        ReflectionTestUtils.setField(controller, "authDeadlineMs", 5000L);
+        return controller;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
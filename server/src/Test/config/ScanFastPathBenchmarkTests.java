@@ -0,0 +1,123 @@
+package com.knowMoreQR.server.config;
+
+import com.knowMoreQR.server.service.TokenDenylist;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextPersistenceFilter;
+import org.springframework.security.web.header.HeaderWriterFilter;
+import org.springframework.security.web.header.writers.CacheControlHeadersWriter;
+import org.springframework.security.web.header.writers.XContentTypeOptionsHeaderWriter;
+import org.springframework.security.web.header.writers.XXssProtectionHeaderWriter;
+import org.springframework.security.web.header.writers.frameoptions.XFrameOptionsHeaderWriter;
+import org.springframework.security.web.servletapi.SecurityContextHolderAwareRequestFilter;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.Filter;
+import javax.servlet.http.HttpServlet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Which requests skip the security filters, and what a bearer-token scan costs through the full
+ * stateless chain vs the ignored scan chain. The full chain is a trimmed copy of what HttpSecurity
+ * builds.
+ */
+class ScanFastPathBenchmarkTests {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final HttpServlet noopServlet = new HttpServlet() {};
+    private List<Filter> fullChain;
+    private String bearer;
+
+    @BeforeEach
+    void buildFilters() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", "benchmark-secret-benchmark-secret-benchmark-secret-benchmark-secret!");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationMs", 900_000L);
+        jwtUtil.init();
+        bearer = "Bearer " + jwtUtil.generateToken("consumer@example.com", "consumer", 42L);
+
+        JwtRequestFilter jwtFilter = new JwtRequestFilter();
+        ReflectionTestUtils.setField(jwtFilter, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(jwtFilter, "tokenDenylist", new TokenDenylist(null, null, 30_000, 1_000, 0.01));
+
+        HttpSessionSecurityContextRepository contextRepository = new HttpSessionSecurityContextRepository();
+        contextRepository.setAllowSessionCreation(false); // stateless
+        SecurityContextHolderAwareRequestFilter servletApiFilter = new SecurityContextHolderAwareRequestFilter();
+        servletApiFilter.afterPropertiesSet();
+        fullChain = List.of(
+                new SecurityContextPersistenceFilter(contextRepository),
+                new HeaderWriterFilter(List.of(new XContentTypeOptionsHeaderWriter(), new XXssProtectionHeaderWriter(),
+                        new CacheControlHeadersWriter(), new XFrameOptionsHeaderWriter())),
+                jwtFilter,
+                servletApiFilter,
+                new AnonymousAuthenticationFilter("benchmark"));
+    }
+
+    private FilterChainProxy before() {
+        return new FilterChainProxy(new DefaultSecurityFilterChain(AnyRequestMatcher.INSTANCE, fullChain));
+    }
+
+    private FilterChainProxy after() {
+        return new FilterChainProxy(List.of(
+                new DefaultSecurityFilterChain(SecurityConfig.PUBLIC_SCAN_REQUESTS),
+                new DefaultSecurityFilterChain(AnyRequestMatcher.INSTANCE, fullChain)));
+    }
+
+    private MockHttpServletRequest scan(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setServletPath(path);
+        request.addHeader("Authorization", bearer);
+        return request;
+    }
+
+    @Test
+    void matcherCoversScansOnly() {
+        String tag = "/tags/" + UUID.randomUUID();
+        assertThat(SecurityConfig.PUBLIC_SCAN_REQUESTS.matches(scan(tag))).isTrue();
+        MockHttpServletRequest similar = scan(tag + "/similar");
+        similar.setQueryString("limit=5");
+        assertThat(SecurityConfig.PUBLIC_SCAN_REQUESTS.matches(similar)).isTrue();
+
+        assertThat(SecurityConfig.PUBLIC_SCAN_REQUESTS.matches(scan("/tags/my-tags"))).isFalse();
+        MockHttpServletRequest delete = scan(tag);
+        delete.setMethod("DELETE");
+        assertThat(SecurityConfig.PUBLIC_SCAN_REQUESTS.matches(delete)).isFalse();
+    }
+
+    @Test
+    @Tag("benchmark")
+    void ignoredScanChainCutsFilterOverhead() throws Exception {
+        String path = "/tags/" + UUID.randomUUID();
+        FilterChainProxy before = before();
+        FilterChainProxy after = after();
+
+        run(before, path, WARMUP);
+        run(after, path, WARMUP);
+        long beforeNanos = run(before, path, ITERATIONS);
+        long afterNanos = run(after, path, ITERATIONS);
+
+        assertThat(afterNanos).isLessThan(beforeNanos);
+    }
+
+    private long run(FilterChainProxy proxy, String path, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            proxy.doFilter(scan(path), new MockHttpServletResponse(), new MockFilterChain(noopServlet));
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,142 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoOccurrenceIndexTests {
+
+    private final UUID tee = UUID.randomUUID();
+    private final UUID sweater = UUID.randomUUID();
+    private final UUID jeans = UUID.randomUUID();
+
+    @Test
+    void pairsAreCountedFromBothSides() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(10, 1, 100);
+        index.add(1, tee);
+        index.add(1, sweater);
+        index.add(2, tee);
+        index.add(2, sweater);
+        index.add(2, jeans);
+
+        assertThat(coCount(index, tee, sweater)).isEqualTo(2);
+        assertThat(coCount(index, sweater, tee)).isEqualTo(2);
+        assertThat(coCount(index, tee, jeans)).isEqualTo(1);
+        assertThat(coCount(index, jeans, tee)).isEqualTo(1);
+        assertThat(index.consumerCount()).isEqualTo(2);
+    }
+
+    @Test
+    void addAndRemoveAreIdempotent() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(10, 1, 100);
+        index.add(1, tee);
+        index.add(1, sweater);
+        index.add(1, sweater);
+        assertThat(coCount(index, tee, sweater)).isEqualTo(1);
+
+        index.remove(1, sweater);
+        index.remove(1, sweater);
+        index.remove(2, tee); // never added
+        assertThat(index.similar(tee)).isEmpty();
+        assertThat(coCount(index, tee, sweater)).isZero();
+
+        index.add(1, sweater);
+        assertThat(coCount(index, sweater, tee)).isEqualTo(1);
+    }
+
+    @Test
+    void removingEverythingLeavesNoTraceInAnyRow() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(50, 1, 100);
+        List<UUID> tags = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tags.add(UUID.randomUUID());
+        }
+        Random random = new Random(7);
+        List<long[]> saves = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            long consumer = random.nextInt(30);
+            int tag = random.nextInt(tags.size());
+            index.add(consumer, tags.get(tag));
+            saves.add(new long[] {consumer, tag});
+        }
+        for (UUID a : tags) {
+            for (CoOccurrenceIndex.Neighbour n : index.similar(a)) {
+                assertThat(coCount(index, n.getTagId(), a)).isEqualTo(n.getCoCount());
+            }
+        }
+
+        for (long[] save : saves) {
+            index.remove(save[0], tags.get((int) save[1]));
+        }
+        for (UUID tag : tags) {
+            assertThat(index.similar(tag)).isEmpty();
+        }
+        assertThat(index.consumerCount()).isZero();
+    }
+
+    @Test
+    void wishlistsPastTheCapStopAddingPairs() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(10, 1, 2);
+        index.add(1, tee);
+        index.add(1, sweater);
+        index.add(1, jeans);
+
+        assertThat(coCount(index, tee, sweater)).isEqualTo(1);
+        assertThat(index.similar(jeans)).isEmpty();
+        assertThat(coCount(index, tee, jeans)).isZero();
+
+        // the dropped save was never counted, so removing it must not decrement anything
+        index.remove(1, jeans);
+        assertThat(coCount(index, tee, sweater)).isEqualTo(1);
+    }
+
+    @Test
+    void topNKeepsTheBestScoresInOrder() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(3, 1, 100);
+        List<UUID> neighbours = new ArrayList<>();
+        long consumer = 0;
+        // k consumers save tee with neighbour k, so cosine = k / sqrt(15k) rises with k
+        for (int k = 1; k <= 5; k++) {
+            UUID neighbour = UUID.randomUUID();
+            neighbours.add(neighbour);
+            for (int c = 0; c < k; c++) {
+                index.add(consumer, tee);
+                index.add(consumer, neighbour);
+                consumer++;
+            }
+        }
+
+        List<CoOccurrenceIndex.Neighbour> top = index.similar(tee);
+        assertThat(top.stream().map(CoOccurrenceIndex.Neighbour::getTagId).collect(Collectors.toList()))
+                .containsExactly(neighbours.get(4), neighbours.get(3), neighbours.get(2));
+        assertThat(top.get(0).getScore()).isGreaterThan(top.get(1).getScore());
+        assertThat(top.get(1).getScore()).isGreaterThan(top.get(2).getScore());
+    }
+
+    @Test
+    void pairsBelowTheMinimumCountAreLeftOut() {
+        CoOccurrenceIndex index = new CoOccurrenceIndex(10, 2, 100);
+        index.add(1, tee);
+        index.add(1, sweater);
+        index.add(1, jeans);
+        index.add(2, tee);
+        index.add(2, sweater);
+
+        assertThat(index.similar(tee)).hasSize(1);
+        assertThat(index.similar(tee).get(0).getTagId()).isEqualTo(sweater);
+    }
+
+    private static int coCount(CoOccurrenceIndex index, UUID of, UUID neighbour) {
+        return index.similar(of).stream()
+                .filter(n -> n.getTagId().equals(neighbour))
+                .mapToInt(CoOccurrenceIndex.Neighbour::getCoCount)
+                .findFirst()
+                .orElse(0);
+    }
+}
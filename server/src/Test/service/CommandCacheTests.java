@@ -0,0 +1,23 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CommandCacheTests {
+
+    @Test
+    void equivalentPhrasingsShareAKey() {
+        assertThat(CommandCache.normalize("Show my wishlist!")).isEqualTo(CommandCache.normalize("show  wishlist"));
+        assertThat(CommandCache.normalize("price <30")).isEqualTo(CommandCache.normalize("Price < 30"));
+    }
+
+    @Test
+    void operatorsThatChangeTheFilterStayInTheKey() {
+        assertThat(CommandCache.normalize("price <30")).isNotEqualTo(CommandCache.normalize("price >30"));
+        assertThat(CommandCache.normalize("price <=30")).isNotEqualTo(CommandCache.normalize("price <30"));
+        assertThat(CommandCache.normalize("between 20-50")).isNotEqualTo(CommandCache.normalize("between 20 50"));
+        assertThat(CommandCache.normalize("colour !red")).isNotEqualTo(CommandCache.normalize("colour red"));
+        assertThat(CommandCache.normalize("under 30.5")).isNotEqualTo(CommandCache.normalize("under 30 5"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class FuzzyTagMatcherTests {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final FuzzyTagMatcher matcher = new FuzzyTagMatcher();
+    private final UUID tee = UUID.randomUUID();
+    private final UUID sweater = UUID.randomUUID();
+
+    @Test
+    void findsWordsWithinTheAllowedEdits() {
+        matcher.put(tee, "Organic Cotton Tee");
+        matcher.put(sweater, "Merino Crew Sweater");
+
+        Map<UUID, Double> organik = matcher.similar("organik", NO_DEADLINE);
+        assertThat(organik).containsKey(tee).doesNotContainKey(sweater);
+        assertThat(organik.get(tee)).isCloseTo(6.0 / 7, offset(1e-9));
+        assertThat(matcher.similar("cotton", NO_DEADLINE).get(tee)).isEqualTo(1.0);
+        // 4 letters or fewer allow one edit only
+        assertThat(matcher.similar("crow", NO_DEADLINE)).containsKey(sweater);
+        assertThat(matcher.similar("cxow", NO_DEADLINE)).isEmpty();
+        assertThat(matcher.similar("swetaer", NO_DEADLINE)).containsKey(sweater);
+    }
+
+    @Test
+    void findsTagsByWordPrefix() {
+        matcher.put(tee, "Organic Cotton Tee");
+        matcher.put(sweater, "Merino Crew Sweater");
+
+        assertThat(matcher.tagsWithPrefix("org")).containsExactly(tee);
+        assertThat(matcher.tagsWithPrefix("tee")).containsExactly(tee);
+        assertThat(matcher.tagsWithPrefix("c")).containsExactlyInAnyOrder(tee, sweater);
+        assertThat(matcher.tagsWithPrefix("wool")).isEmpty();
+    }
+
+    @Test
+    void removedTermsArePrunedAndNoLongerCounted() {
+        matcher.put(tee, "Organic Cotton Tee");
+        matcher.put(sweater, "Organic Merino Sweater");
+        assertThat(matcher.termCount()).isEqualTo(5);
+
+        matcher.remove(tee);
+        assertThat(matcher.termCount()).isEqualTo(3);
+        assertThat(matcher.tagsWithPrefix("cot")).isEmpty();
+        assertThat(matcher.similar("cotton", NO_DEADLINE)).isEmpty();
+        assertThat(matcher.tagsWithPrefix("organic")).containsExactly(sweater);
+
+        // replacing a tag's text drops the words it no longer has
+        matcher.put(sweater, "Merino Cardigan");
+        assertThat(matcher.termCount()).isEqualTo(2);
+        assertThat(matcher.tagsWithPrefix("org")).isEmpty();
+
+        matcher.remove(sweater);
+        assertThat(matcher.termCount()).isZero();
+        assertThat(matcher.tagsWithPrefix("")).isEmpty();
+    }
+
+    @Test
+    void sharedPrefixesSurviveRemovingALongerWord() {
+        matcher.put(tee, "tee");
+        matcher.put(sweater, "teenage");
+
+        matcher.remove(sweater);
+        assertThat(matcher.tagsWithPrefix("tee")).containsExactly(tee);
+        assertThat(matcher.similar("tea", NO_DEADLINE)).containsKey(tee);
+
+        matcher.put(sweater, "teenage");
+        matcher.remove(tee);
+        assertThat(matcher.tagsWithPrefix("tee")).containsExactly(sweater);
+        assertThat(matcher.termCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,223 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HnswIndexTests {
+
+    private static final int DIM = 32;
+    private static final int K = 10;
+
+    private final Random random = new Random(7);
+    private final Map<UUID, float[]> vectors = new LinkedHashMap<>();
+    private HnswIndex index;
+    private Path file;
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void searchAgreesWithBruteForce() {
+        index = HnswIndex.inMemory(DIM, 16, 6, 100);
+        insert(2000);
+
+        assertThat(recall()).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void removedAndReplacedVectorsAreNotReturned() {
+        index = HnswIndex.inMemory(DIM, 16, 6, 100);
+        insert(200);
+        UUID removed = vectors.keySet().iterator().next();
+        float[] removedVector = vectors.remove(removed);
+        index.remove(removed);
+
+        UUID moved = vectors.keySet().iterator().next();
+        float[] oldVector = vectors.get(moved);
+        float[] newVector = randomVector();
+        vectors.put(moved, newVector);
+        index.upsert(moved, newVector, 2);
+
+        assertThat(ids(index.search(removedVector, K, 64))).doesNotContain(removed);
+        assertThat(ids(index.search(newVector, 1, 64))).containsExactly(moved);
+        assertThat(ids(index.search(oldVector, 1, 64))).doesNotContain(moved);
+        assertThat(index.textHash(moved)).isEqualTo(2);
+        assertThat(index.textHash(removed)).isNull();
+        assertThat(index.size()).isEqualTo(199);
+        assertThat(index.tombstones()).isEqualTo(2);
+    }
+
+    @Test
+    void compactDropsTombstonesAndKeepsResults() {
+        index = HnswIndex.inMemory(DIM, 16, 6, 100);
+        insert(1000);
+        List<UUID> removed = removeEvery(5, 3); // 600 of 1000
+
+        assertThat(index.tombstoneRatio()).isGreaterThan(0.5);
+        index.compact();
+
+        assertThat(index.tombstoneRatio()).isZero();
+        assertThat(index.size()).isEqualTo(400);
+        assertThat(recall()).isGreaterThanOrEqualTo(0.9);
+        for (UUID id : removed) {
+            assertThat(index.textHash(id)).isNull();
+        }
+
+        // still usable afterwards
+        insert(100);
+        assertThat(index.size()).isEqualTo(500);
+        assertThat(recall()).isGreaterThanOrEqualTo(0.9);
+    }
+
+    @Test
+    void updatesMadeWhileCompactingAreKept() throws Exception {
+        index = HnswIndex.inMemory(DIM, 16, 6, 100);
+        insert(2000);
+        removeEvery(2, 1);
+        Thread compactor = new Thread(index::compact);
+        compactor.start();
+
+        // whichever side of the swap these land on, they must survive it
+        List<UUID> added = new ArrayList<>();
+        while (compactor.isAlive()) {
+            added.add(insert(1).get(0));
+            UUID oldest = vectors.keySet().iterator().next();
+            vectors.remove(oldest);
+            index.remove(oldest);
+        }
+        compactor.join();
+
+        assertThat(new HashSet<>(index.ids())).isEqualTo(vectors.keySet());
+        for (UUID id : added) {
+            if (vectors.containsKey(id)) {
+                assertThat(ids(index.search(vectors.get(id), 1, 64))).containsExactly(id);
+            }
+        }
+    }
+
+    @Test
+    void fileFromAnotherProviderIsReset() throws IOException {
+        file = Files.createTempFile("hnsw", ".idx");
+        index = HnswIndex.open(file, DIM, 16, 6, 100, "test");
+        insert(300);
+        index.close();
+
+        index = HnswIndex.open(file, DIM, 16, 6, 100, "other");
+        assertThat(index.size()).isZero();
+        vectors.clear();
+        insert(10);
+        assertThat(new HashSet<>(index.ids())).isEqualTo(vectors.keySet());
+    }
+
+    @Test
+    void compactKeepsTheFileSizeAndSurvivesReopening() throws IOException {
+        file = Files.createTempFile("hnsw", ".idx");
+        index = HnswIndex.open(file, DIM, 16, 6, 100, "test");
+        insert(2000);
+        removeEvery(10, 9); // 1800 of 2000
+        index.flush();
+        long before = Files.size(file);
+
+        index.compact();
+        index.flush();
+
+        // the file stays mapped, so it isn't truncated
+        assertThat(Files.size(file)).isEqualTo(before);
+        index.close();
+        index = HnswIndex.open(file, DIM, 16, 6, 100, "test");
+        assertThat(index.size()).isEqualTo(200);
+        assertThat(index.tombstones()).isZero();
+        assertThat(new HashSet<>(index.ids())).isEqualTo(vectors.keySet());
+        assertThat(recall()).isGreaterThanOrEqualTo(0.9);
+    }
+
+    private List<UUID> insert(int n) {
+        List<UUID> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            UUID id = UUID.randomUUID();
+            float[] vector = randomVector();
+            vectors.put(id, vector);
+            index.upsert(id, vector, 1);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    // Removes `remove` out of every `every` ids and returns them
+    private List<UUID> removeEvery(int every, int remove) {
+        List<UUID> removed = new ArrayList<>();
+        int i = 0;
+        for (UUID id : new ArrayList<>(vectors.keySet())) {
+            if (i++ % every < remove) {
+                vectors.remove(id);
+                index.remove(id);
+                removed.add(id);
+            }
+        }
+        return removed;
+    }
+
+    // Average share of the true top K (by brute force over the live vectors) that the index returns
+    private double recall() {
+        int queries = 50;
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<UUID> expected = vectors.entrySet().stream()
+                    .sorted(Comparator.comparingDouble(e -> -dot(query, e.getValue())))
+                    .limit(K)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+            for (UUID id : ids(index.search(query, K, 64))) {
+                if (expected.contains(id)) {
+                    hits++;
+                }
+            }
+        }
+        return (double) hits / (queries * K);
+    }
+
+    private static List<UUID> ids(List<HnswIndex.Hit> hits) {
+        return hits.stream().map(HnswIndex.Hit::getId).collect(Collectors.toList());
+    }
+
+    private float[] randomVector() {
+        float[] v = new float[DIM];
+        for (int i = 0; i < DIM; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        HashingEmbeddingProvider.normalize(v);
+        return v;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,100 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.assertj.core.api.Assumptions.assumeThat;
+
+/**
+ * Preprocessing on the full 12 MP {@link LabelPhotos}, and OCR time and accuracy with and without
+ * it. The OCR comparison needs native Tesseract and eng.traineddata (TESSDATA_PREFIX) and is
+ * skipped without them.
+ */
+@Tag("benchmark")
+class ImagePreprocessorBenchmarkTests {
+
+    private static final int WIDTH = 3000;
+
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(2000, 10, 1_000_000);
+
+    @Test
+    void deskewsAndDownscalesPhoneSizedLabels() {
+        for (int i = 0; i < LabelPhotos.SKEWS.length; i++) {
+            BufferedImage photo = LabelPhotos.label(i, WIDTH);
+
+            ImagePreprocessor.Gray gray = ImagePreprocessor.downscale(ImagePreprocessor.toGray(photo), 2000, true);
+            byte[] binary = ImagePreprocessor.binarize(gray, true);
+            assertThat(ImagePreprocessor.estimateSkewDegrees(binary, gray.width, gray.height, 10))
+                    .isCloseTo(LabelPhotos.SKEWS[i], offset(0.3));
+
+            BufferedImage out = preprocessor.process(photo);
+            assertThat(Math.max(out.getWidth(), out.getHeight())).isLessThanOrEqualTo(2000);
+            assertThat(out.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+        }
+    }
+
+    @Test
+    void ocrIsFasterAndMoreAccurateWithPreprocessing() {
+        TesseractEngine engine = tryEngine();
+        assumeThat(engine).as("native Tesseract with eng.traineddata").isNotNull();
+        try {
+            long rawNanos = 0;
+            long preparedNanos = 0;
+            double rawAccuracy = 0;
+            double preparedAccuracy = 0;
+            for (int i = 0; i < LabelPhotos.SKEWS.length; i++) {
+                BufferedImage photo = LabelPhotos.label(i, WIDTH);
+                String expected = String.join(" ", LabelPhotos.LABELS[i]);
+
+                long start = System.nanoTime();
+                String raw = engine.recognize(photo);
+                rawNanos += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                String prepared = engine.recognize(preprocessor.process(photo)); // preprocessing counts too
+                preparedNanos += System.nanoTime() - start;
+
+                rawAccuracy += accuracy(expected, raw);
+                preparedAccuracy += accuracy(expected, prepared);
+            }
+            assertThat(preparedAccuracy).isGreaterThan(rawAccuracy);
+            assertThat(preparedNanos).isLessThan(rawNanos);
+        } finally {
+            engine.close();
+        }
+    }
+
+    private static TesseractEngine tryEngine() {
+        try {
+            return new TesseractEngine(System.getenv("TESSDATA_PREFIX"), "eng");
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // 1 - normalized edit distance over whitespace-collapsed text
+    private static double accuracy(String expected, String actual) {
+        String a = expected.replaceAll("\\s+", " ").trim();
+        String b = actual == null ? "" : actual.replaceAll("\\s+", " ").trim();
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+            }
+            int[] t = prev;
+            prev = curr;
+            curr = t;
+        }
+        return Math.max(0, 1 - (double) prev[b.length()] / a.length());
+    }
+}
@@ -0,0 +1,36 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+/**
+ * Preprocessing on small generated tag photos (see {@link LabelPhotos}), cheap enough for every
+ * build. Full-size photos and the OCR comparison are in ImagePreprocessorBenchmarkTests.
+ */
+class ImagePreprocessorTests {
+
+    private static final int WIDTH = 750;
+
+    // a 500 px bound still downscales the 750x1000 samples
+    private final ImagePreprocessor preprocessor = new ImagePreprocessor(500, 10, 1_000_000);
+
+    @Test
+    void deskewsAndDownscalesSmallLabels() {
+        for (int i = 0; i < LabelPhotos.SKEWS.length; i++) {
+            BufferedImage photo = LabelPhotos.label(i, WIDTH);
+
+            ImagePreprocessor.Gray gray = ImagePreprocessor.toGray(photo);
+            byte[] binary = ImagePreprocessor.binarize(gray, false);
+            assertThat(ImagePreprocessor.estimateSkewDegrees(binary, gray.width, gray.height, 10))
+                    .isCloseTo(LabelPhotos.SKEWS[i], offset(0.3));
+
+            BufferedImage out = preprocessor.process(photo);
+            assertThat(Math.max(out.getWidth(), out.getHeight())).isEqualTo(500);
+            assertThat(out.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+        }
+    }
+}
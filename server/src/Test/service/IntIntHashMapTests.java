@@ -0,0 +1,68 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntIntHashMapTests {
+
+    @Test
+    void addToCreatesAndDropsEntries() {
+        IntIntHashMap map = new IntIntHashMap();
+        assertThat(map.addTo(3, 2)).isEqualTo(2);
+        assertThat(map.addTo(3, -1)).isEqualTo(1);
+        assertThat(map.get(3, 0)).isEqualTo(1);
+
+        // reaching 0 removes the entry rather than storing a zero
+        assertThat(map.addTo(3, -1)).isEqualTo(0);
+        assertThat(map.containsKey(3)).isFalse();
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.remove(3)).isFalse();
+    }
+
+    @Test
+    void rejectsNegativeKeys() {
+        assertThatThrownBy(() -> new IntIntHashMap().put(-1, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void matchesAHashMapThroughGrowthAndRemovals() {
+        IntIntHashMap map = new IntIntHashMap(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        // a small key range keeps probe chains long, so backward-shift deletion gets exercised
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(500);
+            int op = random.nextInt(3);
+            if (op == 0) {
+                map.put(key, i + 1);
+                expected.put(key, i + 1);
+            } else if (op == 1) {
+                int delta = random.nextInt(5) - 2;
+                map.addTo(key, delta);
+                int updated = expected.getOrDefault(key, 0) + delta;
+                if (updated == 0) {
+                    expected.remove(key);
+                } else {
+                    expected.put(key, updated);
+                }
+            } else {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key) != null);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(map.keys()).hasSize(expected.size());
+        for (Map.Entry<Integer, Integer> e : expected.entrySet()) {
+            assertThat(map.get(e.getKey(), 0)).isEqualTo(e.getValue());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyedRateLimiterTests {
+
+    // refills a drawn token in ~10 microseconds, so a bucket is idle again by the next line
+    private static final double FAST_REFILL = 6_000_000;
+
+    @Test
+    void throttlesEachKeySeparately() {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(3, 1, 10);
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1")).isTrue();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1")).isFalse();
+        assertThat(limiter.tryAcquire("10.0.0.2")).isTrue();
+
+        // past maxKeys, new keys share one overflow bucket instead of each getting a fresh burst
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire("spray-" + i);
+        }
+        assertThat(limiter.size()).isLessThanOrEqualTo(10);
+        assertThat(limiter.tryAcquire("spray-new")).isFalse();
+    }
+
+    @Test
+    void fullMapIsSweptAtMostOncePerInterval() throws InterruptedException {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, FAST_REFILL, 2, 60_000);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        Thread.sleep(5);
+
+        // the first new key at maxKeys sweeps the idle a and b away and gets its own bucket
+        limiter.tryAcquire("c");
+        assertThat(limiter.size()).isEqualTo(1);
+        limiter.tryAcquire("d");
+        Thread.sleep(5);
+
+        // c and d are idle too, but the interval hasn't passed, so e goes to the overflow bucket
+        limiter.tryAcquire("e");
+        assertThat(limiter.size()).isEqualTo(2);
+        assertThat(limiter.sweep()).isEqualTo(2);
+    }
+
+    @Test
+    void sweepsAgainOnceTheIntervalHasPassed() throws InterruptedException {
+        KeyedRateLimiter limiter = new KeyedRateLimiter(1, FAST_REFILL, 2, 10);
+        limiter.tryAcquire("a");
+        limiter.tryAcquire("b");
+        Thread.sleep(15);
+        limiter.tryAcquire("c");
+        limiter.tryAcquire("d");
+        Thread.sleep(15);
+
+        limiter.tryAcquire("e");
+        assertThat(limiter.size()).isEqualTo(1);
+    }
+}
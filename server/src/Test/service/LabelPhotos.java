@@ -0,0 +1,67 @@
+package com.knowMoreQR.server.service;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * Generated photos of printed tags, as a phone camera delivers them: uneven lighting, sensor
+ * noise, tilted a few degrees. No real photos can be shipped, so samples are drawn from fixed
+ * seeds and every run sees the same set.
+ */
+final class LabelPhotos {
+
+    static final double[] SKEWS = {-6, -2.5, 0, 3, 7};
+    static final String[][] LABELS = {
+            {"Name: Organic Cotton Tee", "Price: 24.99", "Series: Spring Basics", "Carbon: 12 kg"},
+            {"Name: Recycled Denim Jacket", "Price: 89.00", "Water: 2700 L", "Recycled: 60%"},
+            {"Name: Merino Wool Socks", "Price: 14.50", "Series: Trail", "Carbon: 3 kg"},
+            {"Name: Linen Shirt", "Price: 49.95", "Water: 640 L", "Recycled: 20%"},
+            {"Name: Canvas Sneaker", "Price: 65.00", "Series: City", "Carbon: 9 kg"},
+    };
+
+    private LabelPhotos() {
+    }
+
+    /** Sample {@code i} at {@code width} x 4/3 width; 3000 wide is a 12 MP phone photo. */
+    static BufferedImage label(int i, int width) {
+        Random random = new Random(i);
+        int w = width;
+        int h = width * 4 / 3;
+        double scale = width / 3000.0;
+        BufferedImage image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        // lighting falls off towards one corner
+        g.setPaint(new GradientPaint(0, 0, new Color(235, 232, 225), w, h, new Color(120, 115, 105)));
+        g.fillRect(0, 0, w, h);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.rotate(Math.toRadians(SKEWS[i]), w / 2.0, h / 2.0);
+        g.setColor(new Color(30, 30, 35));
+        g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, (int) Math.round(110 * scale)));
+        double y = 900 * scale;
+        for (String line : LABELS[i]) {
+            g.drawString(line, (float) (350 * scale), (float) y);
+            y += 220 * scale;
+        }
+        g.dispose();
+
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        for (int p = 0; p < pixels.length; p++) {
+            int noise = (int) (random.nextGaussian() * 12);
+            int c = pixels[p];
+            pixels[p] = (clamp(((c >> 16) & 0xff) + noise) << 16)
+                    | (clamp(((c >> 8) & 0xff) + noise) << 8)
+                    | clamp((c & 0xff) + noise);
+        }
+        return image;
+    }
+
+    private static int clamp(int v) {
+        return v < 0 ? 0 : Math.min(255, v);
+    }
+}
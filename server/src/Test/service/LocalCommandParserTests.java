@@ -0,0 +1,47 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.service.OpenAiService.ParsedCommand;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalCommandParserTests {
+
+    private final LocalCommandParser parser = new LocalCommandParser();
+
+    @Test
+    void bareClearPhrasingsClear() {
+        assertThat(intent("clear my wishlist")).isEqualTo("clear");
+        assertThat(intent("Please empty the list")).isEqualTo("clear");
+        assertThat(intent("wipe out everything")).isEqualTo("clear");
+        assertThat(intent("remove everything from my wishlist")).isEqualTo("clear");
+        assertThat(intent("delete all of it")).isEqualTo("clear");
+    }
+
+    @Test
+    void qualifiedRemovesNeverClear() {
+        assertThat(intent("remove everything blue")).isEqualTo("unknown");
+        assertThat(intent("remove everything blue with a high carbon footprint")).isEqualTo("unknown");
+        assertThat(intent("remove all shirts")).isEqualTo("unknown");
+        assertThat(intent("delete all items over $50")).isEqualTo("unknown");
+        assertThat(intent("clear the red ones")).isEqualTo("unknown");
+    }
+
+    @Test
+    void addAndRemoveKeepTheItemQuery() {
+        ParsedCommand remove = parser.parse("Remove the blue shirt from my wishlist");
+        assertThat(remove.getIntent()).isEqualTo("remove");
+        assertThat(remove.getItemQuery()).isEqualTo("blue shirt");
+
+        ParsedCommand add = parser.parse("add the organic tee to my wish list please");
+        assertThat(add.getIntent()).isEqualTo("add");
+        assertThat(add.getItemQuery()).isEqualTo("organic tee");
+
+        assertThat(intent("show my wishlist")).isEqualTo("view");
+        assertThat(intent("")).isEqualTo("unknown");
+    }
+
+    private String intent(String command) {
+        return parser.parse(command).getIntent();
+    }
+}
@@ -0,0 +1,163 @@
+package com.knowMoreQR.server.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MicroBatcherTests {
+
+    private static final long LONG_WINDOW_MS = 10_000; // a flush that waits for this fails the test's get()
+
+    private final ExecutorService dispatch = Executors.newFixedThreadPool(4);
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private MicroBatcher<String, String> batcher;
+
+    @AfterEach
+    void shutdown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+        dispatch.shutdownNow();
+    }
+
+    private MicroBatcher<String, String> batcher(int maxSize, long windowMs, Function<List<String>, List<String>> handler) {
+        batcher = new MicroBatcher<>("test", maxSize, windowMs, dispatch, inputs -> {
+            batches.add(List.copyOf(inputs));
+            return handler.apply(inputs);
+        });
+        return batcher;
+    }
+
+    private static List<String> upperCase(List<String> inputs) {
+        return inputs.stream().map(String::toUpperCase).collect(Collectors.toList());
+    }
+
+    @Test
+    void loneItemIsDispatchedWithoutWaitingForTheWindow() throws Exception {
+        batcher(8, LONG_WINDOW_MS, MicroBatcherTests::upperCase);
+
+        assertThat(batcher.submit("a").get(2, TimeUnit.SECONDS)).isEqualTo("A");
+        assertThat(batcher.submit("b").get(2, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(batches).containsExactly(List.of("a"), List.of("b"));
+    }
+
+    @Test
+    void itemsArrivingDuringARunningBatchShareTheNextOneAndFanOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        batcher(8, 50, inputs -> {
+            if (inputs.contains("first")) {
+                await(release);
+            }
+            return upperCase(inputs);
+        });
+
+        CompletableFuture<String> first = batcher.submit("first"); // runs at once and blocks
+        List<CompletableFuture<String>> rest = List.of(batcher.submit("x"), batcher.submit("y"), batcher.submit("z"));
+        // the window ends while "first" is still running, so x, y and z go out together
+        for (CompletableFuture<String> f : rest) {
+            f.get(2, TimeUnit.SECONDS);
+        }
+        release.countDown();
+
+        assertThat(first.get(2, TimeUnit.SECONDS)).isEqualTo("FIRST");
+        assertThat(rest.get(0).get()).isEqualTo("X");
+        assertThat(rest.get(1).get()).isEqualTo("Y");
+        assertThat(rest.get(2).get()).isEqualTo("Z");
+        assertThat(batches).containsExactly(List.of("first"), List.of("x", "y", "z"));
+    }
+
+    @Test
+    void fullBatchFlushesBeforeTheWindowEnds() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        batcher(3, LONG_WINDOW_MS, inputs -> {
+            if (inputs.contains("blocker")) {
+                await(release);
+            }
+            return upperCase(inputs);
+        });
+
+        batcher.submit("blocker");
+        List<CompletableFuture<String>> full = List.of(batcher.submit("a"), batcher.submit("b"), batcher.submit("c"));
+        assertThat(full.get(0).get(2, TimeUnit.SECONDS)).isEqualTo("A");
+        assertThat(full.get(1).get(2, TimeUnit.SECONDS)).isEqualTo("B");
+        assertThat(full.get(2).get(2, TimeUnit.SECONDS)).isEqualTo("C");
+        release.countDown();
+        assertThat(batches).contains(List.of("a", "b", "c"));
+    }
+
+    @Test
+    void slowBatchDoesNotDelayTheNextFlush() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        batcher(2, 20, inputs -> {
+            if (inputs.contains("slow")) {
+                await(release);
+            }
+            return upperCase(inputs);
+        });
+
+        batcher.submit("slow");
+        // two more windows come and go while "slow" is still running
+        assertThat(batcher.submit("a").get(2, TimeUnit.SECONDS)).isEqualTo("A");
+        assertThat(batcher.submit("b").get(2, TimeUnit.SECONDS)).isEqualTo("B");
+        release.countDown();
+    }
+
+    @Test
+    void wrongNumberOfResultsFailsEveryCallerInTheBatch() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        batcher(8, 50, inputs -> {
+            if (inputs.contains("blocker")) {
+                await(release);
+                return upperCase(inputs);
+            }
+            return List.of("only one");
+        });
+
+        batcher.submit("blocker");
+        CompletableFuture<String> a = batcher.submit("a");
+        CompletableFuture<String> b = batcher.submit("b");
+        release.countDown();
+
+        for (CompletableFuture<String> f : List.of(a, b)) {
+            assertThatThrownBy(() -> f.get(2, TimeUnit.SECONDS))
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("returned 1 results for 2 inputs");
+        }
+    }
+
+    @Test
+    void rejectedBatchFailsItsCallers() {
+        ThreadPoolExecutor closed = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        closed.shutdown(); // rejects everything
+        batcher = new MicroBatcher<>("test", 8, LONG_WINDOW_MS, closed, MicroBatcherTests::upperCase);
+
+        assertThatThrownBy(() -> batcher.submit("a").get(2, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.OcrJob;
+import com.knowMoreQR.server.OcrJobRepository;
+import com.knowMoreQR.server.PendingOcrJob;
+import com.knowMoreQR.server.PendingOcrJobRepository;
+import com.knowMoreQR.server.ProductDetails;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.cql.CqlOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OcrJobServiceTests {
+
+    private final OcrJobRepository jobRepository = mock(OcrJobRepository.class);
+    private final PendingOcrJobRepository pendingRepository = mock(PendingOcrJobRepository.class);
+    private final CassandraOperations cassandraOperations = mock(CassandraOperations.class);
+    private final ImageProcessingService imageProcessingService = mock(ImageProcessingService.class);
+    // every conditional update applies; the statement and its bind values are kept for the asserts
+    private final List<Object[]> statements = Collections.synchronizedList(new ArrayList<>());
+    private final CqlOperations cqlOperations = mock(CqlOperations.class, inv -> {
+        if (!inv.getMethod().getName().equals("execute")) {
+            return Answers.RETURNS_DEFAULTS.answer(inv);
+        }
+        statements.add(inv.getArguments());
+        return true;
+    });
+    private final Set<UUID> cleared = ConcurrentHashMap.newKeySet();
+    private OcrJobService service;
+
+    @BeforeEach
+    void setUp() {
+        when(cassandraOperations.getCqlOperations()).thenReturn(cqlOperations);
+        when(jobRepository.findById(any())).thenReturn(Optional.empty());
+        when(pendingRepository.findByBucket(anyInt())).thenReturn(List.of());
+        doAnswer(inv -> cleared.add(inv.getArgument(1)))
+                .when(pendingRepository).deleteEntry(anyInt(), any());
+        service = new OcrJobService(jobRepository, pendingRepository, cassandraOperations, imageProcessingService,
+                1, 10, 3, 120_000, 5_000, 60_000, 7, new SimpleMeterRegistry());
+        service.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void sweepDispatchesOnlyDuePendingJobs() throws Exception {
+        UUID due = UUID.randomUUID();
+        UUID later = UUID.randomUUID();
+        pending(new PendingOcrJob(due, Instant.now().minusSeconds(1)), new PendingOcrJob(later, Instant.now().plusSeconds(60)));
+
+        service.sweep();
+
+        // neither job row exists any more, so the due one's index row is dropped when it's looked at
+        waitFor(() -> cleared.contains(due));
+        Thread.sleep(50);
+        verify(jobRepository, never()).findById(later);
+        assertThat(cleared).containsExactly(due);
+    }
+
+    @Test
+    void queuedJobIsClaimedRunAndRemovedFromTheIndex() throws Exception {
+        OcrJob job = OcrJob.queued(new byte[] {1, 2, 3});
+        when(jobRepository.findById(job.getJobId())).thenReturn(Optional.of(job));
+        ProductDetails details = new ProductDetails();
+        details.setId(UUID.randomUUID());
+        when(imageProcessingService.processImage(any(InputStream.class))).thenReturn(details);
+        pending(new PendingOcrJob(job.getJobId(), job.getNotBefore()));
+
+        service.sweep();
+
+        waitFor(() -> cleared.contains(job.getJobId()));
+        assertThat(statements).hasSize(2);
+        assertThat((String) statements.get(0)[0]).contains("IF status = ? AND attempts = ?");
+        assertThat(statements.get(0)).contains(OcrJob.Status.RUNNING.name(), 1);
+        assertThat(statements.get(1)).contains(OcrJob.Status.DONE.name(), details.getId());
+    }
+
+    @Test
+    void expiredLeaseOnTheLastAttemptFailsTheJobInsteadOfClaimingIt() throws Exception {
+        OcrJob job = OcrJob.queued(new byte[] {1, 2, 3});
+        ReflectionTestUtils.setField(job, "status", OcrJob.Status.RUNNING.name());
+        ReflectionTestUtils.setField(job, "attempts", 3);
+        ReflectionTestUtils.setField(job, "leaseUntil", Instant.now().minusSeconds(1));
+        when(jobRepository.findById(job.getJobId())).thenReturn(Optional.of(job));
+        pending(new PendingOcrJob(job.getJobId(), job.getLeaseUntil()));
+
+        service.sweep();
+
+        waitFor(() -> cleared.contains(job.getJobId()));
+        assertThat(statements).hasSize(1);
+        assertThat(statements.get(0)).contains(OcrJob.Status.FAILED.name(), OcrJob.Status.RUNNING.name(), 3);
+        verify(imageProcessingService, never()).processImage(any(InputStream.class));
+    }
+
+    @Test
+    void jobInterruptedByShutdownIsRequeuedWithoutUsingAnAttempt() throws Exception {
+        OcrJob job = OcrJob.queued(new byte[] {1, 2, 3});
+        when(jobRepository.findById(job.getJobId())).thenReturn(Optional.of(job));
+        CountDownLatch running = new CountDownLatch(1);
+        when(imageProcessingService.processImage(any(InputStream.class))).thenAnswer(inv -> {
+            running.countDown();
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                throw new IOException("read interrupted"); // what an interrupted engine or stream reports
+            }
+            return new ProductDetails();
+        });
+        pending(new PendingOcrJob(job.getJobId(), job.getNotBefore()));
+
+        service.sweep();
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        service.stop();
+
+        waitFor(() -> statements.size() == 2);
+        assertThat((String) statements.get(1)[0]).contains("SET status = ?, attempts = ?");
+        assertThat(statements.get(1)).contains(OcrJob.Status.QUEUED.name(), 0);
+        assertThat(cleared).isEmpty();
+    }
+
+    private void pending(PendingOcrJob... jobs) {
+        for (PendingOcrJob job : jobs) {
+            List<PendingOcrJob> bucket = new ArrayList<>(pendingRepository.findByBucket(job.getBucket()));
+            bucket.add(job);
+            when(pendingRepository.findByBucket(job.getBucket())).thenReturn(bucket);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.knowMoreQR.server.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpenAiCallGuardTests {
+
+    private OpenAiStubServer stub;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = new OpenAiStubServer();
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.close();
+    }
+
+    private String callStub() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(stub.completionsUri())
+                .POST(HttpRequest.BodyPublishers.ofString("{}"))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Upstream returned " + response.statusCode());
+        }
+        return response.body();
+    }
+
+    private OpenAiCallGuard guard(CircuitBreaker breaker, TokenBucket requests, AdaptiveConcurrencyLimiter limiter) {
+        return new OpenAiCallGuard(breaker, requests, new TokenBucket(1_000_000, 1_000_000), limiter,
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void slowUpstreamShrinksConcurrencyLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 16, 50, 0.5);
+        OpenAiCallGuard guard = guard(new CircuitBreaker(100, 1000), new TokenBucket(1000, 1000), limiter);
+
+        stub.setLatencyMillis(150);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(pool.submit(() -> guard.execute(10, this::callStub)));
+            }
+            for (Future<?> call : calls) {
+                call.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(8);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void limiterRejectsCallsAboveTheCurrentLimit() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1000, 0.5);
+        OpenAiCallGuard guard = guard(new CircuitBreaker(100, 1000), new TokenBucket(1000, 1000), limiter);
+
+        stub.setLatencyMillis(300);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = pool.submit(() -> guard.execute(10, this::callStub));
+            // the first call holds the only slot from before its request is sent until the response
+            assertThat(stub.awaitRequests(1, 5000)).isTrue();
+
+            assertThatThrownBy(() -> guard.execute(10, this::callStub))
+                    .isInstanceOf(OpenAiCallGuard.RejectedException.class);
+            assertThat(first.get()).contains("choices");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(limiter.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void breakerOpensAfterFailuresAndFailsFast() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+        OpenAiCallGuard guard = guard(breaker, new TokenBucket(1000, 1000),
+                new AdaptiveConcurrencyLimiter(4, 1, 4, 1000, 0.5));
+
+        stub.setFailing(true);
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> guard.execute(10, this::callStub)).isInstanceOf(IOException.class);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        int before = stub.getRequestCount();
+        assertThatThrownBy(() -> guard.execute(10, this::callStub))
+                .isInstanceOf(OpenAiCallGuard.RejectedException.class);
+        assertThat(stub.getRequestCount()).isEqualTo(before); // upstream not touched
+    }
+
+    @Test
+    void halfOpenProbeClosesBreakerOnSuccess() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0); // the next call after tripping is the probe
+        OpenAiCallGuard guard = guard(breaker, new TokenBucket(1000, 1000),
+                new AdaptiveConcurrencyLimiter(4, 1, 4, 1000, 0.5));
+
+        stub.setFailing(true);
+        assertThatThrownBy(() -> guard.execute(10, this::callStub)).isInstanceOf(IOException.class);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        stub.setFailing(false);
+        assertThat(guard.execute(10, this::callStub)).contains("choices");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void lateSuccessDoesNotCloseAnOpenBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 60_000);
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+        assertThat(breaker.tryAcquirePermission()).isTrue();
+
+        breaker.onFailure();
+        breaker.onSuccess(); // the other call, admitted before the trip, finishes afterwards
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isFalse();
+    }
+
+    @Test
+    void requestQuotaRejectsOnceExhausted() throws Exception {
+        OpenAiCallGuard guard = guard(new CircuitBreaker(100, 1000), new TokenBucket(2, 2),
+                new AdaptiveConcurrencyLimiter(4, 1, 4, 1000, 0.5));
+
+        guard.execute(10, this::callStub);
+        guard.execute(10, this::callStub);
+        assertThatThrownBy(() -> guard.execute(10, this::callStub))
+                .isInstanceOf(OpenAiCallGuard.RejectedException.class);
+        assertThat(stub.getRequestCount()).isEqualTo(2);
+    }
+}
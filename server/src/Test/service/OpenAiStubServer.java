@@ -0,0 +1,80 @@
+package com.knowMoreQR.server.service;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the chat completions endpoint. Latency and failures can be
+ * changed while the server is running to simulate a slow or broken upstream.
+ */
+class OpenAiStubServer implements AutoCloseable {
+
+    private static final String COMPLETION = "{\"choices\":[{\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"{\\\"intent\\\": \\\"view\\\", \\\"item_query\\\": \\\"\\\"}\"}}]}";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long latencyMillis;
+    private volatile boolean failing;
+
+    OpenAiStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", exchange -> {
+            requests.incrementAndGet();
+            synchronized (requests) {
+                requests.notifyAll();
+            }
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = (failing ? "{\"error\":\"overloaded\"}" : COMPLETION).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(failing ? 503 : 200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    URI completionsUri() {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/v1/chat/completions");
+    }
+
+    void setLatencyMillis(long latencyMillis) { this.latencyMillis = latencyMillis; }
+    void setFailing(boolean failing) { this.failing = failing; }
+    int getRequestCount() { return requests.get(); }
+
+    /** Blocks until {@code count} requests have reached the stub; false if that took longer than the timeout. */
+    boolean awaitRequests(int count, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        synchronized (requests) {
+            while (requests.get() < count) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                requests.wait(Math.max(1, remaining / 1_000_000L));
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow(); // HttpServer.stop leaves a caller-supplied executor running
+    }
+}
@@ -0,0 +1,68 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagRepository;
+import com.knowMoreQR.server.auth.WishlistItem;
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RecommendationServiceTests {
+
+    private final WishlistItemRepository itemRepository = mock(WishlistItemRepository.class);
+    private final TagRepository tagRepository = mock(TagRepository.class);
+    private final Tag tee = tag("Organic Cotton Tee");
+    private final Tag sweater = tag("Merino Crew Sweater");
+
+    @Test
+    void changesMadeDuringTheBootstrapAreAppliedAfterIt() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(itemRepository.findPageAfter(any(), any())).thenAnswer(inv -> {
+            reading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of(item(1, 1L, tee), item(2, 1L, sweater));
+        });
+        when(tagRepository.findAllById(any())).thenReturn(List.of(tee, sweater));
+        RecommendationService service = new RecommendationService(itemRepository, tagRepository, 10, 1, 100, 5000);
+
+        service.bootstrap();
+        assertThat(reading.await(5, TimeUnit.SECONDS)).isTrue();
+        // committed after the page was read but before the loader indexed it
+        service.onWishlistChanged(WishlistChangedEvent.removed(1L, List.of(sweater.getId())));
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!service.isReady()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        assertThat(service.similar(tee.getId(), 10, false)).isEmpty();
+
+        // once ready, events go straight to the index
+        service.onWishlistChanged(WishlistChangedEvent.added(1L, sweater.getId()));
+        assertThat(service.similar(tee.getId(), 10, false)).containsExactly(sweater);
+    }
+
+    private static Tag tag(String name) {
+        Tag tag = new Tag();
+        tag.setId(UUID.randomUUID());
+        tag.setName(name);
+        return tag;
+    }
+
+    private static WishlistItem item(long id, Long consumerId, Tag tag) {
+        WishlistItem item = new WishlistItem(consumerId, tag.getId());
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,80 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagChangedEvent;
+import com.knowMoreQR.server.TagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagIdFilterTests {
+
+    private final List<Tag> tags = new ArrayList<>();
+    private final TagRepository repository = mock(TagRepository.class);
+    private TagIdFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            tags.add(new Tag());
+        }
+        when(repository.findAll()).thenReturn(tags);
+        filter = new TagIdFilter(repository, 1000, 0.001, 3);
+        filter.buildAtStartup();
+        waitFor(filter::isReady);
+    }
+
+    @Test
+    void deletedTagsAreRejected() {
+        Tag deleted = tags.get(0);
+        assertThat(filter.mightExist(deleted.getId())).isTrue();
+
+        filter.onTagChanged(TagChangedEvent.deleted(deleted.getId()));
+
+        assertThat(filter.mightExist(deleted.getId())).isFalse();
+        assertThat(filter.mightExist(tags.get(1).getId())).isTrue();
+    }
+
+    @Test
+    void newTagsAreAccepted() {
+        Tag created = new Tag();
+        assertThat(filter.mightExist(created.getId())).isFalse();
+
+        filter.onTagChanged(TagChangedEvent.saved(created));
+
+        assertThat(filter.mightExist(created.getId())).isTrue();
+    }
+
+    @Test
+    void rebuildPastTheDeleteLimitDropsDeletedIds() throws Exception {
+        List<Tag> deleted = new ArrayList<>(tags.subList(0, 4));
+        tags.removeAll(deleted); // gone from Cassandra before the events arrive
+        for (Tag tag : deleted) {
+            filter.onTagChanged(TagChangedEvent.deleted(tag.getId()));
+        }
+
+        // the 4th delete passed max-deleted (3) and started a rebuild without them
+        waitFor(() -> filter.deletedCount() == 0);
+        for (Tag tag : deleted) {
+            assertThat(filter.mightExist(tag.getId())).isFalse();
+        }
+        for (Tag tag : tags) {
+            assertThat(filter.mightExist(tag.getId())).isTrue();
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagChangedEvent;
+import com.knowMoreQR.server.TagRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TagSearchServiceTests {
+
+    private final List<Tag> tags = new ArrayList<>();
+    private TagSearchService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tag("Organic Cotton Tee", "Basics", "Soft everyday t-shirt");
+        tag("Organic Linen Tee", "Basics", "Breathable summer shirt");
+        tag("Merino Crew Sweater", "Knitwear", "Warm knitted jumper");
+        tag("Stainless Steel Bottle", "Outdoor", "Keeps drinks cold");
+        tag("Everyday Hoodie", "Lounge", "Brushed organic cotton jersey");
+
+        TagRepository repository = mock(TagRepository.class);
+        when(repository.findAll()).thenReturn(tags);
+        when(repository.findAllById(any())).thenAnswer(inv -> {
+            Set<UUID> ids = new HashSet<>();
+            inv.<Iterable<UUID>>getArgument(0).forEach(ids::add);
+            return tags.stream().filter(t -> ids.contains(t.getId())).collect(Collectors.toList());
+        });
+        service = new TagSearchService(repository, new HashingEmbeddingProvider(256), "",
+                0.5, 0.3, 20, 0.15, 0.3, 2);
+        service.buildIndex();
+        waitFor(service::isReady);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void exactNameRanksFirst() {
+        assertThat(names(service.search("organic cotton tee", 10)).get(0)).isEqualTo("Organic Cotton Tee");
+        assertThat(names(service.search("merino", 10)).get(0)).isEqualTo("Merino Crew Sweater");
+    }
+
+    @Test
+    void wordPrefixesMatchLexically() {
+        assertThat(names(service.searchLexical("stainless", 10))).containsExactly("Stainless Steel Bottle");
+        assertThat(names(service.searchLexical("knitwear", 10))).containsExactly("Merino Crew Sweater");
+        assertThat(names(service.searchLexical("merin", 10))).containsExactly("Merino Crew Sweater");
+    }
+
+    @Test
+    void addPathNeverReturnsSemanticOnlyHits() {
+        // only the hoodie's description mentions jersey, and descriptions aren't matched lexically
+        assertThat(service.searchLexical("jersey", 10)).isEmpty();
+        assertThat(names(service.searchLexical("organic", 10)))
+                .containsExactlyInAnyOrder("Organic Cotton Tee", "Organic Linen Tee");
+    }
+
+    @Test
+    void addPathReturnsAClearWinnerAlone() {
+        assertThat(names(service.searchLexical("organic cotton tee", 10))).containsExactly("Organic Cotton Tee");
+        // both tees match "tee" equally well, so neither wins
+        assertThat(names(service.searchLexical("tee", 10)))
+                .containsExactlyInAnyOrder("Organic Cotton Tee", "Organic Linen Tee");
+    }
+
+    @Test
+    void misspeltWordsStillCountNextToCorrectOnes() {
+        // "tee" matches both tees exactly; the typos decide between them
+        assertThat(names(service.search("organik cotten tee", 10)).get(0)).isEqualTo("Organic Cotton Tee");
+        assertThat(names(service.searchLexical("organik cotten tee", 10))).containsExactly("Organic Cotton Tee");
+        assertThat(names(service.searchLexical("orgnic linen", 10))).containsExactly("Organic Linen Tee");
+        assertThat(names(service.searchLexical("merinno sweater", 10))).containsExactly("Merino Crew Sweater");
+    }
+
+    @Test
+    void deletedTagsDropOutAndTheIndexIsCompacted() throws Exception {
+        Tag linen = tags.get(1);
+        Tag hoodie = tags.get(4);
+        service.onTagChanged(TagChangedEvent.deleted(linen.getId()));
+        service.onTagChanged(TagChangedEvent.deleted(hoodie.getId()));
+
+        assertThat(names(service.search("organic", 10))).containsExactly("Organic Cotton Tee");
+        assertThat(names(service.search("everyday hoodie", 10))).doesNotContain("Everyday Hoodie");
+        // 2 of 5 tombstoned passes both the ratio (0.3) and the minimum (2)
+        waitFor(() -> service.indexTombstones() == 0);
+        assertThat(names(service.search("organic cotton tee", 10)).get(0)).isEqualTo("Organic Cotton Tee");
+    }
+
+    private void tag(String name, String series, String description) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        tag.setSeries(series);
+        tag.setDescription(description);
+        tags.add(tag);
+    }
+
+    private static List<String> names(List<Tag> tags) {
+        return tags.stream().map(Tag::getName).collect(Collectors.toList());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
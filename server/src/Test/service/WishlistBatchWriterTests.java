@@ -0,0 +1,136 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Against H2 in MySQL mode, which returns per-row update counts (no multi-row rewrite)
+class WishlistBatchWriterTests {
+
+    private static final int ITEMS = 1_000;
+    private static final int ROUNDS = 5;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void createSchema() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:wishlist-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE wishlist_items (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "consumer_id BIGINT NOT NULL, " +
+                "tag_id BINARY(16) NOT NULL, " +
+                "added_at TIMESTAMP NOT NULL, " +
+                "CONSTRAINT uk_consumer_tag UNIQUE (consumer_id, tag_id))");
+    }
+
+    private static List<UUID> randomIds(int n) {
+        List<UUID> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        return ids;
+    }
+
+    private int rowCount(long consumerId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM wishlist_items WHERE consumer_id = ?", Integer.class, consumerId);
+    }
+
+    @Test
+    void batchInsertSkipsExistingPairsAndReturnsOnlyInsertedIds() {
+        WishlistBatchWriter writer = new WishlistBatchWriter(dataSource, 200);
+        List<UUID> first = randomIds(ITEMS);
+        assertThat(writer.insertAll(1L, first)).isEqualTo(first);
+        assertThat(rowCount(1L)).isEqualTo(ITEMS);
+
+        List<UUID> fresh = randomIds(ITEMS / 2);
+        List<UUID> overlapping = new ArrayList<>(first.subList(0, ITEMS / 2));
+        overlapping.addAll(fresh);
+        assertThat(writer.insertAll(1L, overlapping)).isEqualTo(fresh);
+        assertThat(rowCount(1L)).isEqualTo(ITEMS + ITEMS / 2);
+        assertThat(writer.insertAll(1L, List.of())).isEmpty();
+
+        // stored ids round-trip to the same 16 bytes Hibernate would write
+        byte[] stored = jdbc.queryForObject("SELECT tag_id FROM wishlist_items WHERE consumer_id = 1 ORDER BY id LIMIT 1", byte[].class);
+        assertThat(stored).isEqualTo(WishlistItemRepository.uuidToBytes(first.get(0)));
+    }
+
+    @Test
+    void insertIfAbsentReportsWhetherItInserted() {
+        WishlistBatchWriter writer = new WishlistBatchWriter(dataSource, 200);
+        UUID tagId = UUID.randomUUID();
+
+        assertThat(writer.insertIfAbsent(1L, tagId)).isTrue();
+        assertThat(writer.insertIfAbsent(1L, tagId)).isFalse();
+        assertThat(writer.insertIfAbsent(2L, tagId)).isTrue();
+        assertThat(rowCount(1L)).isEqualTo(1);
+    }
+
+    @Test
+    void onlyDuplicateKeyWarningsAreIgnored() throws SQLException {
+        SQLWarning duplicate = new SQLWarning("Duplicate entry", "23000", 1062);
+        WishlistBatchWriter.throwIgnoredErrors(duplicate);
+        WishlistBatchWriter.throwIgnoredErrors(null);
+
+        SQLWarning chain = new SQLWarning("Duplicate entry", "23000", 1062);
+        chain.setNextWarning(new SQLWarning("Cannot add or update a child row: a foreign key constraint fails", "HY000", 1452));
+        assertThatThrownBy(() -> WishlistBatchWriter.throwIgnoredErrors(chain))
+                .isInstanceOf(SQLException.class)
+                .hasMessageContaining("foreign key");
+        assertThatThrownBy(() -> WishlistBatchWriter.throwIgnoredErrors(new SQLWarning("Data too long", "HY000", 1406)))
+                .isInstanceOf(SQLException.class);
+    }
+
+    // H2 has no network round trip, so the gap here understates what batching saves against MySQL
+    @Test
+    @Tag("benchmark")
+    void batchedInsertsOutrunRowByRowAtOneThousandItems() {
+        WishlistBatchWriter writer = new WishlistBatchWriter(dataSource, 500);
+        long consumerId = 100;
+
+        // warm-up for both paths
+        writer.insertAll(consumerId++, randomIds(ITEMS));
+        insertRowByRow(consumerId++, randomIds(ITEMS));
+
+        long rowByRowNanos = 0;
+        long batchedNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long singleConsumer = consumerId++;
+            long start = System.nanoTime();
+            insertRowByRow(singleConsumer, randomIds(ITEMS));
+            rowByRowNanos += System.nanoTime() - start;
+            assertThat(rowCount(singleConsumer)).isEqualTo(ITEMS);
+
+            long batchConsumer = consumerId++;
+            start = System.nanoTime();
+            writer.insertAll(batchConsumer, randomIds(ITEMS));
+            batchedNanos += System.nanoTime() - start;
+            assertThat(rowCount(batchConsumer)).isEqualTo(ITEMS);
+        }
+
+        assertThat(batchedNanos).isLessThan(rowByRowNanos);
+    }
+
+    // What the per-entity path amounts to: one statement execution per row
+    private void insertRowByRow(long consumerId, List<UUID> ids) {
+        Timestamp now = Timestamp.from(Instant.now());
+        for (UUID id : ids) {
+            jdbc.update(WishlistBatchWriter.INSERT_SQL, consumerId, WishlistItemRepository.uuidToBytes(id), now);
+        }
+    }
+}
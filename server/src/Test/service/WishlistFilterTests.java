@@ -0,0 +1,155 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.WishlistEntry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WishlistFilterTests {
+
+    private static final WishlistEntryView RED_TEE = entry("organic tee", "summer 24", "organic cotton",
+            new String[] {"red", "forest green"}, 25, 20, 800, 60);
+    private static final WishlistEntryView BLUE_JACKET = entry("rain jacket", "outdoor", "recycled polyester",
+            new String[] {"blue"}, 120, 75, 6000, 35);
+    private static final WishlistEntryView BLUE_TEE = entry("basic tee", "basics", "cotton",
+            new String[] {"blue", "white"}, 15, 45, 2500, 0);
+
+    @Test
+    void andBindsTighterThanOr() {
+        WishlistFilter f = WishlistFilter.compile("colour:red or colour:blue and carbon:high");
+
+        assertThat(f.test(RED_TEE)).isTrue();     // red, carbon low
+        assertThat(f.test(BLUE_JACKET)).isTrue(); // blue and high
+        assertThat(f.test(BLUE_TEE)).isFalse();   // blue but medium
+
+        WishlistFilter symbols = WishlistFilter.compile("colour:red | colour:blue & carbon:high");
+        assertThat(symbols.test(RED_TEE)).isTrue();
+        assertThat(symbols.test(BLUE_JACKET)).isTrue();
+        assertThat(symbols.test(BLUE_TEE)).isFalse();
+    }
+
+    @Test
+    void parenthesesAndJuxtapositionGroupAsAnd() {
+        WishlistFilter f = WishlistFilter.compile("(colour:red or colour:blue) carbon:high");
+
+        assertThat(f.test(RED_TEE)).isFalse();
+        assertThat(f.test(BLUE_JACKET)).isTrue();
+        assertThat(f.test(BLUE_TEE)).isFalse();
+    }
+
+    @Test
+    void notAppliesToTheNextOperandOnly() {
+        WishlistFilter f = WishlistFilter.compile("not colour:red and carbon:medium");
+        assertThat(f.test(RED_TEE)).isFalse();
+        assertThat(f.test(BLUE_JACKET)).isFalse();
+        assertThat(f.test(BLUE_TEE)).isTrue();
+
+        assertThat(WishlistFilter.compile("-material:polyester").test(BLUE_JACKET)).isFalse();
+        assertThat(WishlistFilter.compile("!(colour:red or colour:white)").test(BLUE_JACKET)).isTrue();
+        assertThat(WishlistFilter.compile("not not colour:red").test(RED_TEE)).isTrue();
+    }
+
+    @Test
+    void sustainabilityBandsSplitAtTheirEdges() {
+        assertBand("carbon", 29.9, "low");
+        assertBand("carbon", 30, "medium");
+        assertBand("carbon", 59.9, "medium");
+        assertBand("carbon", 60, "high");
+        assertBand("water", 999, "low");
+        assertBand("water", 1000, "medium");
+        assertBand("water", 5000, "high");
+        assertBand("recycled", 19.5, "low");
+        assertBand("recycled", 20, "medium");
+        assertBand("recycled", 50, "high");
+        assertBand("co2", 60, "high");
+    }
+
+    @Test
+    void numericComparisonsAndRanges() {
+        assertThat(WishlistFilter.compile("price:20..50").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("price:25..30").test(RED_TEE)).isTrue(); // both ends inclusive
+        assertThat(WishlistFilter.compile("price:..25").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("price:26..").test(RED_TEE)).isFalse();
+        assertThat(WishlistFilter.compile("price:<25").test(RED_TEE)).isFalse();
+        assertThat(WishlistFilter.compile("price<=25").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("price:>25").test(RED_TEE)).isFalse();
+        assertThat(WishlistFilter.compile("price>=25").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("price:25").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("water:>=2000").test(BLUE_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("recycled:0").test(BLUE_TEE)).isTrue();
+    }
+
+    @Test
+    void textFieldsMatchSubstringsListsAndQuotedValues() {
+        assertThat(WishlistFilter.compile("series:\"summer 24\"").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("colour:\"forest green\"").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("color:Blue,Green").test(BLUE_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("materials:cotton").test(RED_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("name:tee").test(BLUE_JACKET)).isFalse();
+        // a value starting with a keyword is still a value
+        assertThat(WishlistFilter.compile("name:basic name:tee").test(BLUE_TEE)).isTrue();
+        assertThat(WishlistFilter.compile("material:organic").test(RED_TEE)).isTrue();
+    }
+
+    @Test
+    void malformedFiltersAreRejectedWithAPosition() {
+        assertRejected("", "cannot be empty");
+        assertRejected("colour:", "Expected field:value");
+        assertRejected("colour:red and", "Expected field:value");
+        assertRejected("(colour:red", "Missing ')'");
+        assertRejected("colour:red)", "Unexpected ')'");
+        assertRejected("price:cheap", "Expected a number");
+        assertRejected("weight:5", "Unknown field 'weight' at position 0");
+        assertRejected("colour:red and colour<5", "only supports ':' at position 15");
+        assertRejected("carbon:high or", "Expected field:value at position 14");
+        assertRejected("price:1..2..3", "Expected a number");
+    }
+
+    @Test
+    void readModelRowsFilterLikeTheFullTag() {
+        Tag tag = new Tag();
+        tag.setId(UUID.randomUUID());
+        tag.setName("Rain Jacket");
+        tag.setSeries("Outdoor");
+        tag.setMaterials("Recycled Polyester");
+        tag.setColourways(new String[][] {{"Navy", "#001f3f"}, {}, {"Red"}});
+        tag.setUnitPrice(120);
+        tag.setSalePrice(90);
+        tag.setCarbonFootprint(75);
+        WishlistEntryView fromTag = WishlistEntryView.of(tag);
+        WishlistEntryView fromEntry = WishlistEntryView.of(WishlistEntry.of(1L, tag, Instant.now()));
+
+        assertThat(fromEntry.getName()).isEqualTo(fromTag.getName());
+        assertThat(fromEntry.getMaterials()).isEqualTo("recycled polyester");
+        assertThat(fromEntry.getColours()).containsExactly(fromTag.getColours());
+        assertThat(fromEntry.getPrice()).isEqualTo(90.0);
+        WishlistFilter f = WishlistFilter.compile("colour:red and material:polyester and carbon:high");
+        assertThat(f.test(fromEntry)).isTrue();
+        assertThat(f.test(fromTag)).isTrue();
+    }
+
+    private static void assertBand(String field, double value, String band) {
+        WishlistEntryView e = entry("x", "", "", new String[0], value, value, value, value);
+        for (String b : new String[] {"low", "medium", "high"}) {
+            assertThat(WishlistFilter.compile(field + ":" + b).test(e))
+                    .as(field + "=" + value + " in " + b)
+                    .isEqualTo(b.equals(band));
+        }
+    }
+
+    private static void assertRejected(String filter, String message) {
+        assertThatThrownBy(() -> WishlistFilter.compile(filter))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(message);
+    }
+
+    private static WishlistEntryView entry(String name, String series, String materials, String[] colours,
+                                           double price, double carbon, double water, double recycled) {
+        return new WishlistEntryView(UUID.randomUUID(), name, series, materials, colours, price, carbon, water, recycled);
+    }
+}
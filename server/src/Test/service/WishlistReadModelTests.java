@@ -0,0 +1,221 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagChangedEvent;
+import com.knowMoreQR.server.TagConsumer;
+import com.knowMoreQR.server.TagConsumerRepository;
+import com.knowMoreQR.server.TagRepository;
+import com.knowMoreQR.server.WishlistEntry;
+import com.knowMoreQR.server.WishlistEntryRepository;
+import com.knowMoreQR.server.auth.WishlistItem;
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WishlistReadModelTests {
+
+    private static final Long CONSUMER = 1L;
+    private static final Instant ADDED_AT = Instant.parse("2024-05-01T10:15:30Z");
+
+    private final WishlistEntryRepository entryRepository = mock(WishlistEntryRepository.class);
+    private final TagConsumerRepository tagConsumerRepository = mock(TagConsumerRepository.class);
+    private final WishlistItemRepository itemRepository = mock(WishlistItemRepository.class);
+    private final TagRepository tagRepository = mock(TagRepository.class);
+    private final List<Tag> tags = new ArrayList<>();
+    private final List<WishlistEntry> saved = Collections.synchronizedList(new ArrayList<>());
+    private WishlistReadModel readModel;
+
+    @BeforeEach
+    void setUp() {
+        tags.add(tag("Organic Cotton Tee"));
+        tags.add(tag("Merino Crew Sweater"));
+        when(tagRepository.findAllById(any())).thenAnswer(inv -> {
+            Set<UUID> ids = new HashSet<>();
+            inv.<Iterable<UUID>>getArgument(0).forEach(ids::add);
+            return tags.stream().filter(t -> ids.contains(t.getId())).collect(Collectors.toList());
+        });
+        when(entryRepository.saveAll(any())).thenAnswer(inv -> {
+            List<WishlistEntry> entries = new ArrayList<>();
+            inv.<Iterable<WishlistEntry>>getArgument(0).forEach(entries::add);
+            saved.addAll(entries);
+            return entries;
+        });
+        when(entryRepository.save(any())).thenAnswer(inv -> {
+            saved.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        readModel = new WishlistReadModel(entryRepository, tagConsumerRepository, itemRepository, tagRepository, 2);
+        readModel.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        readModel.stop();
+    }
+
+    @Test
+    void rebuildKeepsThePartitionWhenMySqlDidNotChange() {
+        UUID tee = tags.get(0).getId();
+        when(itemRepository.findByConsumerIdOrderByAddedAtDesc(CONSUMER)).thenReturn(List.of(item(tee)));
+        when(itemRepository.findTagIdsByConsumerId(CONSUMER)).thenReturn(List.of(tee));
+
+        List<WishlistEntry> wishlist = readModel.getWishlist(CONSUMER);
+
+        assertThat(wishlist).hasSize(1);
+        assertThat(wishlist.get(0).getAddedAt()).isEqualTo(ADDED_AT);
+        verify(entryRepository, never()).deletePartition(CONSUMER);
+    }
+
+    @Test
+    void rebuildDropsWhatItWroteWhenAnAddRacedIt() {
+        UUID tee = tags.get(0).getId();
+        UUID sweater = tags.get(1).getId();
+        when(itemRepository.findByConsumerIdOrderByAddedAtDesc(CONSUMER)).thenReturn(List.of(item(tee)));
+        // the sweater was added (and its event skipped the empty partition) while the rebuild ran
+        when(itemRepository.findTagIdsByConsumerId(CONSUMER)).thenReturn(List.of(tee, sweater));
+
+        assertThat(readModel.getWishlist(CONSUMER)).hasSize(1);
+        verify(entryRepository).deletePartition(CONSUMER);
+    }
+
+    @Test
+    void rebuildDropsWhatItWroteWhenARemoveRacedIt() {
+        UUID tee = tags.get(0).getId();
+        when(itemRepository.findByConsumerIdOrderByAddedAtDesc(CONSUMER)).thenReturn(List.of(item(tee)));
+        when(itemRepository.findTagIdsByConsumerId(CONSUMER)).thenReturn(List.of());
+
+        readModel.getWishlist(CONSUMER);
+        verify(entryRepository).deletePartition(CONSUMER);
+    }
+
+    @Test
+    void emptyWishlistIsMaterializedOnce() {
+        when(itemRepository.findByConsumerIdOrderByAddedAtDesc(CONSUMER)).thenReturn(List.of());
+        when(itemRepository.findTagIdsByConsumerId(CONSUMER)).thenReturn(List.of());
+
+        assertThat(readModel.getWishlist(CONSUMER)).isEmpty();
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).isMarker()).isTrue();
+
+        when(entryRepository.findByConsumerId(CONSUMER)).thenReturn(List.of(saved.get(0)));
+        assertThat(readModel.getWishlist(CONSUMER)).isEmpty();
+        verify(itemRepository, times(1)).findByConsumerIdOrderByAddedAtDesc(CONSUMER);
+    }
+
+    @Test
+    void readsSkipTheMarkerAndRebuildWithoutIt() {
+        WishlistEntry tee = WishlistEntry.of(CONSUMER, tags.get(0), ADDED_AT);
+        when(entryRepository.findByConsumerId(CONSUMER)).thenReturn(List.of(WishlistEntry.materialized(CONSUMER), tee));
+        assertThat(readModel.getWishlist(CONSUMER)).containsExactly(tee);
+        verify(itemRepository, never()).findByConsumerIdOrderByAddedAtDesc(CONSUMER);
+
+        // rows left without a marker (e.g. an update racing a drop) don't count as materialized
+        when(entryRepository.findByConsumerId(CONSUMER)).thenReturn(List.of(tee));
+        when(itemRepository.findByConsumerIdOrderByAddedAtDesc(CONSUMER)).thenReturn(List.of(item(tee.getTagId())));
+        when(itemRepository.findTagIdsByConsumerId(CONSUMER)).thenReturn(List.of(tee.getTagId()));
+        assertThat(readModel.getWishlist(CONSUMER)).hasSize(1);
+        verify(itemRepository).findByConsumerIdOrderByAddedAtDesc(CONSUMER);
+    }
+
+    @Test
+    void addsToAnUnmaterializedPartitionAreLeftToTheRebuild() {
+        UUID tee = tags.get(0).getId();
+        when(itemRepository.findByConsumerIdAndTagIdIn(any(), any())).thenReturn(List.of(item(tee)));
+
+        readModel.onWishlistChanged(WishlistChangedEvent.added(CONSUMER, List.of(tee)));
+
+        assertThat(saved).isEmpty();
+    }
+
+    @Test
+    void addedEntriesKeepTheRowsAddedAt() {
+        UUID tee = tags.get(0).getId();
+        UUID removedAgain = tags.get(1).getId();
+        when(entryRepository.findEntries(List.of(CONSUMER), WishlistEntry.MATERIALIZED))
+                .thenReturn(List.of(WishlistEntry.materialized(CONSUMER)));
+        when(itemRepository.findByConsumerIdAndTagIdIn(any(), any())).thenReturn(List.of(item(tee)));
+
+        readModel.onWishlistChanged(WishlistChangedEvent.added(CONSUMER, List.of(tee, removedAgain)));
+
+        assertThat(saved).hasSize(1);
+        assertThat(saved.get(0).getTagId()).isEqualTo(tee);
+        assertThat(saved.get(0).getAddedAt()).isEqualTo(ADDED_AT);
+    }
+
+    @Test
+    void tagEditsFanOutInTheBackgroundInChunksAndCollapse() throws Exception {
+        Tag tee = tags.get(0);
+        List<TagConsumer> holders = List.of(new TagConsumer(tee.getId(), 1L), new TagConsumer(tee.getId(), 2L),
+                new TagConsumer(tee.getId(), 3L));
+        CountDownLatch picked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> lookups = Collections.synchronizedList(new ArrayList<>());
+        when(tagConsumerRepository.findByTagId(tee.getId())).thenAnswer(inv -> {
+            picked.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return holders;
+        });
+        when(entryRepository.findEntries(any(), any())).thenAnswer(inv -> {
+            lookups.add(Thread.currentThread().getName());
+            List<WishlistEntry> current = new ArrayList<>();
+            for (Long consumerId : inv.<List<Long>>getArgument(0)) {
+                current.add(WishlistEntry.of(consumerId, tee, ADDED_AT));
+            }
+            return current;
+        });
+
+        readModel.onTagChanged(TagChangedEvent.saved(tee)); // picked up, blocks in findByTagId
+        assertThat(picked.await(5, TimeUnit.SECONDS)).isTrue();
+        Tag renamed = tag("Organic Cotton Tee v2");
+        renamed.setId(tee.getId());
+        Tag renamedAgain = tag("Organic Cotton Tee v3");
+        renamedAgain.setId(tee.getId());
+        readModel.onTagChanged(TagChangedEvent.saved(renamed));
+        readModel.onTagChanged(TagChangedEvent.saved(renamedAgain)); // replaces v2 while it waits
+        release.countDown();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (saved.size() < 6) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        // two passes (v1, then v3) of two chunks each: [1, 2] and [3]
+        assertThat(lookups).hasSize(4).allMatch(name -> name.equals("wishlist-tag-fanout"));
+        assertThat(saved).hasSize(6);
+        assertThat(saved.subList(3, 6)).allMatch(e -> e.getName().equals("Organic Cotton Tee v3"))
+                .allMatch(e -> e.getAddedAt().equals(ADDED_AT));
+    }
+
+    private static Tag tag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return tag;
+    }
+
+    private static WishlistItem item(UUID tagId) {
+        WishlistItem item = new WishlistItem(CONSUMER, tagId);
+        item.setAddedAt(ADDED_AT);
+        return item;
+    }
+}
@@ -0,0 +1,124 @@
+package com.knowMoreQR.server;
+
+import com.knowMoreQR.server.auth.CustomUserDetails;
+import com.knowMoreQR.server.auth.WishlistBatchRequest;
+import com.knowMoreQR.server.auth.WishlistFilterRequest;
+import com.knowMoreQR.server.service.WishlistFilter;
+import com.knowMoreQR.server.service.WishlistReadModel;
+import com.knowMoreQR.server.service.WishlistService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+@CrossOrigin(origins = "http://localhost:3000", maxAge = 3600)
+@RestController
+@RequestMapping("/api/consumer/wishlist")
+public class ConsumerWishlistController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerWishlistController.class);
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private WishlistService wishlistService;
+
+    @Autowired
+    private WishlistReadModel readModel;
+
+    /**
+     * Newest-first page of the wishlist. Pass the returned nextCursor as {@code after} to get the
+     * next page; nextCursor is null on the last one.
+     */
+    @GetMapping
+    public ResponseEntity<?> page(@RequestParam(value = "limit", defaultValue = "20") int limit,
+                                  @RequestParam(value = "after", required = false) String after,
+                                  Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+            return ResponseEntity.status(401).body("User not authenticated or invalid principal type.");
+        }
+        Long consumerId = ((CustomUserDetails) authentication.getPrincipal()).getUserId();
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        try {
+            return ResponseEntity.ok(wishlistService.getWishlistPage(consumerId, limit, after));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Whole wishlist as summary rows, served from the per-consumer read model
+    @GetMapping("/summary")
+    public ResponseEntity<?> summary(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+            return ResponseEntity.status(401).body("User not authenticated or invalid principal type.");
+        }
+        Long consumerId = ((CustomUserDetails) authentication.getPrincipal()).getUserId();
+        return ResponseEntity.ok(readModel.getWishlist(consumerId));
+    }
+
+    /**
+     * Adds and removes many items in one transaction, e.g. {"add": [tagId, ...], "remove": [tagId, ...]}.
+     * Unknown tag ids are reported in "rejected" instead of failing the batch.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<?> batch(@RequestBody WishlistBatchRequest request, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+            return ResponseEntity.status(401).body("User not authenticated or invalid principal type.");
+        }
+        Long consumerId = ((CustomUserDetails) authentication.getPrincipal()).getUserId();
+
+        List<UUID> add = request.getAdd() == null ? List.of() : request.getAdd();
+        List<UUID> remove = request.getRemove() == null ? List.of() : request.getRemove();
+        if (add.stream().anyMatch(Objects::isNull) || remove.stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().body("Tag ids cannot be null.");
+        }
+        try {
+            return ResponseEntity.ok(wishlistService.applyBatch(consumerId, add, remove));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Lists or removes every wishlist item matching a filter expression, e.g.
+     * {"filter": "colour:blue and carbon:high", "action": "remove"}. See {@link WishlistFilter}.
+     */
+    @PostMapping("/filter")
+    public ResponseEntity<?> filter(@RequestBody WishlistFilterRequest request, Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
+            return ResponseEntity.status(401).body("User not authenticated or invalid principal type.");
+        }
+        Long consumerId = ((CustomUserDetails) authentication.getPrincipal()).getUserId();
+
+        String action = request.getAction() == null ? "list" : request.getAction().trim().toLowerCase();
+        if (!action.equals("list") && !action.equals("remove")) {
+            return ResponseEntity.badRequest().body("Unknown action '" + request.getAction() + "', expected list or remove.");
+        }
+
+        WishlistFilter filter;
+        try {
+            filter = WishlistFilter.compile(request.getFilter());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        List<Tag> matched = wishlistService.filterWishlist(consumerId, filter, action.equals("remove"));
+        logger.info("Filter '{}' ({}) matched {} items for consumer {}", request.getFilter(), action, matched.size(), consumerId);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("action", action);
+        body.put("matched", matched.size());
+        body.put("items", matched);
+        return ResponseEntity.ok(body);
+    }
+}
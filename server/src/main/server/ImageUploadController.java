@@ -1,26 +1,54 @@
 package com.knowMoreQR.server;
 
+import com.knowMoreQR.server.service.BatchOcrService;
 import com.knowMoreQR.server.service.ImageProcessingService;
+import com.knowMoreQR.server.service.OcrJobService;
+import com.knowMoreQR.server.service.TesseractPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 import org.springframework.http.*;
+
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "*")
 public class ImageUploadController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ImageUploadController.class);
+
     private final ImageProcessingService imageProcessingService;
+    private final OcrJobService ocrJobService;
+    private final ProductDetailsRepository productDetailsRepository;
+    private final BatchOcrService batchOcrService;
 
     // Use constructor injection
-    public ImageUploadController(ImageProcessingService imageProcessingService) {
+    public ImageUploadController(ImageProcessingService imageProcessingService, OcrJobService ocrJobService,
+                                 ProductDetailsRepository productDetailsRepository, BatchOcrService batchOcrService) {
         this.imageProcessingService = imageProcessingService;
+        this.ocrJobService = ocrJobService;
+        this.productDetailsRepository = productDetailsRepository;
+        this.batchOcrService = batchOcrService;
     }
 
-    // POST /api/upload
+    // POST /api/upload (?async=true queues the image and returns a job id straight away)
     @PostMapping("/upload")
-    public ResponseEntity<?> handleFileUpload(@RequestParam("image") MultipartFile file) {
+    public ResponseEntity<?> handleFileUpload(@RequestParam("image") MultipartFile file,
+                                              @RequestParam(value = "async", defaultValue = "false") boolean async) {
+        if (async) {
+            return submitJob(file);
+        }
         try {
             // 1) Send to service for OCR + classification + saving
             ProductDetails details = imageProcessingService.processImage(file);
@@ -28,14 +56,109 @@ public class ImageUploadController {
             // 2) Return the product details (containing OCR text, classification, etc.)
             return ResponseEntity.ok(details);
 
+        } catch (TesseractPool.RejectedException e) {
+            // all OCR engines busy and the wait queue full (or timed out): ask the client to back off
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                 .header(HttpHeaders.RETRY_AFTER, "2")
+                                 .body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error("Could not read uploaded image", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                  .body("Error processing file: " + e.getMessage());
         } catch (Exception e) {
-            e.printStackTrace();
+            logger.error("Image upload failed", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                                  .body("Unexpected error: " + e.getMessage());
         }
     }
+
+    private ResponseEntity<?> submitJob(MultipartFile file) {
+        try {
+            OcrJob job = ocrJobService.submit(file.getBytes());
+            URI statusUrl = URI.create("/api/upload/" + job.getJobId());
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("jobId", job.getJobId());
+            body.put("status", job.getStatus());
+            body.put("statusUrl", statusUrl.toString());
+            return ResponseEntity.accepted().location(statusUrl).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Could not queue OCR job", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                 .body("Could not queue file: " + e.getMessage());
+        }
+    }
+
+    // GET /api/upload/{jobId} - poll an async upload; "result" is set once the status is DONE
+    @GetMapping("/upload/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable UUID jobId) {
+        Optional<OcrJob> found = ocrJobService.find(jobId);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        OcrJob job = found.get();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getJobId());
+        body.put("status", job.getStatus());
+        body.put("attempts", job.getAttempts());
+        body.put("createdAt", job.getCreatedAt());
+        body.put("updatedAt", job.getUpdatedAt());
+        if (job.getError() != null) {
+            body.put("error", job.getError());
+        }
+        if (job.getResultId() != null) {
+            body.put("result", productDetailsRepository.findById(job.getResultId()).orElse(null));
+        }
+        boolean pending = OcrJob.Status.QUEUED.name().equals(job.getStatus())
+                || OcrJob.Status.RUNNING.name().equals(job.getStatus());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (pending) {
+            response.header(HttpHeaders.RETRY_AFTER, "2");
+        }
+        return response.body(body);
+    }
+
+    // POST /api/upload/batch with a zip as the raw request body. Entries are read straight off the
+    // connection, so this isn't bound by the multipart size limits; use it for whole collections.
+    @PostMapping(value = "/upload/batch", consumes = {"application/zip", "application/x-zip-compressed"})
+    public ResponseEntity<ResponseBodyEmitter> handleZipBatch(HttpServletRequest request) {
+        return ndjson(batchOcrService.submit(sink -> BatchOcrService.readZip(request.getInputStream(), sink)));
+    }
+
+    // POST /api/upload/batch with several "images" parts; a part may itself be a zip
+    @PostMapping(value = "/upload/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> handleBatchUpload(@RequestParam("images") List<MultipartFile> files) {
+        return ndjson(batchOcrService.submit(sink -> {
+            for (MultipartFile file : files) {
+                try (InputStream in = file.getInputStream()) {
+                    if (isZip(file)) {
+                        BatchOcrService.readZip(in, sink);
+                    } else if (!sink.accept(file.getOriginalFilename(), in)) {
+                        return;
+                    }
+                }
+            }
+        }));
+    }
+
+    @ExceptionHandler(BatchOcrService.RejectedException.class)
+    public ResponseEntity<String> batchRejected(BatchOcrService.RejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                             .header(HttpHeaders.RETRY_AFTER, "30")
+                             .body(e.getMessage());
+    }
+
+    private static ResponseEntity<ResponseBodyEmitter> ndjson(ResponseBodyEmitter emitter) {
+        return ResponseEntity.ok().contentType(BatchOcrService.NDJSON).body(emitter);
+    }
+
+    private static boolean isZip(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        String type = file.getContentType();
+        return (name != null && name.toLowerCase().endsWith(".zip"))
+                || (type != null && type.contains("zip"));
+    }
 }
@@ -8,10 +8,14 @@ import com.google.gson.*;
 import com.knowMoreQR.server.auth.NlpWishlistRequest;
 import com.knowMoreQR.server.auth.NlpWishlistResponse;
 import com.knowMoreQR.server.service.OpenAiService;
+import com.knowMoreQR.server.service.WishlistFilter;
 import com.knowMoreQR.server.service.WishlistService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
@@ -19,6 +23,8 @@ import com.knowMoreQR.server.auth.CustomUserDetails;
 import com.knowMoreQR.server.service.OpenAiService.ParsedCommand;
 
 import java.util.*;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,11 +55,22 @@ public class NlpWishlistController {
     @Autowired
     private WishlistService wishlistService;
 
+    @Autowired
+    @Qualifier("aiExecutor")
+    private ThreadPoolTaskExecutor aiExecutor;
+
+    // Per-request deadline for the whole command, including time spent queued on aiExecutor
+    @Value("${nlp.wishlist.deadline-ms:15000}")
+    private long requestDeadlineMs;
+
     @PostMapping("/wishlist")
-    public ResponseEntity<?> processWishlistCommand(@RequestBody NlpWishlistRequest request) {
+    public DeferredResult<ResponseEntity<?>> processWishlistCommand(@RequestBody NlpWishlistRequest request) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(requestDeadlineMs);
+
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null || !authentication.isAuthenticated() || !(authentication.getPrincipal() instanceof CustomUserDetails)) {
-            return ResponseEntity.status(401).body("User not authenticated or invalid principal type.");
+            result.setResult(ResponseEntity.status(401).body("User not authenticated or invalid principal type."));
+            return result;
         }
 
         CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
@@ -62,16 +79,48 @@ public class NlpWishlistController {
 
         if (!"consumer".equalsIgnoreCase(userType)) {
              logger.warn("Non-consumer attempted wishlist access. Type: {}, ID: {}", userType, consumerId);
-             return ResponseEntity.status(403).body("Access denied for wishlist operations.");
+             result.setResult(ResponseEntity.status(403).body("Access denied for wishlist operations."));
+             return result;
         }
 
         if (request == null || request.getCommand() == null || request.getCommand().trim().isEmpty()) {
-            return ResponseEntity.badRequest().body("Command cannot be empty.");
+            result.setResult(ResponseEntity.badRequest().body("Command cannot be empty."));
+            return result;
+        }
+
+        String command = request.getCommand();
+        logger.info("Received wishlist command: \"{}\" for consumer ID: {}", command, consumerId);
+
+        // Run the AI call + wishlist work off the servlet thread; the request thread is released right here
+        Future<?> task;
+        try {
+            task = aiExecutor.submit(() -> {
+                try {
+                    result.setResult(executeCommand(consumerId, command));
+                } catch (Exception e) {
+                    logger.error("Unexpected error processing wishlist command for consumer {}", consumerId, e);
+                    result.setErrorResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred."));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("AI executor saturated, rejecting wishlist command for consumer {}", consumerId);
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "2")
+                    .body("The assistant is busy right now. Please try again in a moment."));
+            return result;
         }
 
-        logger.info("Received wishlist command: \"{}\" for consumer ID: {}", request.getCommand(), consumerId);
+        result.onTimeout(() -> {
+            task.cancel(true); // interrupt the worker so the slot frees up for queued commands
+            logger.warn("Wishlist command for consumer {} exceeded the {} ms deadline", consumerId, requestDeadlineMs);
+            result.setErrorResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("The assistant took too long to respond. Please try again."));
+        });
+        return result;
+    }
 
-        ParsedCommand parsedCommand = openAiService.analyzeWishlistCommandStructured(request.getCommand());
+    private ResponseEntity<?> executeCommand(Long consumerId, String command) {
+        ParsedCommand parsedCommand = openAiService.analyzeWishlistCommandStructured(command);
 
         NlpWishlistResponse response = new NlpWishlistResponse();
 
@@ -84,7 +133,7 @@ public class NlpWishlistController {
         
         String intent = parsedCommand.getIntent();
         String itemQuery = parsedCommand.getItemQuery();
-        logger.info("AI Parsed Intent: {}, Item Query: {}", intent, itemQuery);
+        logger.info("AI Parsed Intent: {}, Item Query: {}, Filter: {}", intent, itemQuery, parsedCommand.getFilter());
 
         response.setSuccess(false);
 
@@ -110,11 +159,20 @@ public class NlpWishlistController {
                     break;
 
                 case "remove":
+                    if (parsedCommand.hasFilter()) {
+                        List<Tag> removed = wishlistService.filterWishlist(consumerId,
+                                WishlistFilter.compile(parsedCommand.getFilter()), true);
+                        response.setMessage(removed.isEmpty()
+                                ? "Nothing in your wishlist matches that."
+                                : "Removed " + removed.size() + " item(s) from your wishlist.");
+                        response.setSuccess(true);
+                        break;
+                    }
                      if (itemQuery.isEmpty()) {
                         response.setMessage("Please specify which item to remove.");
                         break;
                     }
-                    List<Tag> currentWishlist = wishlistService.getWishlistTags(consumerId);
+                    List<Tag> currentWishlist = wishlistService.getWishlistSummary(consumerId);
                     List<Tag> tagsToRemove = currentWishlist.stream()
                             .filter(tag -> (tag.getName() != null && tag.getName().toLowerCase().contains(itemQuery.toLowerCase())))
                             .collect(java.util.stream.Collectors.toList());
@@ -135,7 +193,14 @@ public class NlpWishlistController {
                 case "view":
                 case "list":
                 case "show":
-                    response.setWishlistItems(wishlistService.getWishlistTags(consumerId));
+                    if (parsedCommand.hasFilter()) {
+                        response.setWishlistItems(wishlistService.filterWishlist(consumerId,
+                                WishlistFilter.compile(parsedCommand.getFilter()), false));
+                        response.setMessage("Here are the matching items in your wishlist.");
+                        response.setSuccess(true);
+                        break;
+                    }
+                    response.setWishlistItems(wishlistService.getWishlistSummary(consumerId));
                     response.setMessage("Here is your current wishlist.");
                     response.setSuccess(true);
                     break;
@@ -160,7 +225,7 @@ public class NlpWishlistController {
         }
         
         if(response.isSuccess() && response.getWishlistItems() == null && !intent.equalsIgnoreCase("clear")) {
-             response.setWishlistItems(wishlistService.getWishlistTags(consumerId));
+             response.setWishlistItems(wishlistService.getWishlistSummary(consumerId));
         }
 
         return ResponseEntity.ok(response);
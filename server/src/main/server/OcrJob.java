@@ -0,0 +1,74 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An asynchronous OCR upload. The image bytes are kept until the job finishes so a queued or
+ * interrupted job can be picked up again after a restart; rows expire after a few days.
+ */
+@Table("ocr_job")
+public class OcrJob {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+
+    @PrimaryKey("job_id")
+    private UUID jobId;
+
+    private String status;
+
+    private int attempts;
+
+    private ByteBuffer image; // cleared once the job reaches DONE or FAILED
+
+    @Column("result_id")
+    private UUID resultId; // product_details row on success
+
+    private String error;
+
+    @Column("created_at")
+    private Instant createdAt;
+
+    @Column("updated_at")
+    private Instant updatedAt;
+
+    @Column("not_before")
+    private Instant notBefore; // retry backoff
+
+    @Column("lease_id")
+    private UUID leaseId; // fences the worker that currently holds the job
+
+    @Column("lease_until")
+    private Instant leaseUntil; // a RUNNING job past this is presumed abandoned
+
+    public OcrJob() {}
+
+    public static OcrJob queued(byte[] image) {
+        OcrJob job = new OcrJob();
+        Instant now = Instant.now();
+        job.jobId = UUID.randomUUID();
+        job.status = Status.QUEUED.name();
+        job.image = ByteBuffer.wrap(image);
+        job.createdAt = now;
+        job.updatedAt = now;
+        job.notBefore = now;
+        return job;
+    }
+
+    public UUID getJobId() { return jobId; }
+    public String getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public ByteBuffer getImage() { return image; }
+    public UUID getResultId() { return resultId; }
+    public String getError() { return error; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getUpdatedAt() { return updatedAt; }
+    public Instant getNotBefore() { return notBefore; }
+    public UUID getLeaseId() { return leaseId; }
+    public Instant getLeaseUntil() { return leaseUntil; }
+}
@@ -0,0 +1,11 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface OcrJobRepository extends CassandraRepository<OcrJob, UUID> {
+    // State transitions are conditional (LWT) updates in OcrJobService
+}
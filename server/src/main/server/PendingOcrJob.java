@@ -0,0 +1,46 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Index of the ocr_job rows that still need a worker (QUEUED or RUNNING), spread over a fixed
+ * number of buckets so the sweeper reads a few small partitions instead of the whole job table.
+ * due_at is when the job may next be picked up: its retry backoff while queued, its lease expiry
+ * while running. ocr_job stays the source of truth; a stale row here only costs a wasted lookup.
+ */
+@Table("ocr_job_pending")
+public class PendingOcrJob {
+
+    public static final int BUCKETS = 16;
+
+    @PrimaryKeyColumn(name = "bucket", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private int bucket;
+
+    @PrimaryKeyColumn(name = "job_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+    private UUID jobId;
+
+    @Column("due_at")
+    private Instant dueAt;
+
+    public PendingOcrJob() {}
+
+    public PendingOcrJob(UUID jobId, Instant dueAt) {
+        this.bucket = bucketOf(jobId);
+        this.jobId = jobId;
+        this.dueAt = dueAt;
+    }
+
+    public static int bucketOf(UUID jobId) {
+        return Math.floorMod(jobId.hashCode(), BUCKETS);
+    }
+
+    public int getBucket() { return bucket; }
+    public UUID getJobId() { return jobId; }
+    public Instant getDueAt() { return dueAt; }
+}
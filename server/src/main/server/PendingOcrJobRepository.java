@@ -0,0 +1,19 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PendingOcrJobRepository extends CassandraRepository<PendingOcrJob, MapId> {
+
+    @Query("SELECT * FROM ocr_job_pending WHERE bucket = ?0")
+    List<PendingOcrJob> findByBucket(int bucket);
+
+    @Query("DELETE FROM ocr_job_pending WHERE bucket = ?0 AND job_id = ?1")
+    void deleteEntry(int bucket, UUID jobId);
+}
@@ -0,0 +1,31 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKey;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Maps the SHA-256 of an uploaded image to the ProductDetails its OCR produced. */
+@Table("product_hash")
+public class ProductHash {
+
+    @PrimaryKey
+    private String sha256; // lowercase hex
+
+    @Column("product_id")
+    private UUID productId;
+
+    @Column("created_at")
+    private Instant createdAt;
+
+    public String getSha256() { return sha256; }
+    public void setSha256(String sha256) { this.sha256 = sha256; }
+
+    public UUID getProductId() { return productId; }
+    public void setProductId(UUID productId) { this.productId = productId; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
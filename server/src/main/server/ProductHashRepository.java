@@ -0,0 +1,9 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductHashRepository extends CassandraRepository<ProductHash, String> {
+    // New mappings are written with INSERT ... IF NOT EXISTS in OcrResultCache
+}
@@ -0,0 +1,34 @@
+package com.knowMoreQR.server;
+
+import java.util.UUID;
+
+/**
+ * Published after a tag is created, updated or deleted so in-memory indexes
+ * (search, fuzzy matching, id filters...) can update incrementally instead of rescanning Cassandra.
+ */
+public class TagChangedEvent {
+
+    public enum Type { SAVED, DELETED }
+
+    private final Type type;
+    private final UUID tagId;
+    private final Tag tag; // null for DELETED
+
+    private TagChangedEvent(Type type, UUID tagId, Tag tag) {
+        this.type = type;
+        this.tagId = tagId;
+        this.tag = tag;
+    }
+
+    public static TagChangedEvent saved(Tag tag) {
+        return new TagChangedEvent(Type.SAVED, tag.getId(), tag);
+    }
+
+    public static TagChangedEvent deleted(UUID tagId) {
+        return new TagChangedEvent(Type.DELETED, tagId, null);
+    }
+
+    public Type getType() { return type; }
+    public UUID getTagId() { return tagId; }
+    public Tag getTag() { return tag; }
+}
@@ -0,0 +1,31 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.util.UUID;
+
+/**
+ * Reverse index of wishlist_by_consumer: which consumers saved a tag, so a tag edit can find
+ * the wishlist rows that hold a copy of its summary.
+ */
+@Table("consumers_by_tag")
+public class TagConsumer {
+
+    @PrimaryKeyColumn(name = "tag_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private UUID tagId;
+
+    @PrimaryKeyColumn(name = "consumer_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+    private Long consumerId;
+
+    public TagConsumer() {}
+
+    public TagConsumer(UUID tagId, Long consumerId) {
+        this.tagId = tagId;
+        this.consumerId = consumerId;
+    }
+
+    public UUID getTagId() { return tagId; }
+    public Long getConsumerId() { return consumerId; }
+}
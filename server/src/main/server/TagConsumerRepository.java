@@ -0,0 +1,22 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TagConsumerRepository extends CassandraRepository<TagConsumer, MapId> {
+
+    @Query("SELECT * FROM consumers_by_tag WHERE tag_id = ?0")
+    List<TagConsumer> findByTagId(UUID tagId);
+
+    @Query("DELETE FROM consumers_by_tag WHERE tag_id = ?0 AND consumer_id = ?1")
+    void deleteEntry(UUID tagId, Long consumerId);
+
+    @Query("DELETE FROM consumers_by_tag WHERE tag_id = ?0")
+    void deletePartition(UUID tagId);
+}
@@ -1,12 +1,14 @@
 package com.knowMoreQR.server;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import com.knowMoreQR.server.auth.CustomUserDetails;
+import com.knowMoreQR.server.service.RecommendationService;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import java.util.stream.Collectors;
@@ -23,6 +25,12 @@ public class TagController {
     @Autowired
     private TagRepository tagRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private RecommendationService recommendationService;
+
     @GetMapping
     public ResponseEntity<List<Tag>> all() {
         List<Tag> tags = tagRepository.findAll();
@@ -39,22 +47,39 @@ public class TagController {
         }
     }
 
+    // "Saved together" recommendations; sustainable=true favours greener alternatives
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<Tag>> similar(@PathVariable("id") UUID id,
+                                             @RequestParam(value = "limit", defaultValue = "10") int limit,
+                                             @RequestParam(value = "sustainable", defaultValue = "false") boolean sustainable) {
+        if (limit < 1 || limit > 50) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(recommendationService.similar(id, limit, sustainable));
+    }
+
     @PostMapping
     public ResponseEntity<Tag> create(@RequestBody Tag newTag) {
         newTag.setId(UUID.randomUUID());
-        
+        newTag.setSaves(0); // counted by SaveCountRelay, not the client
+
         Tag savedTag = tagRepository.save(newTag);
+        eventPublisher.publishEvent(TagChangedEvent.saved(savedTag));
         return ResponseEntity.status(HttpStatus.CREATED).body(savedTag);
     }
 
     @PutMapping("/{id}")
     public ResponseEntity<Tag> update(@PathVariable("id") UUID id, @RequestBody Tag updatedTag) {
-        if (!tagRepository.existsById(id)) {
+        Optional<Tag> existing = tagRepository.findById(id);
+        if (existing.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         updatedTag.setId(id);
-        
+        // saves belongs to SaveCountRelay; keep the stored count instead of whatever the client sent
+        updatedTag.setSaves(existing.get().getSaves());
+
         Tag savedTag = tagRepository.save(updatedTag);
+        eventPublisher.publishEvent(TagChangedEvent.saved(savedTag));
         return ResponseEntity.ok(savedTag);
     }
 
@@ -64,6 +89,7 @@ public class TagController {
             return ResponseEntity.notFound().build();
         }
         tagRepository.deleteById(id);
+        eventPublisher.publishEvent(TagChangedEvent.deleted(id));
         return ResponseEntity.noContent().build();
     }
 
@@ -0,0 +1,135 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.cql.PrimaryKeyType;
+import org.springframework.data.cassandra.core.mapping.Column;
+import org.springframework.data.cassandra.core.mapping.PrimaryKeyColumn;
+import org.springframework.data.cassandra.core.mapping.Table;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Denormalized wishlist row: the consumer's saved tag plus the tag summary fields a wishlist view
+ * needs, and the few more the wishlist filter language reads (materials, every colourway). One
+ * partition per consumer, so showing or filtering a wishlist is a single partition read with no
+ * MySQL / Cassandra join. Maintained by WishlistReadModel.
+ *
+ * A materialized partition also holds one marker row (tag {@link #MATERIALIZED}), so a wishlist that
+ * is really empty can be told from one that was never built or was dropped.
+ */
+@Table("wishlist_by_consumer")
+public class WishlistEntry {
+
+    public static final UUID MATERIALIZED = new UUID(0L, 0L);
+
+    @PrimaryKeyColumn(name = "consumer_id", ordinal = 0, type = PrimaryKeyType.PARTITIONED)
+    private Long consumerId;
+
+    @PrimaryKeyColumn(name = "tag_id", ordinal = 1, type = PrimaryKeyType.CLUSTERED)
+    private UUID tagId;
+
+    @Column("added_at")
+    private Instant addedAt;
+
+    private String name;
+    private String series;
+
+    @Column("unit_price")
+    private double unitPrice;
+
+    @Column("sale_price")
+    private double salePrice;
+
+    private String materials;
+    private List<String> colours; // first entry of each colourway, "" for an empty one
+    private String thumbnail;     // first media entry
+
+    @Column("carbon_footprint")
+    private double carbonFootprint;
+
+    @Column("water_usage")
+    private double waterUsage;
+
+    @Column("recycled_content_percent")
+    private double recycledContentPercent;
+
+    public WishlistEntry() {}
+
+    public static WishlistEntry of(Long consumerId, Tag tag, Instant addedAt) {
+        WishlistEntry entry = new WishlistEntry();
+        entry.consumerId = consumerId;
+        entry.tagId = tag.getId();
+        entry.addedAt = addedAt;
+        entry.name = tag.getName();
+        entry.series = tag.getSeries();
+        entry.unitPrice = tag.getUnitPrice();
+        entry.salePrice = tag.getSalePrice();
+        entry.materials = tag.getMaterials();
+        List<String> colours = new ArrayList<>();
+        if (tag.getColourways() != null) {
+            for (String[] colourway : tag.getColourways()) {
+                colours.add(colourway != null && colourway.length > 0 && colourway[0] != null ? colourway[0] : "");
+            }
+        }
+        entry.colours = colours;
+        String[] media = tag.getMedia();
+        entry.thumbnail = media != null && media.length > 0 ? media[0] : null;
+        entry.carbonFootprint = tag.getCarbonFootprint();
+        entry.waterUsage = tag.getWaterUsage();
+        entry.recycledContentPercent = tag.getRecycledContentPercent();
+        return entry;
+    }
+
+    /** The marker row for a materialized partition; it carries no tag fields. */
+    public static WishlistEntry materialized(Long consumerId) {
+        WishlistEntry marker = new WishlistEntry();
+        marker.consumerId = consumerId;
+        marker.tagId = MATERIALIZED;
+        return marker;
+    }
+
+    public boolean isMarker() { return MATERIALIZED.equals(tagId); }
+
+    /** Partial Tag carrying just the summary fields, for responses typed as List<Tag>. */
+    public Tag toTag() {
+        Tag tag = new Tag();
+        tag.setId(tagId);
+        tag.setName(name);
+        tag.setSeries(series);
+        tag.setUnitPrice(unitPrice);
+        tag.setSalePrice(salePrice);
+        String colour = getColour();
+        if (colour != null) {
+            tag.setColourways(new String[][] {{colour}});
+        }
+        if (thumbnail != null) {
+            tag.setMedia(new String[] {thumbnail});
+        }
+        tag.setCarbonFootprint(carbonFootprint);
+        tag.setWaterUsage(waterUsage);
+        tag.setRecycledContentPercent(recycledContentPercent);
+        return tag;
+    }
+
+    public Long getConsumerId() { return consumerId; }
+    public UUID getTagId() { return tagId; }
+    public Instant getAddedAt() { return addedAt; }
+    public String getName() { return name; }
+    public String getSeries() { return series; }
+    public double getUnitPrice() { return unitPrice; }
+    public double getSalePrice() { return salePrice; }
+    public String getMaterials() { return materials; }
+    public List<String> getColours() { return colours == null ? List.of() : colours; }
+    public String getThumbnail() { return thumbnail; }
+    public double getCarbonFootprint() { return carbonFootprint; }
+    public double getWaterUsage() { return waterUsage; }
+    public double getRecycledContentPercent() { return recycledContentPercent; }
+
+    /** First colour of the first colourway, or null. */
+    public String getColour() {
+        List<String> all = getColours();
+        return all.isEmpty() || all.get(0).isEmpty() ? null : all.get(0);
+    }
+}
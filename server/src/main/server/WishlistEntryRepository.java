@@ -0,0 +1,30 @@
+package com.knowMoreQR.server;
+
+import org.springframework.data.cassandra.core.mapping.MapId;
+import org.springframework.data.cassandra.repository.CassandraRepository;
+import org.springframework.data.cassandra.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface WishlistEntryRepository extends CassandraRepository<WishlistEntry, MapId> {
+
+    // Whole wishlist = one partition
+    @Query("SELECT * FROM wishlist_by_consumer WHERE consumer_id = ?0")
+    List<WishlistEntry> findByConsumerId(Long consumerId);
+
+    // One tag's row across many wishlists (IN on the partition key; keep the list to a chunk)
+    @Query("SELECT * FROM wishlist_by_consumer WHERE consumer_id IN ?0 AND tag_id = ?1")
+    List<WishlistEntry> findEntries(List<Long> consumerIds, UUID tagId);
+
+    @Query("DELETE FROM wishlist_by_consumer WHERE consumer_id = ?0 AND tag_id = ?1")
+    void deleteEntry(Long consumerId, UUID tagId);
+
+    @Query("DELETE FROM wishlist_by_consumer WHERE consumer_id IN ?0 AND tag_id = ?1")
+    void deleteEntries(List<Long> consumerIds, UUID tagId);
+
+    @Query("DELETE FROM wishlist_by_consumer WHERE consumer_id = ?0")
+    void deletePartition(Long consumerId);
+}
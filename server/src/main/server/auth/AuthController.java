@@ -3,17 +3,32 @@ package com.knowMoreQR.server.auth;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 import com.knowMoreQR.server.config.JwtUtil;
+import com.knowMoreQR.server.service.RefreshTokenService;
+import com.knowMoreQR.server.service.TokenDenylist;
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import javax.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
+
     @Autowired
     private ConsumerLoginRepository consumerRepo;
 
@@ -26,46 +41,134 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private TokenDenylist tokenDenylist;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+
+    @Autowired
+    @Qualifier("authExecutor")
+    private ThreadPoolTaskExecutor authExecutor;
+
+    @Autowired
+    @Qualifier("registrationExecutor")
+    private ThreadPoolTaskExecutor registrationExecutor;
+
+    // Covers time queued on the bcrypt pool plus the bcrypt work itself
+    @Value("${auth.login.deadline-ms:5000}")
+    private long authDeadlineMs;
+
     @PostMapping("/consumer/login")
-    public ResponseEntity<?> consumerLogin(@RequestBody LoginRequest request) {
-        Optional<ConsumerLogin> consumerOpt = consumerRepo.findByEmail(request.getEmail());
-        if (consumerOpt.isPresent()) {
-            ConsumerLogin consumer = consumerOpt.get();
-            if (passwordEncoder.matches(request.getPassword(), consumer.getPasswordHash())) {
-                String token = jwtUtil.generateToken(consumer.getEmail(), "consumer", consumer.getId());
+    public DeferredResult<ResponseEntity<?>> consumerLogin(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        if (!loginRateLimiter.tryAcquire(httpRequest.getRemoteAddr(), request.getEmail())) {
+            return tooManyAttempts("Too many login attempts, try again later.");
+        }
+        return onExecutor(authExecutor, () -> checkConsumerLogin(request));
+    }
+
+    @PostMapping("/company/login")
+    public DeferredResult<ResponseEntity<?>> companyLogin(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        if (!loginRateLimiter.tryAcquire(httpRequest.getRemoteAddr(), request.getEmail())) {
+            return tooManyAttempts("Too many login attempts, try again later.");
+        }
+        return onExecutor(authExecutor, () -> checkCompanyLogin(request));
+    }
+
+    @PostMapping("/consumer/register")
+    public DeferredResult<ResponseEntity<?>> registerConsumer(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        if (!loginRateLimiter.tryAcquireRegistration(httpRequest.getRemoteAddr())) {
+            return tooManyAttempts("Too many registrations, try again later.");
+        }
+        return onExecutor(registrationExecutor, () -> doRegisterConsumer(request));
+    }
+
+    @PostMapping("/company/register")
+    public DeferredResult<ResponseEntity<?>> registerCompany(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        if (!loginRateLimiter.tryAcquireRegistration(httpRequest.getRemoteAddr())) {
+            return tooManyAttempts("Too many registrations, try again later.");
+        }
+        return onExecutor(registrationExecutor, () -> doRegisterCompany(request));
+    }
+
+    /**
+     * Runs password work on a bounded bcrypt pool so the request thread is released right away.
+     * A full pool answers 503 instead of queueing without limit.
+     */
+    private DeferredResult<ResponseEntity<?>> onExecutor(ThreadPoolTaskExecutor executor, Supplier<ResponseEntity<?>> work) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(authDeadlineMs,
+                ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Authentication is busy, please retry."));
+        try {
+            executor.execute(() -> {
+                try {
+                    result.setResult(work.get());
+                } catch (Exception e) {
+                    logger.error("Authentication request failed", e);
+                    result.setErrorResult(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("An unexpected error occurred."));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Auth executor saturated, rejecting request");
+            result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Authentication is busy, please retry."));
+        }
+        return result;
+    }
+
+    private static DeferredResult<ResponseEntity<?>> tooManyAttempts(String message) {
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>();
+        result.setResult(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "60")
+                .body(message));
+        return result;
+    }
+
+    private ResponseEntity<?> checkConsumerLogin(LoginRequest request) {
+        Optional<CustomUserDetails> accountOpt = userDetailsService.findAccount(request.getEmail(), "consumer");
+        if (accountOpt.isPresent()) {
+            CustomUserDetails account = accountOpt.get();
+            if (passwordEncoder.matches(request.getPassword(), account.getPassword())) {
+                String token = jwtUtil.generateToken(account.getUsername(), "consumer", account.getUserId());
 
                 Map<String, Object> response = new HashMap<>();
-                response.put("id", consumer.getId());
-                response.put("email", consumer.getEmail());
+                response.put("id", account.getUserId());
+                response.put("email", account.getUsername());
                 response.put("userType", "consumer");
                 response.put("token", token);
+                response.put("refreshToken", refreshTokenService.issue(account.getUserId(), "consumer", account.getUsername()));
                 return ResponseEntity.ok(response);
             }
         }
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
     }
 
-    @PostMapping("/company/login")
-    public ResponseEntity<?> companyLogin(@RequestBody LoginRequest request) {
-        Optional<CompanyLogin> companyOpt = companyRepo.findByEmail(request.getEmail());
-        if (companyOpt.isPresent()) {
-            CompanyLogin company = companyOpt.get();
-            if (passwordEncoder.matches(request.getPassword(), company.getPasswordHash())) {
-                String token = jwtUtil.generateToken(company.getEmail(), "company", company.getId());
+    private ResponseEntity<?> checkCompanyLogin(LoginRequest request) {
+        Optional<CustomUserDetails> accountOpt = userDetailsService.findAccount(request.getEmail(), "company");
+        if (accountOpt.isPresent()) {
+            CustomUserDetails account = accountOpt.get();
+            if (passwordEncoder.matches(request.getPassword(), account.getPassword())) {
+                String token = jwtUtil.generateToken(account.getUsername(), "company", account.getUserId());
 
                 Map<String, Object> response = new HashMap<>();
-                response.put("id", company.getId());
-                response.put("email", company.getEmail());
+                response.put("id", account.getUserId());
+                response.put("email", account.getUsername());
                 response.put("userType", "company");
                 response.put("token", token);
+                response.put("refreshToken", refreshTokenService.issue(account.getUserId(), "company", account.getUsername()));
                 return ResponseEntity.ok(response);
             }
         }
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid credentials");
     }
     
-    @PostMapping("/consumer/register")
-    public ResponseEntity<?> registerConsumer(@RequestBody LoginRequest request) {
+    private ResponseEntity<?> doRegisterConsumer(LoginRequest request) {
         if (consumerRepo.findByEmail(request.getEmail()).isPresent()) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Email already registered");
         }
@@ -75,12 +178,12 @@ public class AuthController {
         consumer.setName(request.getName() != null ? request.getName() : "Consumer User");
         consumer.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         ConsumerLogin savedConsumer = consumerRepo.save(consumer);
+        userDetailsService.evict(savedConsumer.getEmail());
         
         return ResponseEntity.status(HttpStatus.CREATED).body("Consumer registered successfully");
     }
     
-    @PostMapping("/company/register")
-    public ResponseEntity<?> registerCompany(@RequestBody LoginRequest request) {
+    private ResponseEntity<?> doRegisterCompany(LoginRequest request) {
         if (companyRepo.findByEmail(request.getEmail()).isPresent()) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body("Email already registered");
         }
@@ -90,7 +193,45 @@ public class AuthController {
         company.setName(request.getName() != null ? request.getName() : "Company User");
         company.setPasswordHash(passwordEncoder.encode(request.getPassword()));
         CompanyLogin savedCompany = companyRepo.save(company);
+        userDetailsService.evict(savedCompany.getEmail());
         
         return ResponseEntity.status(HttpStatus.CREATED).body("Company registered successfully");
     }
+
+    // Trades a refresh token for a new access token and a new refresh token; the old one is spent
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshRequest request) {
+        Optional<RefreshTokenService.Rotation> rotation =
+                refreshTokenService.rotate(request == null ? null : request.getRefreshToken());
+        if (rotation.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid refresh token");
+        }
+        RefreshTokenService.Rotation r = rotation.get();
+        Map<String, Object> response = new HashMap<>();
+        response.put("id", r.getUserId());
+        response.put("email", r.getEmail());
+        response.put("userType", r.getUserType());
+        response.put("token", jwtUtil.generateToken(r.getEmail(), r.getUserType(), r.getUserId()));
+        response.put("refreshToken", r.getRefreshToken());
+        return ResponseEntity.ok(response);
+    }
+
+    // Ends the session: revokes the refresh token's family and denylists the presented access token
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                    @RequestBody(required = false) RefreshRequest request) {
+        boolean hasAccessToken = authorization != null && authorization.startsWith("Bearer ");
+        String refreshToken = request == null ? null : request.getRefreshToken();
+        if (!hasAccessToken && refreshToken == null) {
+            return ResponseEntity.badRequest().body("Missing bearer token or refresh token");
+        }
+        if (hasAccessToken) {
+            Claims claims = jwtUtil.parseClaims(authorization.substring(7));
+            if (claims != null) {
+                tokenDenylist.revoke(claims.getId(), claims.getExpiration().toInstant());
+            }
+        }
+        refreshTokenService.revoke(refreshToken);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,8 +1,20 @@
 package com.knowMoreQR.server.auth;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 import java.util.Optional;
 
 public interface ConsumerLoginRepository extends JpaRepository<ConsumerLogin, Long> {
     Optional<ConsumerLogin> findByEmail(String email);
+
+    // Both login tables in one round-trip; each side is a unique-index lookup on email.
+    // Column names follow Hibernate's default naming (JpaConfig doesn't set a naming strategy).
+    @Query(value = "SELECT 'consumer' AS userType, id, email, passwordHash FROM consumer_login WHERE email = :email " +
+                   "UNION ALL " +
+                   "SELECT 'company' AS userType, id, email, passwordHash FROM company_login WHERE email = :email",
+           nativeQuery = true)
+    List<PrincipalRow> findPrincipalsByEmail(@Param("email") String email);
 }
@@ -0,0 +1,64 @@
+package com.knowMoreQR.server.auth;
+
+import com.knowMoreQR.server.service.KeyedRateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Login attempt limits per client IP and per email, checked before any database or bcrypt work.
+ * The IP limit absorbs one client spraying many accounts; the email limit absorbs many clients
+ * guessing one account. Registrations have their own, tighter per-IP limit, since each one costs a
+ * bcrypt hash and a row.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final KeyedRateLimiter byIp;
+    private final KeyedRateLimiter byEmail;
+    private final KeyedRateLimiter registrationsByIp;
+    private final Counter rejectedByIp;
+    private final Counter rejectedByEmail;
+    private final Counter rejectedRegistrations;
+
+    public LoginRateLimiter(@Value("${auth.login.ip.burst:20}") double ipBurst,
+                            @Value("${auth.login.ip.per-minute:60}") double ipPerMinute,
+                            @Value("${auth.login.email.burst:5}") double emailBurst,
+                            @Value("${auth.login.email.per-minute:10}") double emailPerMinute,
+                            @Value("${auth.register.ip.burst:5}") double registerBurst,
+                            @Value("${auth.register.ip.per-minute:5}") double registerPerMinute,
+                            @Value("${auth.login.max-keys:100000}") int maxKeys,
+                            MeterRegistry meterRegistry) {
+        this.byIp = new KeyedRateLimiter(ipBurst, ipPerMinute, maxKeys);
+        this.byEmail = new KeyedRateLimiter(emailBurst, emailPerMinute, maxKeys);
+        this.registrationsByIp = new KeyedRateLimiter(registerBurst, registerPerMinute, maxKeys);
+        this.rejectedByIp = meterRegistry.counter("auth.login.rate-limited", "key", "ip");
+        this.rejectedByEmail = meterRegistry.counter("auth.login.rate-limited", "key", "email");
+        this.rejectedRegistrations = meterRegistry.counter("auth.register.rate-limited", "key", "ip");
+    }
+
+    /** False if either limit is exhausted; the attempt should be refused without checking the password. */
+    public boolean tryAcquire(String clientIp, String email) {
+        if (!byIp.tryAcquire(clientIp)) {
+            rejectedByIp.increment();
+            return false;
+        }
+        if (email != null && !byEmail.tryAcquire(email.trim().toLowerCase(Locale.ROOT))) {
+            rejectedByEmail.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /** False if the client has registered too often lately; refuse before hashing anything. */
+    public boolean tryAcquireRegistration(String clientIp) {
+        if (!registrationsByIp.tryAcquire(clientIp)) {
+            rejectedRegistrations.increment();
+            return false;
+        }
+        return true;
+    }
+}
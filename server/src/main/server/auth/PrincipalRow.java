@@ -0,0 +1,11 @@
+package com.knowMoreQR.server.auth;
+
+/**
+ * One row of the consumer/company UNION used to resolve a login email, whichever table it's in.
+ */
+public interface PrincipalRow {
+    String getUserType(); // "consumer" or "company"
+    Long getId();
+    String getEmail();
+    String getPasswordHash();
+}
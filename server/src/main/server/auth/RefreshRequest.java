@@ -0,0 +1,11 @@
+package com.knowMoreQR.server.auth;
+
+public class RefreshRequest {
+    private String refreshToken;
+
+    public RefreshRequest() {}
+
+    // Getters and setters
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+}
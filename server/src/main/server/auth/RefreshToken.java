@@ -0,0 +1,69 @@
+package com.knowMoreQR.server.auth;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * A refresh token, stored only as its SHA-256 hash. Each use rotates it: the row is marked used and
+ * a successor in the same family is issued. Presenting a used token again means it was copied, so
+ * the whole family is revoked.
+ */
+@Entity
+@Table(name = "refresh_tokens",
+       indexes = {
+           @Index(name = "idx_refresh_family", columnList = "family_id"),
+           @Index(name = "idx_refresh_expires", columnList = "expires_at")
+       })
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "user_type", nullable = false, length = 16)
+    private String userType;
+
+    @Column(name = "email", nullable = false)
+    private String email;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "used_at")
+    private Instant usedAt; // set once rotated
+
+    @Column(name = "revoked_at")
+    private Instant revokedAt;
+
+    public RefreshToken() {}
+
+    public RefreshToken(String tokenHash, String familyId, Long userId, String userType, String email, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.familyId = familyId;
+        this.userId = userId;
+        this.userType = userType;
+        this.email = email;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getId() { return id; }
+    public String getTokenHash() { return tokenHash; }
+    public String getFamilyId() { return familyId; }
+    public Long getUserId() { return userId; }
+    public String getUserType() { return userType; }
+    public String getEmail() { return email; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public Instant getUsedAt() { return usedAt; }
+    public Instant getRevokedAt() { return revokedAt; }
+    public void setUsedAt(Instant usedAt) { this.usedAt = usedAt; }
+    public void setRevokedAt(Instant revokedAt) { this.revokedAt = revokedAt; }
+}
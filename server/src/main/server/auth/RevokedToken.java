@@ -0,0 +1,37 @@
+package com.knowMoreQR.server.auth;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * A JWT (by its jti) that must no longer be accepted. Rows are only needed until the token would
+ * have expired anyway, and are purged after that.
+ */
+@Entity
+@Table(name = "revoked_tokens",
+       indexes = @Index(name = "idx_revoked_expires", columnList = "expires_at"))
+public class RevokedToken {
+
+    @Id
+    @Column(name = "jti", length = 36)
+    private String jti;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "revoked_at", nullable = false)
+    private Instant revokedAt;
+
+    public RevokedToken() {
+    }
+
+    public RevokedToken(String jti, Instant expiresAt) {
+        this.jti = jti;
+        this.expiresAt = expiresAt;
+        this.revokedAt = Instant.now();
+    }
+
+    public String getJti() { return jti; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public Instant getRevokedAt() { return revokedAt; }
+}
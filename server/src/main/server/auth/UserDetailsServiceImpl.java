@@ -1,59 +1,108 @@
 package com.knowMoreQR.server.auth;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import com.knowMoreQR.server.service.BoundedTtlCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import com.knowMoreQR.server.auth.CustomUserDetails;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+/**
+ * Resolves a login email to its consumer and company accounts with one UNION query, behind a
+ * bounded TTL cache. Both the login endpoints and Spring Security go through here. Callers that
+ * change an account's email or password must {@link #evict} it.
+ */
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
 
-    @Autowired
-    private ConsumerLoginRepository consumerRepo;
+    private final ConsumerLoginRepository consumerRepo;
+    // every account registered under the email, consumer first
+    private final BoundedTtlCache<String, List<CustomUserDetails>> cache;
 
-    @Autowired
-    private CompanyLoginRepository companyRepo;
+    public UserDetailsServiceImpl(ConsumerLoginRepository consumerRepo,
+                                  @Value("${auth.principal-cache.max-size:10000}") int maxSize,
+                                  @Value("${auth.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.consumerRepo = consumerRepo;
+        this.cache = new BoundedTtlCache<>(maxSize, ttlSeconds * 1000L);
 
+        Gauge.builder("auth.principal.cache.size", cache, BoundedTtlCache::size).register(meterRegistry);
+        Gauge.builder("auth.principal.cache.hit.ratio", cache, BoundedTtlCache::getHitRatio).register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.hits", cache, BoundedTtlCache::getHitCount).register(meterRegistry);
+        FunctionCounter.builder("auth.principal.cache.misses", cache, BoundedTtlCache::getMissCount).register(meterRegistry);
+    }
+
+    // Read-write on purpose: a replica can lag a fresh registration or password change, and a
+    // stale row would be re-cached right after evict. This also keeps the repository's own
+    // readOnly default from routing the lookup to the replica.
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        Optional<ConsumerLogin> consumerOpt = consumerRepo.findByEmail(email);
-        if (consumerOpt.isPresent()) {
-            ConsumerLogin consumer = consumerOpt.get();
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.add(new SimpleGrantedAuthority("ROLE_CONSUMER"));
-            // Return CustomUserDetails with ID and type
-            return new CustomUserDetails(
-                    consumer.getId(),
-                    "consumer",
-                    consumer.getEmail(),
-                    consumer.getPasswordHash(),
-                    authorities
-            );
+        List<CustomUserDetails> accounts = accounts(email);
+        if (accounts.isEmpty()) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
         }
+        // an email registered as both resolves to the consumer, as before
+        return copyOf(accounts.get(0));
+    }
 
-        Optional<CompanyLogin> companyOpt = companyRepo.findByEmail(email);
-        if (companyOpt.isPresent()) {
-            CompanyLogin company = companyOpt.get();
-            List<GrantedAuthority> authorities = new ArrayList<>();
-            authorities.add(new SimpleGrantedAuthority("ROLE_COMPANY"));
-            // Return CustomUserDetails with ID and type
-            return new CustomUserDetails(
-                    company.getId(),
-                    "company",
-                    company.getEmail(),
-                    company.getPasswordHash(),
-                    authorities
-            );
+    /** The {@code userType} ("consumer" or "company") account registered under {@code email}, if any. */
+    @Transactional // on the primary, see loadUserByUsername
+    public Optional<CustomUserDetails> findAccount(String email, String userType) {
+        return accounts(email).stream()
+                .filter(a -> a.getUserType().equals(userType))
+                .findFirst()
+                .map(UserDetailsServiceImpl::copyOf);
+    }
+
+    private List<CustomUserDetails> accounts(String email) {
+        if (email == null) {
+            return List.of();
+        }
+        String key = key(email);
+        List<CustomUserDetails> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<CustomUserDetails> accounts = consumerRepo.findPrincipalsByEmail(email.trim()).stream()
+                .sorted(Comparator.comparing(r -> !"consumer".equals(r.getUserType())))
+                .map(r -> new CustomUserDetails(r.getId(), r.getUserType(), r.getEmail(), r.getPasswordHash(),
+                        List.<GrantedAuthority>of(new SimpleGrantedAuthority(
+                                "consumer".equals(r.getUserType()) ? "ROLE_CONSUMER" : "ROLE_COMPANY"))))
+                .collect(Collectors.toList());
+        if (!accounts.isEmpty()) {
+            // unknown emails aren't cached, so a registration shows up at once
+            cache.put(key, List.copyOf(accounts));
         }
+        return accounts;
+    }
+
+    /** Drops the cached account for {@code email}, e.g. after registration or a password change. */
+    public void evict(String email) {
+        if (email != null) {
+            cache.invalidate(key(email));
+        }
+    }
+
+    // MySQL's default collation matches emails case-insensitively, so "Ada@x" and " ada@x" share an entry
+    private static String key(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
 
-        throw new UsernameNotFoundException("User not found with email: " + email);
+    // Spring Security may erase the password on the instance it hands out, so never share the cached one
+    private static CustomUserDetails copyOf(CustomUserDetails d) {
+        return new CustomUserDetails(d.getUserId(), d.getUserType(), d.getUsername(), d.getPassword(), d.getAuthorities());
     }
-} 
\ No newline at end of file
+}
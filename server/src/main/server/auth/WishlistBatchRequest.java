@@ -0,0 +1,17 @@
+package com.knowMoreQR.server.auth;
+
+import java.util.List;
+import java.util.UUID;
+
+public class WishlistBatchRequest {
+    private List<UUID> add;    // tag ids to add
+    private List<UUID> remove; // tag ids to remove (applied first)
+
+    public WishlistBatchRequest() {}
+
+    // Getters and setters
+    public List<UUID> getAdd() { return add; }
+    public List<UUID> getRemove() { return remove; }
+    public void setAdd(List<UUID> add) { this.add = add; }
+    public void setRemove(List<UUID> remove) { this.remove = remove; }
+}
@@ -0,0 +1,14 @@
+package com.knowMoreQR.server.auth;
+
+public class WishlistFilterRequest {
+    private String filter; // e.g. "colour:blue and carbon:high"
+    private String action; // "list" (default) or "remove"
+
+    public WishlistFilterRequest() {}
+
+    // Getters and setters
+    public String getFilter() { return filter; }
+    public String getAction() { return action; }
+    public void setFilter(String filter) { this.filter = filter; }
+    public void setAction(String action) { this.action = action; }
+}
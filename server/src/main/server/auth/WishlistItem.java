@@ -6,7 +6,13 @@ import java.time.Instant;
 
 @Entity
 @Table(name = "wishlist_items",
-       uniqueConstraints = @UniqueConstraint(columnNames = {"consumer_id", "tag_id"})) // Prevent duplicate entries
+       uniqueConstraints = @UniqueConstraint(columnNames = {"consumer_id", "tag_id"}), // Prevent duplicate entries
+       indexes = {
+           // Serves keyset pagination (newest first) straight from the index
+           @Index(name = "idx_wishlist_consumer_added", columnList = "consumer_id, added_at, id"),
+           // Per-tag save counts for the outbox relay
+           @Index(name = "idx_wishlist_tag", columnList = "tag_id")
+       })
 public class WishlistItem {
 
     @Id
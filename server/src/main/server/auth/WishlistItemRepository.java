@@ -1,8 +1,15 @@
 package com.knowMoreQR.server.auth;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -13,9 +20,33 @@ public interface WishlistItemRepository extends JpaRepository<WishlistItem, Long
     // Find all items for a specific consumer
     List<WishlistItem> findByConsumerIdOrderByAddedAtDesc(Long consumerId);
 
+    // Keyset pagination, newest first; served by idx_wishlist_consumer_added
+    List<WishlistItem> findByConsumerIdOrderByAddedAtDescIdDesc(Long consumerId, Pageable pageable);
+
+    @Query("SELECT w FROM WishlistItem w WHERE w.consumerId = :consumerId " +
+           "AND (w.addedAt < :addedAt OR (w.addedAt = :addedAt AND w.id < :id)) " +
+           "ORDER BY w.addedAt DESC, w.id DESC")
+    List<WishlistItem> findPageBefore(@Param("consumerId") Long consumerId, @Param("addedAt") Instant addedAt,
+                                      @Param("id") Long id, Pageable pageable);
+
     // Find a specific item for a consumer by tagId
     Optional<WishlistItem> findByConsumerIdAndTagId(Long consumerId, UUID tagId);
 
+    // Same 16-byte big-endian layout Hibernate uses for UUID columns on MySQL
+    static byte[] uuidToBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID uuidFromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    List<WishlistItem> findByConsumerIdAndTagIdIn(Long consumerId, Collection<UUID> tagIds);
+
     // Check if an item exists
     boolean existsByConsumerIdAndTagId(Long consumerId, UUID tagId);
 
@@ -25,6 +56,31 @@ public interface WishlistItemRepository extends JpaRepository<WishlistItem, Long
     // Delete all items for a consumer
     void deleteByConsumerId(Long consumerId);
 
+    // Bulk clear in one statement, without loading the entities first
+    @Modifying
+    @Query("DELETE FROM WishlistItem w WHERE w.consumerId = :consumerId")
+    int deleteAllByConsumerIdInBulk(@Param("consumerId") Long consumerId);
+
+    // Tag ids only, no entity hydration
+    @Query("SELECT w.tagId FROM WishlistItem w WHERE w.consumerId = :consumerId")
+    List<UUID> findTagIdsByConsumerId(@Param("consumerId") Long consumerId);
+
+    @Query("SELECT w.tagId FROM WishlistItem w WHERE w.consumerId = :consumerId AND w.tagId IN :tagIds")
+    List<UUID> findTagIdsByConsumerIdAndTagIdIn(@Param("consumerId") Long consumerId, @Param("tagIds") Collection<UUID> tagIds);
+
+    // Bulk delete in one statement (the derived deleteBy* variants load then delete row by row)
+    @Modifying
+    @Query("DELETE FROM WishlistItem w WHERE w.consumerId = :consumerId AND w.tagId IN :tagIds")
+    int deleteByConsumerIdAndTagIdIn(@Param("consumerId") Long consumerId, @Param("tagIds") Collection<UUID> tagIds);
+
+    // [tagId, count] per tag; served by idx_wishlist_tag
+    @Query("SELECT w.tagId, COUNT(w) FROM WishlistItem w WHERE w.tagId IN :tagIds GROUP BY w.tagId")
+    List<Object[]> countByTagIdIn(@Param("tagIds") Collection<UUID> tagIds);
+
+    // Keyset scan over the whole table, for rebuilding derived in-memory indexes
+    @Query("SELECT w FROM WishlistItem w WHERE w.id > :afterId ORDER BY w.id")
+    List<WishlistItem> findPageAfter(@Param("afterId") Long afterId, Pageable pageable);
+
     // Could add methods to find items based on criteria from the Tag (requires joining or separate queries)
     // e.g., findByConsumerIdAndTag_Color(...) - This is complex as Tag is in Cassandra.
 } 
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.knowMoreQR.server.auth;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Outbox row written in the same transaction as a wishlist change, recording that a tag's
+ * save count needs re-syncing to Cassandra. Drained and deleted by the save-count relay.
+ */
+@Entity
+@Table(name = "wishlist_outbox")
+public class WishlistOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tag_id", nullable = false)
+    private UUID tagId;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public WishlistOutboxEvent() {
+        this.createdAt = Instant.now();
+    }
+
+    public WishlistOutboxEvent(UUID tagId) {
+        this.tagId = tagId;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() { return id; }
+    public UUID getTagId() { return tagId; }
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,22 @@
+package com.knowMoreQR.server.auth;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WishlistOutboxRepository extends JpaRepository<WishlistOutboxEvent, Long> {
+
+    // Oldest rows first; rows another relay instance has locked are skipped rather than waited on (MySQL 8)
+    @Query(value = "SELECT * FROM wishlist_outbox ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<WishlistOutboxEvent> lockOldest(@Param("limit") int limit);
+
+    @Modifying
+    @Query("DELETE FROM WishlistOutboxEvent e WHERE e.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,53 @@
+package com.knowMoreQR.server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AiExecutorConfig {
+
+    /**
+     * Dedicated pool for OpenAI-backed work so slow completions can't tie up Tomcat's
+     * request threads. The queue is bounded and overflow is rejected (AbortPolicy)
+     * instead of running on the caller, which lets the controller answer 503 right away.
+     */
+    @Bean(name = "aiExecutor")
+    public ThreadPoolTaskExecutor aiExecutor(
+            @Value("${ai.executor.core-size:4}") int coreSize,
+            @Value("${ai.executor.max-size:8}") int maxSize,
+            @Value("${ai.executor.queue-capacity:50}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ai-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs batched OpenAI completions for MicroBatcher. Sized to the AIMD limiter's ceiling so the
+     * limiter, not this pool, decides upstream concurrency. Kept apart from aiExecutor because the
+     * aiExecutor threads block waiting on these batches.
+     */
+    @Bean(name = "aiBatchExecutor")
+    public ThreadPoolTaskExecutor aiBatchExecutor(
+            @Value("${openai.limit.concurrency.max:32}") int maxConcurrency,
+            @Value("${openai.batch.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ai-batch-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,45 @@
+package com.knowMoreQR.server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AuthExecutorConfig {
+
+    /**
+     * Dedicated pool for login bcrypt checks. Each call burns tens of milliseconds of CPU, so a
+     * login burst on request threads would starve QR scans; here it is capped at a few cores, and
+     * overflow is rejected so the controller can answer 503 at once.
+     */
+    @Bean(name = "authExecutor")
+    public ThreadPoolTaskExecutor authExecutor(
+            @Value("${auth.executor.core-size:2}") int coreSize,
+            @Value("${auth.executor.max-size:4}") int maxSize,
+            @Value("${auth.executor.queue-capacity:100}") int queueCapacity) {
+        return bcryptExecutor(coreSize, maxSize, queueCapacity, "bcrypt-");
+    }
+
+    // Registration hashing gets its own small pool so a signup flood can't queue ahead of logins
+    @Bean(name = "registrationExecutor")
+    public ThreadPoolTaskExecutor registrationExecutor(
+            @Value("${auth.register.executor.size:1}") int size,
+            @Value("${auth.register.executor.queue-capacity:20}") int queueCapacity) {
+        return bcryptExecutor(size, size, queueCapacity, "bcrypt-register-");
+    }
+
+    static ThreadPoolTaskExecutor bcryptExecutor(int coreSize, int maxSize, int queueCapacity, String threadNamePrefix) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,8 +1,12 @@
 package com.knowMoreQR.server.config;
 
+import com.datastax.oss.driver.api.core.CqlSession;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.cassandra.config.AbstractCassandraConfiguration;
 import org.springframework.data.cassandra.config.SchemaAction;
+import org.springframework.data.cassandra.core.AsyncCassandraTemplate;
+import org.springframework.data.cassandra.core.convert.CassandraConverter;
 import org.springframework.data.cassandra.core.cql.keyspace.CreateKeyspaceSpecification;
 import org.springframework.data.cassandra.repository.config.EnableCassandraRepositories;
 
@@ -49,4 +53,10 @@ public class CassandraConfig extends AbstractCassandraConfiguration {
     public String[] getEntityBasePackages() {
         return new String[] {"com.knowMoreQR.server"};
     }
-} 
\ No newline at end of file
+
+    // Non-blocking inserts for batch uploads; shares the session and mapping with cassandraTemplate
+    @Bean
+    public AsyncCassandraTemplate asyncCassandraTemplate(CqlSession session, CassandraConverter converter) {
+        return new AsyncCassandraTemplate(session, converter);
+    }
+}
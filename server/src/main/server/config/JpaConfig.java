@@ -2,12 +2,17 @@ package com.knowMoreQR.server.config;
 
 import javax.sql.DataSource;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.env.Environment;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
@@ -28,14 +33,65 @@ public class JpaConfig {
     @Autowired
     private Environment env;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Hikari pools for the primary and (optionally) a read replica, behind a router that sends
+     * readOnly transactions to the replica. Without spring.datasource.replica.url everything goes
+     * to the primary.
+     */
     @Bean
     public DataSource jpaDataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName(env.getProperty("spring.datasource.driver-class-name"));
-        dataSource.setUrl(env.getProperty("spring.datasource.url"));
-        dataSource.setUsername(env.getProperty("spring.datasource.username"));
-        dataSource.setPassword(env.getProperty("spring.datasource.password"));
-        return dataSource;
+        HikariDataSource primary = pool("mysql-primary",
+                env.getProperty("spring.datasource.url"),
+                env.getProperty("spring.datasource.username"),
+                env.getProperty("spring.datasource.password"),
+                env.getProperty("db.pool.max-size", Integer.class, 20),
+                env.getProperty("db.pool.connection-timeout-ms", Long.class, 3000L));
+
+        String replicaUrl = env.getProperty("spring.datasource.replica.url", "");
+        if (replicaUrl.isBlank()) {
+            return primary;
+        }
+        HikariDataSource replica = pool("mysql-replica",
+                replicaUrl,
+                env.getProperty("spring.datasource.replica.username", env.getProperty("spring.datasource.username")),
+                env.getProperty("spring.datasource.replica.password", env.getProperty("spring.datasource.password")),
+                env.getProperty("db.pool.replica.max-size", Integer.class, 20),
+                // fail fast so a dead replica costs reads little before they fall back
+                env.getProperty("db.pool.replica.connection-timeout-ms", Long.class, 1000L));
+        replica.setReadOnly(true);
+        replica.setInitializationFailTimeout(-1); // start even if the replica is down
+
+        ReadWriteRoutingDataSource router = new ReadWriteRoutingDataSource(primary, replica,
+                env.getProperty("db.replica.retry-ms", Long.class, 30000L));
+        // the readOnly flag is set after the transaction manager asks for a connection, so defer picking one
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    private HikariDataSource pool(String name, String url, String username, String password,
+                                  int maxSize, long connectionTimeoutMs) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setDriverClassName(env.getProperty("spring.datasource.driver-class-name"));
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxSize);
+        config.setMinimumIdle(env.getProperty("db.pool.min-idle", Integer.class, Math.min(5, maxSize)));
+        config.setConnectionTimeout(connectionTimeoutMs);
+        config.setMaxLifetime(env.getProperty("db.pool.max-lifetime-ms", Long.class, 1_800_000L));
+        // log a stack trace for connections held longer than this (0 disables)
+        config.setLeakDetectionThreshold(env.getProperty("db.pool.leak-detection-ms", Long.class, 10_000L));
+        // Let Connector/J turn JDBC batches into multi-row INSERTs instead of one round-trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        // hikaricp.connections.* (active, idle, pending, acquire/usage timers) per pool
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
     }
 
     @Bean
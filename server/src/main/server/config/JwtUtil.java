@@ -7,8 +7,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import java.util.Date;
+import java.util.UUID;
 
 @Component
 public class JwtUtil {
@@ -18,11 +20,16 @@ public class JwtUtil {
     @Value("${jwt.secret}")
     private String jwtSecret;
 
-    @Value("${jwt.expirationMs}")
-    private int jwtExpirationMs;
+    // Access tokens are short-lived; sessions are kept going with refresh tokens
+    @Value("${jwt.access-expiration-ms:900000}")
+    private long jwtExpirationMs;
 
-    // Make signing key accessible to the filter
-    public SecretKey getSigningKey() {
+    // Built once: both are immutable and thread-safe
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
         byte[] keyBytes = jwtSecret.getBytes();
         if (keyBytes.length < 64) { 
             logger.warn("JWT Secret is potentially too short for HS512. Ensure it's strong and securely managed.");
@@ -30,38 +37,36 @@ public class JwtUtil {
             System.arraycopy(keyBytes, 0, paddedKey, 0, Math.min(keyBytes.length, paddedKey.length));
             keyBytes = paddedKey;
         }
-        return Keys.hmacShaKeyFor(keyBytes);
+        signingKey = Keys.hmacShaKeyFor(keyBytes);
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+    }
+
+    public SecretKey getSigningKey() {
+        return signingKey;
     }
 
     public String generateToken(String email, String userType, Long userId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtExpirationMs);
 
-        SecretKey key = getSigningKey();
-
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString()) // jti, so a single token can be revoked
                 .setSubject(email)
                 .claim("userId", userId)
                 .claim("userType", userType) // Add userType as a claim
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(key, SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public String getEmailFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject();
-    }
-
-    public boolean validateToken(String authToken) {
+    /**
+     * Verifies the signature and expiry and returns the claims, or null if the token isn't valid.
+     * This is the only parse a request needs.
+     */
+    public Claims parseClaims(String authToken) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
+            return parser.parseClaimsJws(authToken).getBody();
         } catch (MalformedJwtException ex) {
             logger.error("Invalid JWT token: {}", ex.getMessage());
         } catch (ExpiredJwtException ex) {
@@ -75,6 +80,14 @@ public class JwtUtil {
         } catch (Exception ex) { // Catch any other potential issues
             logger.error("JWT validation error: {}", ex.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    public String getEmailFromToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,68 @@
+package com.knowMoreQR.server.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends connections for {@code @Transactional(readOnly = true)} work to the replica and everything
+ * else to the primary. If the replica can't hand out a connection it is skipped for a cool-down
+ * period and reads go to the primary instead.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy: the read-only flag is only set once the
+ * transaction has begun, after the JPA transaction manager asked for its connection.
+ */
+class ReadWriteRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final long replicaRetryMillis;
+    private volatile long replicaDownUntil;
+
+    ReadWriteRoutingDataSource(DataSource primary, DataSource replica, long replicaRetryMillis) {
+        this.primary = primary;
+        this.replica = replica;
+        this.replicaRetryMillis = replicaRetryMillis;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (useReplica()) {
+            try {
+                return replica.getConnection();
+            } catch (SQLException e) {
+                markReplicaDown(e);
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (useReplica()) {
+            try {
+                return replica.getConnection(username, password);
+            } catch (SQLException e) {
+                markReplicaDown(e);
+            }
+        }
+        return primary.getConnection(username, password);
+    }
+
+    private boolean useReplica() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && System.currentTimeMillis() >= replicaDownUntil;
+    }
+
+    private void markReplicaDown(SQLException e) {
+        replicaDownUntil = System.currentTimeMillis() + replicaRetryMillis;
+        logger.warn("Read replica unavailable ({}), routing reads to the primary for {} ms", e.getMessage(), replicaRetryMillis);
+    }
+}
@@ -2,17 +2,21 @@ package com.knowMoreQR.server.config;
 
 import com.knowMoreQR.server.auth.UserDetailsServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.RegexRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -23,6 +27,13 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    /**
+     * Anonymous QR scan reads: GET /tags/{uuid} and /tags/{uuid}/similar. Not /tags/my-tags, which
+     * needs the caller's identity. The pattern sees the query string too, hence the optional tail.
+     */
+    static final RequestMatcher PUBLIC_SCAN_REQUESTS = new RegexRequestMatcher(
+            "^/tags/[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}(/similar)?(\\?.*)?$", "GET");
+
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
@@ -41,6 +52,13 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         return super.authenticationManagerBean();
     }
 
+    // Scans get an empty filter chain: no JWT parsing, security context or session handling.
+    // CORS for them comes from TagController's @CrossOrigin instead of the security chain.
+    @Override
+    public void configure(WebSecurity web) {
+        web.ignoring().requestMatchers(PUBLIC_SCAN_REQUESTS);
+    }
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http
@@ -68,6 +86,15 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         // http.headers().frameOptions().disable(); // Removed as H2 console is disabled
     }
 
+    // JwtRequestFilter is a @Component, so Boot would also register it on the servlet filter chain
+    // and run it for every request, ignored ones included. It only belongs in the security chain.
+    @Bean
+    public FilterRegistrationBean<JwtRequestFilter> jwtRequestFilterRegistration(JwtRequestFilter filter) {
+        FilterRegistrationBean<JwtRequestFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
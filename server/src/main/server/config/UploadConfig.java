@@ -0,0 +1,30 @@
+package com.knowMoreQR.server.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.MultipartConfigFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import javax.servlet.MultipartConfigElement;
+
+@Configuration
+public class UploadConfig {
+
+    /**
+     * Multipart limits for image uploads. Parts up to {@code file-size-threshold} stay in memory and
+     * are decoded straight from there; bigger ones are spooled to disk by the container. Anything
+     * over {@code max-file-size} is refused before it is read.
+     */
+    @Bean
+    public MultipartConfigElement multipartConfigElement(
+            @Value("${upload.max-file-size:10MB}") DataSize maxFileSize,
+            @Value("${upload.max-request-size:12MB}") DataSize maxRequestSize,
+            @Value("${upload.file-size-threshold:2MB}") DataSize fileSizeThreshold) {
+        MultipartConfigFactory factory = new MultipartConfigFactory();
+        factory.setMaxFileSize(maxFileSize);
+        factory.setMaxRequestSize(maxRequestSize);
+        factory.setFileSizeThreshold(fileSizeThreshold);
+        return factory.createMultipartConfig();
+    }
+}
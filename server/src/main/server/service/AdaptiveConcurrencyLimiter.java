@@ -0,0 +1,76 @@
+package com.knowMoreQR.server.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AIMD concurrency limit: grows by roughly one slot per "window" of fast calls and
+ * halves (by backoffRatio) whenever a call is slow or fails. Keeps the number of
+ * in-flight upstream calls close to what the upstream can currently absorb.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile double limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      long latencyThresholdMillis, double backoffRatio) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000L;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a slot taken by {@link #tryAcquire()} and feeds the observed latency back.
+     */
+    public void onSuccess(long latencyNanos) {
+        inFlight.decrementAndGet();
+        if (latencyNanos > latencyThresholdNanos) {
+            decrease();
+        } else {
+            increase();
+        }
+    }
+
+    /**
+     * Releases a slot after an error or timeout; treated like an overload signal.
+     */
+    public void onFailure() {
+        inFlight.decrementAndGet();
+        decrease();
+    }
+
+    private synchronized void increase() {
+        // additive increase: +1 per `limit` successful calls
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+
+    private synchronized void decrease() {
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    public int getInFlight() { return inFlight.get(); }
+    public int getLimit() { return (int) limit; }
+    public long getRejectedCount() { return rejected.get(); }
+}
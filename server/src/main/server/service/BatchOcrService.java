@@ -0,0 +1,333 @@
+package com.knowMoreQR.server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.knowMoreQR.server.ProductDetails;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * OCRs a whole collection of tag photos in one request. Entries are read one at a time straight
+ * from the upload (zip entries included, nothing is unpacked to disk), OCR'd in parallel on as many
+ * workers as there are Tesseract engines, saved with async inserts, and reported back as one NDJSON
+ * line per image in completion order.
+ *
+ * Each batch keeps at most two images per worker in flight, so the reader blocks instead of
+ * buffering the rest of the upload, and memory per batch stays at a handful of images.
+ */
+@Service
+public class BatchOcrService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchOcrService.class);
+
+    public static final MediaType NDJSON = MediaType.APPLICATION_NDJSON;
+
+    // sync uploads can briefly fill the engine queue; a batch waits for them rather than failing images
+    private static final int BUSY_RETRIES = 5;
+
+    private final ImageProcessingService imageProcessingService;
+    private final TesseractPool tesseractPool;
+    private final AsyncCassandraOperations asyncCassandraOperations;
+    private final OcrResultCache ocrResultCache;
+    private final ObjectMapper objectMapper;
+    private final int parallelism;
+    private final int maxConcurrentBatches;
+    private final int maxEntries;
+    private final long maxEntryBytes;
+    private final long timeoutMillis;
+
+    private final Counter images;
+    private final Counter failures;
+    private final Counter rejected;
+
+    private int workers;
+    private ExecutorService ocrWorkers;
+    private ThreadPoolExecutor readers;
+
+    public BatchOcrService(ImageProcessingService imageProcessingService,
+                           TesseractPool tesseractPool,
+                           AsyncCassandraOperations asyncCassandraOperations,
+                           OcrResultCache ocrResultCache,
+                           ObjectMapper objectMapper,
+                           @Value("${ocr.batch.parallelism:0}") int parallelism,
+                           @Value("${ocr.batch.max-concurrent:2}") int maxConcurrentBatches,
+                           @Value("${ocr.batch.max-entries:1000}") int maxEntries,
+                           @Value("${ocr.batch.max-entry-bytes:10485760}") long maxEntryBytes,
+                           @Value("${ocr.batch.timeout-ms:1800000}") long timeoutMillis,
+                           MeterRegistry meterRegistry) {
+        this.imageProcessingService = imageProcessingService;
+        this.tesseractPool = tesseractPool;
+        this.asyncCassandraOperations = asyncCassandraOperations;
+        this.ocrResultCache = ocrResultCache;
+        this.objectMapper = objectMapper;
+        this.parallelism = parallelism;
+        this.maxConcurrentBatches = Math.max(1, maxConcurrentBatches);
+        this.maxEntries = maxEntries;
+        this.maxEntryBytes = maxEntryBytes;
+        this.timeoutMillis = timeoutMillis;
+        this.images = meterRegistry.counter("ocr.batch.images");
+        this.failures = meterRegistry.counter("ocr.batch.failures");
+        this.rejected = meterRegistry.counter("ocr.batch.rejected");
+    }
+
+    @PostConstruct
+    public void start() {
+        // 0: one worker per engine that actually started (at least one, so errors still get reported)
+        workers = parallelism > 0 ? parallelism : Math.max(1, tesseractPool.size());
+        AtomicInteger workerCount = new AtomicInteger();
+        // unbounded queue, but each batch's window caps what it can put there
+        ocrWorkers = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "ocr-batch-" + workerCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger readerCount = new AtomicInteger();
+        readers = new ThreadPoolExecutor(maxConcurrentBatches, maxConcurrentBatches, 0, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), r -> {
+                    Thread t = new Thread(r, "ocr-batch-reader-" + readerCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void stop() {
+        readers.shutdownNow();
+        ocrWorkers.shutdownNow();
+    }
+
+    /** Produces the images of one batch; called once, on a reader thread. */
+    @FunctionalInterface
+    public interface ImageSource {
+        void forEach(ImageSink sink) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ImageSink {
+        /** @return false once the batch should stop reading (client gone, too many or oversized entries) */
+        boolean accept(String name, InputStream in) throws IOException;
+    }
+
+    /**
+     * Starts reading {@code source} in the background and returns the NDJSON stream of results.
+     *
+     * @throws RejectedException if {@code max-concurrent} batches are already running
+     */
+    public ResponseBodyEmitter submit(ImageSource source) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeoutMillis);
+        Batch batch = new Batch(emitter);
+        emitter.onTimeout(() -> batch.cancelled.set(true));
+        emitter.onError(e -> batch.cancelled.set(true));
+        try {
+            readers.execute(() -> batch.run(source));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new RejectedException("Too many batch uploads in progress");
+        }
+        return emitter;
+    }
+
+    /** Calls {@code sink} for each file entry of a zip stream, skipping folders and macOS metadata. */
+    public static void readZip(InputStream in, ImageSink sink) throws IOException {
+        ZipInputStream zip = new ZipInputStream(in);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            String name = entry.getName();
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            if (entry.isDirectory() || name.startsWith("__MACOSX/") || fileName.startsWith(".")) {
+                continue;
+            }
+            if (!sink.accept(name, zip)) {
+                return;
+            }
+        }
+    }
+
+    private final class Batch {
+        private final ResponseBodyEmitter emitter;
+        private final int window = 2 * workers;
+        private final Semaphore inFlight = new Semaphore(window);
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicInteger succeeded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private int submitted;
+        private String stoppedBecause; // reader thread only
+
+        Batch(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void run(ImageSource source) {
+            long start = System.nanoTime();
+            String error = null;
+            try {
+                source.forEach(this::accept);
+            } catch (IOException | RuntimeException e) {
+                // a truncated or corrupt zip: report it, keep the results we already have
+                error = "Could not read upload: " + e.getMessage();
+                logger.warn("Batch upload read failed after {} images: {}", submitted, e.getMessage());
+            }
+            try {
+                inFlight.acquire(window); // every submitted image has reported back
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                emitter.complete();
+                return;
+            }
+            if (stoppedBecause != null) {
+                error = stoppedBecause;
+            } else if (submitted >= maxEntries) {
+                error = "Stopped after " + maxEntries + " images";
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("done", true);
+            summary.put("total", submitted);
+            summary.put("succeeded", succeeded.get());
+            summary.put("failed", failed.get());
+            if (error != null) {
+                summary.put("error", error);
+            }
+            send(summary);
+            emitter.complete();
+            logger.info("Batch OCR of {} images ({} failed) took {} ms", submitted, failed.get(),
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+
+        private boolean accept(String name, InputStream in) throws IOException {
+            if (cancelled.get() || stoppedBecause != null || submitted >= maxEntries) {
+                return false;
+            }
+            int index = submitted++;
+            MessageDigest digest = OcrResultCache.sha256();
+            byte[] bytes = readBounded(new DigestInputStream(in, digest), maxEntryBytes); // not closed: in is the zip stream
+            if (bytes == null) {
+                // the rest of the entry is unread; skipping to the next one would inflate it all anyway
+                report(index, name, null, new IllegalArgumentException("File exceeds " + maxEntryBytes + " bytes"));
+                stoppedBecause = "Stopped at " + name + ", which exceeds " + maxEntryBytes + " bytes";
+                return false;
+            }
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.set(true);
+                return false;
+            }
+            // repeats (within this batch or of earlier uploads) come back from the cache without OCR
+            ocrResultCache.get(OcrResultCache.hex(digest.digest()), () ->
+                    CompletableFuture.supplyAsync(() -> extract(bytes), ocrWorkers)
+                            .thenCompose(details -> asyncCassandraOperations.insert(details).completable()))
+                    // report on a worker, not on the driver's I/O thread that finished the insert
+                    .whenCompleteAsync((details, e) -> {
+                        report(index, name, details, e);
+                        inFlight.release();
+                    }, ocrWorkers);
+            return true;
+        }
+
+        private void report(int index, String name, ProductDetails details, Throwable error) {
+            images.increment();
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", index);
+            line.put("name", name);
+            if (error == null) {
+                succeeded.incrementAndGet();
+                line.put("status", "ok");
+                line.put("product", details);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                failed.incrementAndGet();
+                failures.increment();
+                line.put("status", "error");
+                line.put("error", cause.getMessage());
+            }
+            send(line);
+        }
+
+        // send() is synchronized, so workers can report as they finish
+        private void send(Map<String, Object> line) {
+            if (cancelled.get()) {
+                return;
+            }
+            try {
+                emitter.send(objectMapper.writeValueAsString(line) + "\n", NDJSON);
+            } catch (IOException | IllegalStateException e) {
+                // client went away: stop reading, let in-flight images finish quietly
+                cancelled.set(true);
+            }
+        }
+    }
+
+    private ProductDetails extract(byte[] bytes) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return imageProcessingService.extractDetails(new ByteArrayInputStream(bytes));
+            } catch (TesseractPool.RejectedException e) {
+                if (attempt >= BUSY_RETRIES) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(200L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    // Reads at most limit bytes; null if the entry is bigger (e.g. a zip bomb), with the rest left unread
+    static byte[] readBounded(InputStream in, long limit) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            total += n;
+            if (total > limit) {
+                return null;
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
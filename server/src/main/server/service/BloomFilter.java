@@ -0,0 +1,103 @@
+package com.knowMoreQR.server.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over 64-bit hash pairs, with {@link UUID} and {@link String} helpers.
+ * "Might contain" answers can be false positives (at roughly the configured rate while under
+ * capacity); "does not contain" answers are always right. Entries can't be removed.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedInsertions;
+
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Need expectedInsertions > 0 and 0 < falsePositiveRate < 1");
+        }
+        // standard sizing: m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE - 8, (bits + 63) / 64);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void put(UUID id) {
+        put(mix(id.getMostSignificantBits()), mix(id.getLeastSignificantBits()));
+    }
+
+    public boolean mightContain(UUID id) {
+        return mightContain(mix(id.getMostSignificantBits()), mix(id.getLeastSignificantBits()));
+    }
+
+    public void put(String value) {
+        long h = fnv1a64(value);
+        put(h, mix(h));
+    }
+
+    public boolean mightContain(String value) {
+        long h = fnv1a64(value);
+        return mightContain(h, mix(h));
+    }
+
+    // Kirsch-Mitzenmacher: k indexes from two hashes as h1 + i*h2
+    private void put(long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = words.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    private boolean mightContain(long h1, long h2) {
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // splitmix64 finalizer; random UUIDs have fixed version bits, so spread them first
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long fnv1a64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+}
@@ -0,0 +1,166 @@
+package com.knowMoreQR.server.service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small size-bounded LRU cache where every entry also expires after a fixed TTL.
+ * Expiry is wall-clock based (epoch millis) so entries can be written to disk and
+ * reloaded after a restart without losing their remaining lifetime.
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedTtlCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        // accessOrder = true gives us LRU ordering for free
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > BoundedTtlCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.isExpired(System.currentTimeMillis())) {
+                // Left in place for getStale(); LRU eviction or purgeExpired() reclaims it
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    /**
+     * Returns the entry even if it has expired, without touching hit/miss stats.
+     * Meant for degraded-mode fallbacks where a stale answer beats no answer.
+     */
+    public V getStale(K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            return entry == null ? null : entry.value;
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, System.currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Inserts an entry with an explicit expiry, used when restoring a snapshot.
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        if (key == null || value == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Drops expired entries. Lookups already skip them, this just frees the memory.
+     */
+    public int purgeExpired() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<Entry<V>> it = entries.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isExpired(now)) {
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Copies the live entries (oldest access first) for persistence.
+     */
+    public List<Map.Entry<K, Entry<V>>> snapshot() {
+        long now = System.currentTimeMillis();
+        List<Map.Entry<K, Entry<V>>> copy = new ArrayList<>();
+        synchronized (entries) {
+            for (Map.Entry<K, Entry<V>> e : entries.entrySet()) {
+                if (!e.getValue().isExpired(now)) {
+                    copy.add(Map.entry(e.getKey(), e.getValue()));
+                }
+            }
+        }
+        return copy;
+    }
+
+    public long getHitCount() { return hits.get(); }
+    public long getMissCount() { return misses.get(); }
+    public long getEvictionCount() { return evictions.get(); }
+
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public static final class Entry<V> {
+        private final V value;
+        private final long expiresAtMillis;
+
+        Entry(V value, long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public V getValue() { return value; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+}
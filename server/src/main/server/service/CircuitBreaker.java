@@ -0,0 +1,76 @@
+package com.knowMoreQR.server.service;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Minimal consecutive-failure circuit breaker.
+ * CLOSED -> OPEN after {@code failureThreshold} failures in a row,
+ * OPEN -> HALF_OPEN once {@code openDurationMillis} has passed (a single probe call is let through),
+ * HALF_OPEN -> CLOSED on probe success, back to OPEN on probe failure.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAtNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = openDurationMillis * 1_000_000L;
+    }
+
+    public boolean tryAcquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN
+                && System.nanoTime() - openedAtNanos.get() >= openDurationNanos
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+            return true; // this caller is the probe
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        // a call admitted before the breaker tripped may finish late; only the probe closes it again
+        state.compareAndSet(State.HALF_OPEN, State.CLOSED);
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN) {
+            trip();
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            trip();
+        }
+    }
+
+    /**
+     * Hands back a permission that was granted but never used (e.g. a later limit rejected the call),
+     * so a half-open breaker doesn't wait forever for a probe result.
+     */
+    public void releasePermission() {
+        // openedAt is left untouched, so the next caller becomes the probe straight away
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    private void trip() {
+        openedAtNanos.set(System.nanoTime());
+        state.set(State.OPEN);
+    }
+
+    public State getState() { return state.get(); }
+    public long getRejectedCount() { return rejected.get(); }
+}
@@ -0,0 +1,229 @@
+package com.knowMoreQR.server.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sparse, symmetric tag co-occurrence matrix over consumer wishlists, maintained incrementally.
+ *
+ * Tags get dense int ids so each row is an {@link IntIntHashMap} of neighbour -> number of consumers
+ * who saved both. Neighbours are scored with cosine similarity, {@code c(i,j) / sqrt(n(i) * n(j))},
+ * so popular tags don't show up as "similar" to everything. Top-N lists are computed on first read
+ * and cached until a change touches the tag's row.
+ */
+class CoOccurrenceIndex {
+
+    /** One ranked neighbour. */
+    static final class Neighbour {
+        private final UUID tagId;
+        private final double score;
+        private final int coCount;
+
+        Neighbour(UUID tagId, double score, int coCount) {
+            this.tagId = tagId;
+            this.score = score;
+            this.coCount = coCount;
+        }
+
+        UUID getTagId() { return tagId; }
+        double getScore() { return score; }
+        int getCoCount() { return coCount; }
+    }
+
+    private final int topN;
+    private final int minCoCount;
+    private final int maxItemsPerConsumer;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> denseIds = new HashMap<>();
+    private final List<UUID> tagIds = new ArrayList<>();
+    private final List<IntIntHashMap> rows = new ArrayList<>();
+    private final IntIntHashMap popularity = new IntIntHashMap(1024); // consumers per tag
+    private final Map<Long, IntIntHashMap> consumerTags = new HashMap<>(); // used as int sets
+    private final Map<Integer, List<Neighbour>> topNCache = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxItemsPerConsumer wishlists beyond this size stop contributing new pairs; one huge
+     *                            (often scripted) wishlist would otherwise add O(n^2) noise
+     */
+    CoOccurrenceIndex(int topN, int minCoCount, int maxItemsPerConsumer) {
+        this.topN = topN;
+        this.minCoCount = minCoCount;
+        this.maxItemsPerConsumer = maxItemsPerConsumer;
+    }
+
+    /** Records that {@code consumerId} saved {@code tagId}. Idempotent. */
+    void add(long consumerId, UUID tagId) {
+        lock.writeLock().lock();
+        try {
+            int tag = denseId(tagId);
+            IntIntHashMap owned = consumerTags.computeIfAbsent(consumerId, k -> new IntIntHashMap());
+            if (owned.containsKey(tag) || owned.size() >= maxItemsPerConsumer) {
+                return;
+            }
+            IntIntHashMap row = rows.get(tag);
+            owned.forEach((other, ignored) -> {
+                row.addTo(other, 1);
+                rows.get(other).addTo(tag, 1);
+            });
+            owned.put(tag, 1);
+            popularity.addTo(tag, 1);
+            invalidate(tag, row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Reverses {@link #add}. Idempotent. */
+    void remove(long consumerId, UUID tagId) {
+        lock.writeLock().lock();
+        try {
+            Integer tag = denseIds.get(tagId);
+            IntIntHashMap owned = consumerTags.get(consumerId);
+            if (tag == null || owned == null || !owned.remove(tag)) {
+                return;
+            }
+            IntIntHashMap row = rows.get(tag);
+            invalidate(tag, row); // before the decrements, so neighbours that drop to 0 are included
+            owned.forEach((other, ignored) -> {
+                row.addTo(other, -1);
+                rows.get(other).addTo(tag, -1);
+            });
+            popularity.addTo(tag, -1);
+            if (owned.isEmpty()) {
+                consumerTags.remove(consumerId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // n(tag) changed, so every cosine score in its row changed too
+    private void invalidate(int tag, IntIntHashMap row) {
+        topNCache.remove(tag);
+        row.forEach((other, ignored) -> topNCache.remove(other));
+    }
+
+    private int denseId(UUID tagId) {
+        Integer id = denseIds.get(tagId);
+        if (id == null) {
+            id = tagIds.size();
+            denseIds.put(tagId, id);
+            tagIds.add(tagId);
+            rows.add(new IntIntHashMap());
+        }
+        return id;
+    }
+
+    /** Top neighbours of {@code tagId}, best first; empty if nobody saved it alongside anything. */
+    List<Neighbour> similar(UUID tagId) {
+        lock.readLock().lock();
+        try {
+            Integer tag = denseIds.get(tagId);
+            if (tag == null) {
+                return List.of();
+            }
+            List<Neighbour> cached = topNCache.get(tag);
+            if (cached == null) {
+                cached = computeTopN(tag);
+                topNCache.put(tag, cached);
+            }
+            return cached;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Neighbour> computeTopN(int tag) {
+        int n = popularity.get(tag, 0);
+        if (n == 0) {
+            return List.of();
+        }
+        // fixed-size min-heap over parallel arrays: O(row * log topN), no boxing
+        int[] heapIds = new int[topN];
+        double[] heapScores = new double[topN];
+        int[] heapCounts = new int[topN];
+        int[] heapSize = {0};
+        rows.get(tag).forEach((other, count) -> {
+            if (count < minCoCount) {
+                return;
+            }
+            double score = count / Math.sqrt((double) n * popularity.get(other, 1));
+            if (heapSize[0] < topN) {
+                int i = heapSize[0]++;
+                heapIds[i] = other;
+                heapScores[i] = score;
+                heapCounts[i] = count;
+                siftUp(heapIds, heapScores, heapCounts, i);
+            } else if (score > heapScores[0]) {
+                heapIds[0] = other;
+                heapScores[0] = score;
+                heapCounts[0] = count;
+                siftDown(heapIds, heapScores, heapCounts, heapSize[0]);
+            }
+        });
+        Neighbour[] ranked = new Neighbour[heapSize[0]];
+        for (int size = heapSize[0]; size > 0; size--) {
+            ranked[size - 1] = new Neighbour(tagIds.get(heapIds[0]), heapScores[0], heapCounts[0]);
+            swap(heapIds, heapScores, heapCounts, 0, size - 1);
+            siftDown(heapIds, heapScores, heapCounts, size - 1);
+        }
+        return List.of(ranked);
+    }
+
+    private static void siftUp(int[] ids, double[] scores, int[] counts, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(ids, scores, counts, parent, i);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] ids, double[] scores, int[] counts, int size) {
+        int i = 0;
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[i] <= scores[smallest]) {
+                break;
+            }
+            swap(ids, scores, counts, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] ids, double[] scores, int[] counts, int a, int b) {
+        int id = ids[a]; ids[a] = ids[b]; ids[b] = id;
+        double s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+        int c = counts[a]; counts[a] = counts[b]; counts[b] = c;
+    }
+
+    int tagCount() {
+        lock.readLock().lock();
+        try {
+            return tagIds.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int consumerCount() {
+        lock.readLock().lock();
+        try {
+            return consumerTags.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.knowMoreQR.server.service;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.knowMoreQR.server.service.OpenAiService.ParsedCommand;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches OpenAI intent results keyed by a normalized form of the user's command,
+ * so "Show my wishlist!" and "show  wishlist" share one completion.
+ */
+@Component
+public class CommandCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandCache.class);
+
+    // Words that never change the intent or the item query
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "the", "my", "me", "please", "pls", "can", "could", "would", "you",
+            "i", "want", "to", "from", "of", "for", "some", "just", "now", "thanks", "thank");
+
+    // Words, decimals, and the comparison/range/negation operators a filter is parsed from, so
+    // "price <30" and "price >30" (or "20-50" and "20 50") never share a key. A trailing "!" is
+    // punctuation, not negation.
+    private static final Pattern TOKEN = Pattern.compile(
+            "\\p{N}+\\.\\p{N}+|[\\p{L}\\p{N}]+|[<>!]?=|[<>]|[!-](?=[\\p{L}\\p{N}])");
+
+    // Bumped whenever normalize changes, so a snapshot's keys are only reused if they were built
+    // the same way
+    private static final int KEY_VERSION = 1;
+
+    private final BoundedTtlCache<String, ParsedCommand> cache;
+    private final String snapshotPath;
+    private final Gson gson = new Gson();
+
+    public CommandCache(@Value("${openai.cache.max-size:2000}") int maxSize,
+                        @Value("${openai.cache.ttl-minutes:60}") long ttlMinutes,
+                        @Value("${openai.cache.snapshot-path:}") String snapshotPath,
+                        MeterRegistry meterRegistry) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlMinutes * 60_000L);
+        this.snapshotPath = snapshotPath;
+
+        Gauge.builder("openai.cache.size", cache, BoundedTtlCache::size).register(meterRegistry);
+        Gauge.builder("openai.cache.hit.ratio", cache, BoundedTtlCache::getHitRatio).register(meterRegistry);
+        FunctionCounter.builder("openai.cache.hits", cache, BoundedTtlCache::getHitCount).register(meterRegistry);
+        FunctionCounter.builder("openai.cache.misses", cache, BoundedTtlCache::getMissCount).register(meterRegistry);
+        FunctionCounter.builder("openai.cache.evictions", cache, BoundedTtlCache::getEvictionCount).register(meterRegistry);
+    }
+
+    /**
+     * Folds case, punctuation, whitespace and stopwords so equivalent phrasings map to the same key.
+     * Comparison and range operators are kept, since they change the parsed filter.
+     */
+    public static String normalize(String command) {
+        if (command == null) {
+            return "";
+        }
+        Matcher tokens = TOKEN.matcher(command.toLowerCase(Locale.ROOT));
+        StringBuilder key = new StringBuilder();
+        while (tokens.find()) {
+            String token = tokens.group();
+            if (STOPWORDS.contains(token)) {
+                continue;
+            }
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(token);
+        }
+        return key.toString();
+    }
+
+    public ParsedCommand get(String command) {
+        String key = normalize(command);
+        return key.isEmpty() ? null : cache.get(key);
+    }
+
+    /**
+     * Like {@link #get(String)} but also returns expired entries that haven't been evicted yet.
+     */
+    public ParsedCommand getStale(String command) {
+        String key = normalize(command);
+        return key.isEmpty() ? null : cache.getStale(key);
+    }
+
+    public void put(String command, ParsedCommand parsed) {
+        // Error results are transient (timeouts, bad JSON) and must not be replayed
+        if (parsed == null || parsed.hasError()) {
+            return;
+        }
+        String key = normalize(command);
+        if (!key.isEmpty()) {
+            cache.put(key, parsed);
+        }
+    }
+
+    public BoundedTtlCache<String, ParsedCommand> getCache() {
+        return cache;
+    }
+
+    // --- Optional on-disk snapshot ---
+
+    @PostConstruct
+    void loadSnapshot() {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return;
+        }
+        Path path = Paths.get(snapshotPath);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            List<SnapshotEntry> entries = gson.fromJson(reader, new TypeToken<List<SnapshotEntry>>() {}.getType());
+            if (entries != null) {
+                for (SnapshotEntry e : entries) {
+                    if (e.keyVersion != KEY_VERSION) {
+                        continue;
+                    }
+                    cache.put(e.key, new ParsedCommand(e.intent, e.itemQuery, e.filter, null), e.expiresAt);
+                }
+            }
+            logger.info("Loaded {} cached OpenAI commands from {}", cache.size(), path);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not load command cache snapshot from {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void writeSnapshot() {
+        if (snapshotPath == null || snapshotPath.isBlank()) {
+            return;
+        }
+        List<SnapshotEntry> entries = new ArrayList<>();
+        for (Map.Entry<String, BoundedTtlCache.Entry<ParsedCommand>> e : cache.snapshot()) {
+            ParsedCommand parsed = e.getValue().getValue();
+            entries.add(new SnapshotEntry(e.getKey(), parsed.getIntent(), parsed.getItemQuery(),
+                    parsed.getFilter(), e.getValue().getExpiresAtMillis()));
+        }
+        Path path = Paths.get(snapshotPath);
+        try {
+            // Write to a sibling file first so a crash never leaves a half-written snapshot
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                gson.toJson(entries, writer);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Wrote {} cached OpenAI commands to {}", entries.size(), path);
+        } catch (IOException e) {
+            logger.warn("Could not write command cache snapshot to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static class SnapshotEntry {
+        String key;
+        String intent;
+        String itemQuery;
+        String filter; // absent in snapshots written before filters existed
+        long expiresAt;
+        int keyVersion = KEY_VERSION; // 0 in snapshots keyed before operators were kept
+
+        SnapshotEntry(String key, String intent, String itemQuery, String filter, long expiresAt) {
+            this.key = key;
+            this.intent = intent;
+            this.itemQuery = itemQuery;
+            this.filter = filter;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.knowMoreQR.server.service;
+
+/**
+ * Turns text into a fixed-size vector for the tag search index.
+ * The default is {@link HashingEmbeddingProvider}; register another bean as {@code @Primary}
+ * (e.g. one backed by a hosted embedding model) to swap it out.
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Number of dimensions of every vector returned by {@link #embed(String)}.
+     */
+    int dimension();
+
+    /**
+     * Returns an L2-normalized vector, so the dot product of two embeddings is their cosine similarity.
+     */
+    float[] embed(String text);
+
+    /**
+     * Identifies the model/configuration; a persisted index built by a different provider is discarded.
+     */
+    String id();
+}
@@ -0,0 +1,253 @@
+package com.knowMoreQR.server.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Typo-tolerant matching of query words against the words of tag names and series, so
+ * "organik cotten tee" still finds "Organic Cotton Tee".
+ *
+ * Distinct terms are kept in a trie and searched with the Levenshtein-automaton trick: walking the
+ * trie carries one row of the edit-distance table per depth, and a whole subtree is skipped as soon
+ * as the row's minimum exceeds the allowed edits. Only prefixes that are still within reach get
+ * visited, so cost tracks the number of near matches rather than the dictionary size.
+ * Each term keeps the set of tags containing it; a term whose last tag goes away is removed along
+ * with any branch left empty. Lookups stop at a deadline and return what they found so far.
+ */
+class FuzzyTagMatcher {
+
+    private static final class Node {
+        char[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+        String term;     // set when a term ends here
+        Set<UUID> tags;  // tags containing that term
+
+        Node child(char c) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char c) {
+            Node node = new Node();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = c;
+            children[children.length - 1] = node;
+            return node;
+        }
+
+        void removeChild(Node node) {
+            for (int i = 0; i < children.length; i++) {
+                if (children[i] == node) {
+                    int last = children.length - 1;
+                    labels[i] = labels[last];
+                    children[i] = children[last];
+                    labels = Arrays.copyOf(labels, last);
+                    children = Arrays.copyOf(children, last);
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<UUID, Set<String>> termsByTag = new HashMap<>();
+    private int termCount;
+
+    /** Adds or replaces the terms of one tag. */
+    void put(UUID tagId, String text) {
+        Set<String> terms = terms(text);
+        lock.writeLock().lock();
+        try {
+            removeLocked(tagId);
+            for (String term : terms) {
+                insert(term).tags.add(tagId);
+            }
+            termsByTag.put(tagId, terms);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(UUID tagId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(tagId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(UUID tagId) {
+        Set<String> old = termsByTag.remove(tagId);
+        if (old != null) {
+            for (String term : old) {
+                removeTerm(term, tagId);
+            }
+        }
+    }
+
+    // Drops tagId from term; a term with no tags left goes, and so does any node that leaves empty
+    private void removeTerm(String term, UUID tagId) {
+        Node[] path = new Node[term.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < term.length(); i++) {
+            path[i + 1] = path[i].child(term.charAt(i));
+            if (path[i + 1] == null) {
+                return;
+            }
+        }
+        Node node = path[term.length()];
+        if (node.term == null || !node.tags.remove(tagId) || !node.tags.isEmpty()) {
+            return;
+        }
+        node.term = null;
+        node.tags = null;
+        termCount--;
+        for (int i = term.length(); i > 0 && path[i].term == null && path[i].children.length == 0; i--) {
+            path[i - 1].removeChild(path[i]);
+        }
+    }
+
+    // Returns the node for term, creating the path if needed
+    private Node insert(String term) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            Node next = node.child(term.charAt(i));
+            node = next != null ? next : node.addChild(term.charAt(i));
+        }
+        if (node.term == null) {
+            node.term = term;
+            node.tags = new HashSet<>(2);
+            termCount++;
+        }
+        return node;
+    }
+
+    /** Tags with a word starting with {@code prefix} (the word itself included). */
+    Set<UUID> tagsWithPrefix(String prefix) {
+        Set<UUID> tags = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                node = node.child(prefix.charAt(i));
+            }
+            if (node != null) {
+                collect(node, tags);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return tags;
+    }
+
+    private static void collect(Node node, Set<UUID> into) {
+        if (node.tags != null) {
+            into.addAll(node.tags);
+        }
+        for (Node child : node.children) {
+            collect(child, into);
+        }
+    }
+
+    /**
+     * Tags with a word within a small edit distance of {@code word}, each with its best similarity in
+     * 0..1 (1 = exact). Words of up to 4 letters allow 1 edit, longer ones 2. Past {@code deadline}
+     * (System.nanoTime) the search stops and returns what it found so far.
+     */
+    Map<UUID, Double> similar(String word, long deadline) {
+        Map<UUID, Double> best = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            search(word, word.length() <= 4 ? 1 : 2, deadline, best);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best;
+    }
+
+    // Returns false if the deadline passed mid-search
+    private boolean search(String word, int maxDistance, long deadline, Map<UUID, Double> best) {
+        char[] chars = word.toCharArray();
+        int[] firstRow = new int[chars.length + 1];
+        for (int i = 0; i <= chars.length; i++) {
+            firstRow[i] = i;
+        }
+        int[] visited = {0};
+        for (int i = 0; i < root.labels.length; i++) {
+            if (!walk(root.children[i], root.labels[i], chars, firstRow, maxDistance, deadline, visited, best)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean walk(Node node, char c, char[] word, int[] prevRow, int maxDistance, long deadline,
+                         int[] visited, Map<UUID, Double> best) {
+        if ((++visited[0] & 1023) == 0 && System.nanoTime() > deadline) {
+            return false;
+        }
+        int[] row = new int[prevRow.length];
+        row[0] = prevRow[0] + 1;
+        int rowMin = row[0];
+        for (int i = 1; i < row.length; i++) {
+            int cost = word[i - 1] == c ? 0 : 1;
+            row[i] = Math.min(Math.min(row[i - 1] + 1, prevRow[i] + 1), prevRow[i - 1] + cost);
+            rowMin = Math.min(rowMin, row[i]);
+        }
+        int d = row[word.length];
+        if (d <= maxDistance && node.term != null && !node.tags.isEmpty()) {
+            double sim = 1.0 - (double) d / Math.max(word.length, node.term.length());
+            for (UUID tag : node.tags) {
+                best.merge(tag, sim, Math::max);
+            }
+        }
+        if (rowMin > maxDistance) {
+            return true; // no extension of this prefix can get back within range
+        }
+        for (int i = 0; i < node.labels.length; i++) {
+            if (!walk(node.children[i], node.labels[i], word, row, maxDistance, deadline, visited, best)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                terms.add(word);
+            }
+        }
+        return terms;
+    }
+
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return termCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.knowMoreQR.server.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+/**
+ * Deterministic, offline embedder using the hashing trick: words and character trigrams are
+ * hashed into a fixed number of signed buckets. Trigrams make "knit"/"knitted" or "cosy"/"cosiest"
+ * land close together without any model download.
+ */
+@Component
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final float WORD_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    private final int dimension;
+
+    public HashingEmbeddingProvider(@Value("${tag.search.embedding-dimension:256}") int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public String id() {
+        return "hashing-v1-" + dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        if (text == null) {
+            return vector;
+        }
+        String cleaned = text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+        if (cleaned.isEmpty()) {
+            return vector;
+        }
+        for (String word : cleaned.split(" ")) {
+            String stem = word.length() > 3 && word.endsWith("s") ? word.substring(0, word.length() - 1) : word;
+            addFeature(vector, "w:" + stem, WORD_WEIGHT);
+            String padded = "^" + stem + "$";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                addFeature(vector, padded.substring(i, i + 3), TRIGRAM_WEIGHT);
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private void addFeature(float[] vector, String feature, float weight) {
+        long h = fnv1a64(feature);
+        int bucket = (int) Long.remainderUnsigned(h, dimension);
+        // the top bit picks the sign so collisions tend to cancel out instead of piling up
+        vector[bucket] += (h < 0) ? -weight : weight;
+    }
+
+    private static long fnv1a64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    static void normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum == 0) {
+            return;
+        }
+        float inv = (float) (1.0 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inv;
+        }
+    }
+}
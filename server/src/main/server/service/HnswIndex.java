@@ -0,0 +1,640 @@
+package com.knowMoreQR.server.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph for approximate nearest-neighbour search over
+ * unit-length float vectors (similarity = dot product).
+ *
+ * All node data (id, vector, neighbour lists) lives off-heap in fixed-size records, either in a
+ * direct buffer or a memory-mapped file, so the index survives restarts without a rebuild.
+ * Only the UUID -> node map is kept on the heap. Updates and deletes are tombstones; call
+ * {@link #tombstoneRatio()} to decide when to {@link #compact()}.
+ *
+ * <pre>
+ * header : magic, version, dim, m, maxLevels, count, entryNode, topLevel, providerHash
+ * record : uuid(16) flags(4) level(4) textHash(4) vector(dim*4)
+ *          level0 neighbours: count(4) + 2m ints, levels 1..maxLevels: count(4) + m ints
+ * </pre>
+ */
+public class HnswIndex implements Closeable {
+
+    private static final int MAGIC = 0x484e5357; // "HNSW"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int FLAG_DELETED = 1;
+
+    private static final int H_MAGIC = 0, H_VERSION = 4, H_DIM = 8, H_M = 12, H_LEVELS = 16,
+            H_COUNT = 20, H_ENTRY = 24, H_TOP = 28, H_PROVIDER = 32;
+
+    private final int dim;
+    private final int m;
+    private final int m0;
+    private final int maxLevels;
+    private final int efConstruction;
+    private final int providerHash;
+    private final double levelMultiplier;
+    private final int recordBytes;
+    private final int vectorOffset;
+    private final int linksOffset;
+
+    private final FileChannel channel; // null when purely in-memory
+    private ByteBuffer buffer;
+    private int capacity;
+
+    private int count;
+    private int entryNode = -1;
+    private int topLevel = -1;
+    private int deleted;
+
+    private Map<UUID, Integer> nodesById = new HashMap<>();
+    private final Random random = new Random(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // upserts (vector set) and removes (vector null) made while compact() rebuilds, replayed onto
+    // the rebuilt graph; null when no compaction is running
+    private List<Change> changesDuringCompaction;
+
+    private HnswIndex(int dim, int m, int maxLevels, int efConstruction, int providerHash, FileChannel channel) {
+        this.dim = dim;
+        this.m = m;
+        this.m0 = 2 * m;
+        this.maxLevels = maxLevels;
+        this.efConstruction = efConstruction;
+        this.providerHash = providerHash;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.vectorOffset = 16 + 4 + 4 + 4;
+        this.linksOffset = vectorOffset + dim * 4;
+        this.recordBytes = linksOffset + (4 + m0 * 4) + maxLevels * (4 + m * 4);
+        this.channel = channel;
+    }
+
+    /**
+     * Purely off-heap index backed by a direct buffer (nothing persisted).
+     */
+    public static HnswIndex inMemory(int dim, int m, int maxLevels, int efConstruction) {
+        HnswIndex index = new HnswIndex(dim, m, maxLevels, efConstruction, 0, null);
+        index.capacity = 256;
+        index.buffer = ByteBuffer.allocateDirect(HEADER_BYTES + index.capacity * index.recordBytes);
+        index.writeHeader();
+        return index;
+    }
+
+    /**
+     * Opens (or creates) an index memory-mapped from {@code file}. If the file was written with
+     * different parameters or another embedding provider it is reset.
+     */
+    public static HnswIndex open(Path file, int dim, int m, int maxLevels, int efConstruction,
+                                 String providerId) throws IOException {
+        FileChannel channel = new RandomAccessFile(file.toFile(), "rw").getChannel();
+        HnswIndex index = new HnswIndex(dim, m, maxLevels, efConstruction, providerId.hashCode(), channel);
+        long size = channel.size();
+        if (size >= HEADER_BYTES) {
+            // check the header before mapping: a file can't be truncated while a mapping of it is live
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    break;
+                }
+            }
+            int capacity = (int) ((size - HEADER_BYTES) / index.recordBytes);
+            if (index.headerMatches(header, capacity)) {
+                index.capacity = capacity;
+                index.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * index.recordBytes);
+                index.loadExisting();
+                return index;
+            }
+        }
+        index.capacity = 256;
+        channel.truncate(0); // nothing is mapped yet
+        index.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) index.capacity * index.recordBytes);
+        index.writeHeader();
+        return index;
+    }
+
+    private boolean headerMatches(ByteBuffer header, int capacity) {
+        return header.getInt(H_MAGIC) == MAGIC && header.getInt(H_VERSION) == VERSION
+                && header.getInt(H_DIM) == dim && header.getInt(H_M) == m
+                && header.getInt(H_LEVELS) == maxLevels && header.getInt(H_PROVIDER) == providerHash
+                && header.getInt(H_COUNT) <= capacity;
+    }
+
+    private void loadExisting() {
+        count = buffer.getInt(H_COUNT);
+        entryNode = buffer.getInt(H_ENTRY);
+        topLevel = buffer.getInt(H_TOP);
+        for (int node = 0; node < count; node++) {
+            if (isDeleted(node)) {
+                deleted++;
+            } else {
+                nodesById.put(idOf(node), node);
+            }
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(H_MAGIC, MAGIC);
+        buffer.putInt(H_VERSION, VERSION);
+        buffer.putInt(H_DIM, dim);
+        buffer.putInt(H_M, m);
+        buffer.putInt(H_LEVELS, maxLevels);
+        buffer.putInt(H_COUNT, count);
+        buffer.putInt(H_ENTRY, entryNode);
+        buffer.putInt(H_TOP, topLevel);
+        buffer.putInt(H_PROVIDER, providerHash);
+    }
+
+    // --- Public API ---
+
+    /**
+     * Inserts or replaces the vector for {@code id}. {@code textHash} is stored alongside so callers
+     * can tell whether a persisted entry is still current.
+     */
+    public void upsert(UUID id, float[] vector, int textHash) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + " dimensions, got " + vector.length);
+        }
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesById.remove(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insert(id, vector, textHash);
+            writeHeader();
+            if (changesDuringCompaction != null) {
+                changesDuringCompaction.add(new Change(id, vector.clone(), textHash));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = nodesById.remove(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            if (changesDuringCompaction != null) {
+                changesDuringCompaction.add(new Change(id, null, 0));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stored text hash for {@code id}, or null if the id isn't indexed.
+     */
+    public Integer textHash(UUID id) {
+        lock.readLock().lock();
+        try {
+            Integer node = nodesById.get(id);
+            return node == null ? null : buffer.getInt(recordOffset(node) + 24);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> ids() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(nodesById.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public double tombstoneRatio() {
+        lock.readLock().lock();
+        try {
+            return count == 0 ? 0 : (double) deleted / count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tombstones() {
+        lock.readLock().lock();
+        try {
+            return deleted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the graph from the live nodes only, dropping tombstones. The rebuild runs on a copy
+     * of the live vectors in a separate in-memory index, so searches and updates carry on meanwhile;
+     * updates made during it are replayed onto the new graph before it's swapped in. An in-memory
+     * index shrinks to fit. A mapped file keeps its size, since a mapped file can't be truncated on
+     * every platform; the records past the new count are simply unused. The persisted count is
+     * zeroed while the new records are copied in, so a crash during the swap reopens as an empty
+     * index (everything gets re-embedded) rather than a corrupt one. Returns without doing anything
+     * if another compaction is already running.
+     */
+    public void compact() {
+        UUID[] ids;
+        int[] textHashes;
+        float[][] vectors;
+        lock.writeLock().lock();
+        try {
+            if (changesDuringCompaction != null) {
+                return;
+            }
+            int live = count - deleted;
+            ids = new UUID[live];
+            textHashes = new int[live];
+            vectors = new float[live][];
+            int n = 0;
+            for (int node = 0; node < count; node++) {
+                if (isDeleted(node)) {
+                    continue;
+                }
+                int off = recordOffset(node);
+                ids[n] = idOf(node);
+                textHashes[n] = buffer.getInt(off + 24);
+                float[] vector = new float[dim];
+                for (int i = 0; i < dim; i++) {
+                    vector[i] = buffer.getFloat(off + vectorOffset + i * 4);
+                }
+                vectors[n++] = vector;
+            }
+            changesDuringCompaction = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        HnswIndex rebuilt = inMemory(dim, m, maxLevels, efConstruction);
+        boolean built = false;
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                rebuilt.insert(ids[i], vectors[i], textHashes[i]);
+            }
+            built = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (built) {
+                    for (Change change : changesDuringCompaction) {
+                        if (change.vector == null) {
+                            rebuilt.remove(change.id);
+                        } else {
+                            rebuilt.upsert(change.id, change.vector, change.textHash);
+                        }
+                    }
+                    swapIn(rebuilt);
+                }
+                changesDuringCompaction = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // Takes over the graph of an in-memory index with the same layout. Caller holds the write lock.
+    private void swapIn(HnswIndex rebuilt) {
+        if (channel == null) {
+            buffer = rebuilt.buffer;
+            capacity = rebuilt.capacity;
+        } else {
+            count = 0;
+            writeHeader();
+            ensureCapacity(rebuilt.count);
+            ByteBuffer records = rebuilt.buffer.duplicate();
+            records.position(HEADER_BYTES).limit(HEADER_BYTES + rebuilt.count * recordBytes);
+            ByteBuffer target = buffer.duplicate();
+            target.position(HEADER_BYTES);
+            target.put(records);
+        }
+        count = rebuilt.count;
+        entryNode = rebuilt.entryNode;
+        topLevel = rebuilt.topLevel;
+        deleted = rebuilt.deleted;
+        nodesById = rebuilt.nodesById;
+        writeHeader();
+    }
+
+    /**
+     * Returns up to {@code k} live ids ordered by descending similarity to {@code query}.
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        lock.readLock().lock();
+        try {
+            if (entryNode < 0) {
+                return Collections.emptyList();
+            }
+            int ep = entryNode;
+            for (int level = topLevel; level > 0; level--) {
+                ep = greedyClosest(query, ep, level);
+            }
+            // over-fetch a little to make up for tombstones
+            List<Candidate> found = searchLayer(query, ep, Math.max(ef, k) + Math.min(deleted, k), 0);
+            List<Hit> hits = new ArrayList<>(k);
+            for (Candidate c : found) {
+                if (!isDeleted(c.node)) {
+                    hits.add(new Hit(idOf(c.node), 1f - c.distance));
+                    if (hits.size() == k) {
+                        break;
+                    }
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes mapped pages to disk (no-op for in-memory indexes).
+     */
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            if (buffer instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    // --- HNSW internals (callers hold the appropriate lock) ---
+
+    private void insert(UUID id, float[] vector, int textHash) {
+        ensureCapacity(count + 1);
+        int node = count;
+        int level = Math.min(maxLevels, (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier));
+
+        int off = recordOffset(node);
+        buffer.putLong(off, id.getMostSignificantBits());
+        buffer.putLong(off + 8, id.getLeastSignificantBits());
+        buffer.putInt(off + 16, 0);
+        buffer.putInt(off + 20, level);
+        buffer.putInt(off + 24, textHash);
+        for (int i = 0; i < dim; i++) {
+            buffer.putFloat(off + vectorOffset + i * 4, vector[i]);
+        }
+        for (int l = 0; l <= maxLevels; l++) {
+            buffer.putInt(linkCountOffset(node, l), 0);
+        }
+        count++;
+        nodesById.put(id, node);
+
+        if (entryNode < 0) {
+            entryNode = node;
+            topLevel = level;
+            return;
+        }
+
+        int ep = entryNode;
+        for (int l = topLevel; l > level; l--) {
+            ep = greedyClosest(vector, ep, l);
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(vector, ep, efConstruction, l);
+            int maxLinks = l == 0 ? m0 : m;
+            List<Candidate> neighbours = candidates.subList(0, Math.min(maxLinks, candidates.size()));
+            for (Candidate n : neighbours) {
+                addLink(node, n.node, l);
+                addLink(n.node, node, l);
+            }
+            ep = candidates.get(0).node;
+        }
+        if (level > topLevel) {
+            topLevel = level;
+            entryNode = node;
+        }
+    }
+
+    private void addLink(int from, int to, int level) {
+        int maxLinks = level == 0 ? m0 : m;
+        int countOff = linkCountOffset(from, level);
+        int n = buffer.getInt(countOff);
+        if (n < maxLinks) {
+            buffer.putInt(countOff + 4 + n * 4, to);
+            buffer.putInt(countOff, n + 1);
+            return;
+        }
+        // List is full: keep the closest maxLinks out of existing + new
+        List<Candidate> all = new ArrayList<>(n + 1);
+        for (int i = 0; i < n; i++) {
+            int other = buffer.getInt(countOff + 4 + i * 4);
+            all.add(new Candidate(other, distance(from, other)));
+        }
+        all.add(new Candidate(to, distance(from, to)));
+        all.sort(Comparator.comparingDouble(c -> c.distance));
+        for (int i = 0; i < maxLinks; i++) {
+            buffer.putInt(countOff + 4 + i * 4, all.get(i).node);
+        }
+    }
+
+    private int greedyClosest(float[] query, int ep, int level) {
+        int current = ep;
+        float currentDist = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int countOff = linkCountOffset(current, level);
+            int n = buffer.getInt(countOff);
+            for (int i = 0; i < n; i++) {
+                int other = buffer.getInt(countOff + 4 + i * 4);
+                float d = distance(query, other);
+                if (d < currentDist) {
+                    currentDist = d;
+                    current = other;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Standard best-first layer search; returns up to {@code ef} candidates sorted by ascending distance.
+     */
+    private List<Candidate> searchLayer(float[] query, int ep, int ef, int level) {
+        BitSet visited = new BitSet(count);
+        PriorityQueue<Candidate> toVisit = new PriorityQueue<>(Comparator.comparingDouble(c -> c.distance));
+        PriorityQueue<Candidate> best = new PriorityQueue<>((a, b) -> Float.compare(b.distance, a.distance));
+
+        Candidate start = new Candidate(ep, distance(query, ep));
+        visited.set(ep);
+        toVisit.add(start);
+        best.add(start);
+
+        while (!toVisit.isEmpty()) {
+            Candidate c = toVisit.poll();
+            if (best.size() >= ef && c.distance > best.peek().distance) {
+                break;
+            }
+            int countOff = linkCountOffset(c.node, level);
+            int n = buffer.getInt(countOff);
+            for (int i = 0; i < n; i++) {
+                int other = buffer.getInt(countOff + 4 + i * 4);
+                if (visited.get(other)) {
+                    continue;
+                }
+                visited.set(other);
+                float d = distance(query, other);
+                if (best.size() < ef || d < best.peek().distance) {
+                    Candidate next = new Candidate(other, d);
+                    toVisit.add(next);
+                    best.add(next);
+                    if (best.size() > ef) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> result = new ArrayList<>(best);
+        result.sort(Comparator.comparingDouble(c -> c.distance));
+        return result;
+    }
+
+    private float distance(float[] query, int node) {
+        int off = recordOffset(node) + vectorOffset;
+        float dot = 0;
+        for (int i = 0; i < dim; i++) {
+            dot += query[i] * buffer.getFloat(off + i * 4);
+        }
+        return 1f - dot;
+    }
+
+    private float distance(int a, int b) {
+        int offA = recordOffset(a) + vectorOffset;
+        int offB = recordOffset(b) + vectorOffset;
+        float dot = 0;
+        for (int i = 0; i < dim; i++) {
+            dot += buffer.getFloat(offA + i * 4) * buffer.getFloat(offB + i * 4);
+        }
+        return 1f - dot;
+    }
+
+    private void markDeleted(int node) {
+        int off = recordOffset(node) + 16;
+        buffer.putInt(off, buffer.getInt(off) | FLAG_DELETED);
+        deleted++;
+    }
+
+    private boolean isDeleted(int node) {
+        return (buffer.getInt(recordOffset(node) + 16) & FLAG_DELETED) != 0;
+    }
+
+    private UUID idOf(int node) {
+        int off = recordOffset(node);
+        return new UUID(buffer.getLong(off), buffer.getLong(off + 8));
+    }
+
+    private int recordOffset(int node) {
+        return HEADER_BYTES + node * recordBytes;
+    }
+
+    private int linkCountOffset(int node, int level) {
+        int off = recordOffset(node) + linksOffset;
+        if (level == 0) {
+            return off;
+        }
+        return off + (4 + m0 * 4) + (level - 1) * (4 + m * 4);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > capacity) {
+            resize(Math.max(needed, capacity * 2));
+        }
+    }
+
+    // Grows the storage, keeping the header and every record
+    private void resize(int newCapacity) {
+        long bytes = HEADER_BYTES + (long) newCapacity * recordBytes;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("HNSW index is full (" + capacity + " nodes)");
+        }
+        try {
+            if (channel != null) {
+                // Re-mapping extends the file; the old mapping is released by GC and never touched again
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            } else {
+                ByteBuffer resized = ByteBuffer.allocateDirect((int) bytes);
+                ByteBuffer old = buffer.duplicate();
+                old.clear();
+                resized.put(old);
+                resized.clear();
+                buffer = resized;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not resize HNSW index file", e);
+        }
+        capacity = newCapacity;
+    }
+
+    private static final class Change {
+        final UUID id;
+        final float[] vector;
+        final int textHash;
+
+        Change(UUID id, float[] vector, int textHash) {
+            this.id = id;
+            this.vector = vector;
+            this.textHash = textHash;
+        }
+    }
+
+    private static final class Candidate {
+        final int node;
+        final float distance;
+
+        Candidate(int node, float distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+    }
+
+    public static final class Hit {
+        private final UUID id;
+        private final float score;
+
+        Hit(UUID id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public UUID getId() { return id; }
+        public float getScore() { return score; }
+    }
+}
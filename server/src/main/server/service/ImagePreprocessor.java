@@ -0,0 +1,273 @@
+package com.knowMoreQR.server.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.stream.IntStream;
+
+/**
+ * Cleans up a tag photo before OCR: grayscale, downscale so the long side is at most
+ * {@code maxDimension} (about 300 DPI for a hang tag; phone photos are often 4x that), deskew,
+ * then adaptive (local mean) binarization so uneven lighting doesn't wipe out text.
+ *
+ * Per-pixel passes run in horizontal bands on the common pool once an image has more than
+ * {@code parallelThresholdPixels} pixels; smaller images aren't worth the hand-off.
+ */
+@Component
+public class ImagePreprocessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePreprocessor.class);
+
+    private static final int BLACK = 0;
+    private static final int WHITE = 255;
+
+    private final int maxDimension;
+    private final double maxSkewDegrees;
+    private final int parallelThresholdPixels;
+
+    public ImagePreprocessor(@Value("${ocr.preprocess.max-dimension:2000}") int maxDimension,
+                             @Value("${ocr.preprocess.max-skew-degrees:10}") double maxSkewDegrees,
+                             @Value("${ocr.preprocess.parallel-threshold-pixels:1000000}") int parallelThresholdPixels) {
+        if (maxDimension <= 0) {
+            throw new IllegalArgumentException("maxDimension must be positive");
+        }
+        this.maxDimension = maxDimension;
+        this.maxSkewDegrees = maxSkewDegrees;
+        this.parallelThresholdPixels = parallelThresholdPixels;
+    }
+
+    /** Returns a binarized TYPE_BYTE_GRAY image (0 = ink, 255 = paper). */
+    public BufferedImage process(BufferedImage image) {
+        long start = System.nanoTime();
+        Gray gray = toGray(image);
+        gray = downscale(gray, maxDimension, parallel(gray));
+
+        byte[] binary = binarize(gray, parallel(gray));
+        double skew = estimateSkewDegrees(binary, gray.width, gray.height, maxSkewDegrees);
+        if (Math.abs(skew) >= 0.2) {
+            // rotate the grayscale, not the binary, so edges stay smooth; then threshold again
+            gray = rotate(gray, -skew);
+            binary = binarize(gray, parallel(gray));
+        }
+        logger.debug("Preprocessed {}x{} -> {}x{}, deskewed {} deg in {} ms", image.getWidth(), image.getHeight(),
+                gray.width, gray.height, String.format("%.2f", skew), (System.nanoTime() - start) / 1_000_000);
+        return gray.withPixels(binary).toImage();
+    }
+
+    private boolean parallel(Gray gray) {
+        return (long) gray.width * gray.height >= parallelThresholdPixels;
+    }
+
+    // --- steps (package-private for the benchmark) ---
+
+    static Gray toGray(BufferedImage image) {
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return new Gray(gray.getWidth(), gray.getHeight(), ((DataBufferByte) gray.getRaster().getDataBuffer()).getData());
+    }
+
+    /** Area-average downscale so the long side is at most {@code maxDimension}; no-op if already smaller. */
+    static Gray downscale(Gray src, int maxDimension, boolean parallel) {
+        int longSide = Math.max(src.width, src.height);
+        if (longSide <= maxDimension) {
+            return src;
+        }
+        double scale = (double) maxDimension / longSide;
+        int dw = Math.max(1, (int) Math.round(src.width * scale));
+        int dh = Math.max(1, (int) Math.round(src.height * scale));
+        byte[] out = new byte[dw * dh];
+        // each output pixel averages the block of source pixels it covers
+        rows(dh, parallel).forEach(dy -> {
+            int sy0 = (int) ((long) dy * src.height / dh);
+            int sy1 = Math.max(sy0 + 1, (int) ((long) (dy + 1) * src.height / dh));
+            for (int dx = 0; dx < dw; dx++) {
+                int sx0 = (int) ((long) dx * src.width / dw);
+                int sx1 = Math.max(sx0 + 1, (int) ((long) (dx + 1) * src.width / dw));
+                int sum = 0;
+                for (int sy = sy0; sy < sy1; sy++) {
+                    int row = sy * src.width;
+                    for (int sx = sx0; sx < sx1; sx++) {
+                        sum += src.pixels[row + sx] & 0xff;
+                    }
+                }
+                out[dy * dw + dx] = (byte) (sum / ((sy1 - sy0) * (sx1 - sx0)));
+            }
+        });
+        return new Gray(dw, dh, out);
+    }
+
+    /**
+     * Bradley-Roth adaptive threshold: a pixel is ink if it is more than 15% darker than the mean of
+     * the window around it. Window means come from an integral image, so the cost doesn't depend on
+     * the window size.
+     */
+    static byte[] binarize(Gray gray, boolean parallel) {
+        int w = gray.width;
+        int h = gray.height;
+        int stride = w + 1;
+        // int sums wrap for big images, but every window sum we take is far below 2^32, so the
+        // differences still come out exact
+        int[] integral = new int[stride * (h + 1)];
+        rows(h, parallel).forEach(y -> {
+            int rowSum = 0;
+            int base = (y + 1) * stride;
+            for (int x = 0; x < w; x++) {
+                rowSum += gray.pixels[y * w + x] & 0xff;
+                integral[base + x + 1] = rowSum;
+            }
+        });
+        // accumulate down each column, in vertical strips
+        IntStream strips = parallel ? IntStream.range(0, bands(w)).parallel() : IntStream.range(0, 1);
+        int stripCount = parallel ? bands(w) : 1;
+        strips.forEach(strip -> {
+            int x0 = 1 + (int) ((long) strip * w / stripCount);
+            int x1 = 1 + (int) ((long) (strip + 1) * w / stripCount);
+            for (int y = 2; y <= h; y++) {
+                int row = y * stride;
+                int prev = row - stride;
+                for (int x = x0; x < x1; x++) {
+                    integral[row + x] += integral[prev + x];
+                }
+            }
+        });
+
+        int half = Math.max(7, Math.max(w, h) / 32) / 2;
+        byte[] out = new byte[w * h];
+        rows(h, parallel).forEach(y -> {
+            int y0 = Math.max(0, y - half);
+            int y1 = Math.min(h, y + half + 1);
+            for (int x = 0; x < w; x++) {
+                int x0 = Math.max(0, x - half);
+                int x1 = Math.min(w, x + half + 1);
+                int sum = integral[y1 * stride + x1] - integral[y0 * stride + x1]
+                        - integral[y1 * stride + x0] + integral[y0 * stride + x0];
+                long area = (long) (x1 - x0) * (y1 - y0);
+                int value = gray.pixels[y * w + x] & 0xff;
+                out[y * w + x] = (byte) (value * area * 100 <= (sum & 0xffffffffL) * 85 ? BLACK : WHITE);
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Angle (degrees, same sense as Graphics2D.rotate) that text lines in a binary image are tilted
+     * by. For each candidate angle the ink pixels are projected onto the rotated vertical axis;
+     * text lines line up into sharp peaks only at the right angle, which maximizes the sum of
+     * squared bin counts. Coarse 0.5 degree search, then refined to 0.05.
+     */
+    static double estimateSkewDegrees(byte[] binary, int w, int h, double maxDegrees) {
+        int inkCount = 0;
+        for (byte b : binary) {
+            if (b == BLACK) {
+                inkCount++;
+            }
+        }
+        if (inkCount < 100 || maxDegrees <= 0) {
+            return 0;
+        }
+        // cap the work on ink-heavy images by sampling every n-th ink pixel
+        int step = Math.max(1, inkCount / 200_000);
+        int[] xs = new int[inkCount / step + 1];
+        int[] ys = new int[xs.length];
+        int n = 0;
+        int seen = 0;
+        for (int i = 0; i < binary.length; i++) {
+            if (binary[i] == BLACK && seen++ % step == 0 && n < xs.length) {
+                xs[n] = i % w;
+                ys[n] = i / w;
+                n++;
+            }
+        }
+        int points = n;
+        double coarse = bestAngle(xs, ys, points, w, h, -maxDegrees, maxDegrees, 0.5);
+        return bestAngle(xs, ys, points, w, h, coarse - 0.5, coarse + 0.5, 0.05);
+    }
+
+    private static double bestAngle(int[] xs, int[] ys, int n, int w, int h, double from, double to, double step) {
+        int candidates = (int) Math.round((to - from) / step) + 1;
+        double[] scores = new double[candidates];
+        IntStream.range(0, candidates).parallel().forEach(c -> {
+            double tan = Math.tan(Math.toRadians(from + c * step));
+            int offset = (int) Math.ceil(Math.abs(tan) * w);
+            int[] bins = new int[h + 2 * offset + 1];
+            for (int i = 0; i < n; i++) {
+                // tilted line y = x*tan + c maps to a constant bin
+                bins[(int) Math.round(ys[i] - xs[i] * tan) + offset]++;
+            }
+            double score = 0;
+            for (int count : bins) {
+                score += (double) count * count;
+            }
+            scores[c] = score;
+        });
+        int best = 0;
+        for (int c = 1; c < candidates; c++) {
+            if (scores[c] > scores[best]) {
+                best = c;
+            }
+        }
+        return from + best * step;
+    }
+
+    /**
+     * Rotates about the centre, keeping the size. Uncovered corners get the image's mean tone
+     * rather than white, so they don't binarize into a dark frame next to dim paper.
+     */
+    static Gray rotate(Gray src, double degrees) {
+        long total = 0;
+        for (byte b : src.pixels) {
+            total += b & 0xff;
+        }
+        int mean = (int) (total / Math.max(1, src.pixels.length));
+        BufferedImage out = new BufferedImage(src.width, src.height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = out.createGraphics();
+        g.setColor(new Color(mean, mean, mean));
+        g.fillRect(0, 0, src.width, src.height);
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.rotate(Math.toRadians(degrees), src.width / 2.0, src.height / 2.0);
+        g.drawImage(src.toImage(), 0, 0, null);
+        g.dispose();
+        return new Gray(src.width, src.height, ((DataBufferByte) out.getRaster().getDataBuffer()).getData());
+    }
+
+    private static IntStream rows(int height, boolean parallel) {
+        IntStream rows = IntStream.range(0, height);
+        return parallel ? rows.parallel() : rows;
+    }
+
+    private static int bands(int size) {
+        return Math.max(1, Math.min(size, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    /** 8-bit grayscale pixels, row-major with no padding. */
+    static final class Gray {
+        final int width;
+        final int height;
+        final byte[] pixels;
+
+        Gray(int width, int height, byte[] pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        Gray withPixels(byte[] replacement) {
+            return new Gray(width, height, replacement);
+        }
+
+        BufferedImage toImage() {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            image.getRaster().setDataElements(0, 0, width, height, pixels);
+            return image;
+        }
+    }
+}
@@ -2,13 +2,23 @@ package com.knowMoreQR.server.service;
 
 import com.knowMoreQR.server.ProductDetails;
 import com.knowMoreQR.server.ProductDetailsRepository;
-import net.sourceforge.tess4j.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import java.io.File;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.Iterator;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,21 +28,65 @@ public class ImageProcessingService {
     private static final Logger logger = LoggerFactory.getLogger(ImageProcessingService.class);
     
     private final ProductDetailsRepository productDetailsRepository;
+    private final TesseractPool tesseractPool;
+    private final ImagePreprocessor preprocessor;
+    private final OcrResultCache ocrResultCache;
+    private final long maxPixels;
+    private final boolean preprocess;
+
+    static {
+        // ImageIO otherwise buffers stream input in a temp file while decoding
+        ImageIO.setUseCache(false);
+    }
 
-    public ImageProcessingService(ProductDetailsRepository productDetailsRepository) {
+    public ImageProcessingService(ProductDetailsRepository productDetailsRepository, TesseractPool tesseractPool,
+                                  ImagePreprocessor preprocessor, OcrResultCache ocrResultCache,
+                                  @Value("${ocr.max-pixels:25000000}") long maxPixels,
+                                  @Value("${ocr.preprocess.enabled:true}") boolean preprocess) {
         this.productDetailsRepository = productDetailsRepository;
+        this.tesseractPool = tesseractPool;
+        this.preprocessor = preprocessor;
+        this.ocrResultCache = ocrResultCache;
+        this.maxPixels = maxPixels;
+        this.preprocess = preprocess;
     }
 
     public ProductDetails processImage(MultipartFile multipartFile) throws IOException {
         if (multipartFile == null || multipartFile.isEmpty()) {
             throw new IllegalArgumentException("File cannot be null or empty");
         }
-        
-        File tempFile = File.createTempFile("ocr-upload-", ".jpg");
-        multipartFile.transferTo(tempFile);
-        
+
+        // Small uploads are already in memory (see UploadConfig); larger ones are read from the
+        // container's spool file. Either way we never copy the upload to a temp file of our own.
+        try (InputStream in = multipartFile.getInputStream()) {
+            return processImage(in);
+        }
+    }
+
+    /**
+     * Decodes, OCRs, parses and saves one image read from {@code in}, unless the same bytes were
+     * processed before (or are being processed right now), in which case that result is returned.
+     */
+    public ProductDetails processImage(InputStream in) throws IOException {
+        // The hash has to be known before OCR starts, so the upload is hashed as it's read into
+        // memory rather than decoded straight off the stream. That's a copy of the compressed
+        // bytes (capped by the upload limit); a repeat upload then skips decoding altogether.
+        MessageDigest digest = OcrResultCache.sha256();
+        byte[] bytes = new DigestInputStream(in, digest).readAllBytes();
+        String sha256 = OcrResultCache.hex(digest.digest());
+        return OcrResultCache.await(ocrResultCache.get(sha256, () -> CompletableFuture.completedFuture(
+                productDetailsRepository.save(extractDetails(new ByteArrayInputStream(bytes))))));
+    }
+
+    /**
+     * Like {@link #processImage(InputStream)} but leaves saving to the caller, which lets batch
+     * uploads write the rows asynchronously.
+     */
+    public ProductDetails extractDetails(InputStream in) throws IOException {
+        BufferedImage image = decode(in, maxPixels);
         try {
-            String extractedText = doOCR(tempFile);
+            // preprocess before taking an engine, so pooled engines only ever do OCR
+            String extractedText = tesseractPool.recognize(preprocess ? preprocessor.process(image) : image);
             if (extractedText == null || extractedText.trim().isEmpty()) {
                 logger.warn("OCR extracted no text from the image");
             }
@@ -40,30 +94,41 @@ public class ImageProcessingService {
             ProductDetails details = parseTextToProductDetails(extractedText);
             String category = classifyProduct(details);
             details.setCategory(category);
-            details = productDetailsRepository.save(details);
-
             return details;
+        } catch (TesseractPool.RejectedException | IllegalArgumentException e) {
+            throw e; // overload / bad input, not a processing failure
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for OCR", e);
         } catch (Exception e) {
             logger.error("Error processing image: {}", e.getMessage(), e);
             throw new IOException("Failed to process image due to OCR or parsing error", e);
-        } finally {
-            if (tempFile.exists()) {
-                if (!tempFile.delete()) {
-                    tempFile.deleteOnExit();
-                }
-            }
         }
     }
 
-    private String doOCR(File imageFile) {
-        Tesseract tesseract = new Tesseract();
-        // TODO: Ensure tessdata path is configured correctly (e.g., via env var or config)
-        // tesseract.setDatapath("/path/to/tessdata");
-        try {
-            return tesseract.doOCR(imageFile);
-        } catch (TesseractException e) {
-            logger.error("OCR processing error: {}", e.getMessage(), e);
-            return ""; // Return empty string or throw exception?
+    /**
+     * Decodes an image from a stream entirely in memory. The dimensions are read from the header
+     * first, so an image over {@code maxPixels} (a decompression bomb, or just a huge photo) is
+     * rejected before its pixel buffer is allocated.
+     */
+    static BufferedImage decode(InputStream in, long maxPixels) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = stream == null ? null : ImageIO.getImageReaders(stream);
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(stream, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IllegalArgumentException("Image too large: " + reader.getWidth(0) + "x" + reader.getHeight(0)
+                            + " exceeds " + maxPixels + " pixels");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
         }
     }
 
@@ -0,0 +1,170 @@
+package com.knowMoreQR.server.service;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing int -> int map (linear probing, backward-shift deletion). Used for the sparse
+ * co-occurrence rows, where a boxed {@code HashMap<Integer, Integer>} costs ~5x the memory.
+ * Keys must be non-negative; -1 marks an empty slot. Not thread-safe.
+ */
+final class IntIntHashMap {
+
+    /** Receives entries from {@link #forEach}. */
+    interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private int[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    IntIntHashMap() {
+        this(8);
+    }
+
+    IntIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential dense ids
+        return h ^ (h >>> 16);
+    }
+
+    private int slot(int key) {
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    int get(int key, int defaultValue) {
+        int i = slot(key);
+        return keys[i] == key ? values[i] : defaultValue;
+    }
+
+    boolean containsKey(int key) {
+        return keys[slot(key)] == key;
+    }
+
+    void put(int key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must be non-negative: " + key);
+        }
+        int i = slot(key);
+        if (keys[i] == key) {
+            values[i] = value;
+            return;
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the value for {@code key} (missing keys count as 0) and removes the
+     * entry when the result reaches 0. Returns the new value.
+     */
+    int addTo(int key, int delta) {
+        int i = slot(key);
+        if (keys[i] != key) {
+            if (delta != 0) {
+                put(key, delta);
+            }
+            return delta;
+        }
+        int updated = values[i] + delta;
+        if (updated == 0) {
+            removeAt(i);
+        } else {
+            values[i] = updated;
+        }
+        return updated;
+    }
+
+    boolean remove(int key) {
+        int i = slot(key);
+        if (keys[i] != key) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeAt(int i) {
+        size--;
+        int gap = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int k = keys[j];
+            if (k == EMPTY) {
+                break;
+            }
+            int home = mix(k) & mask;
+            // move k into the gap if its home slot is not in (gap, j]
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = k;
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int s = slot(oldKeys[i]);
+                keys[s] = oldKeys[i];
+                values[s] = oldValues[i];
+            }
+        }
+    }
+
+    void forEach(IntIntConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    int[] keys() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int k : keys) {
+            if (k != EMPTY) {
+                out[n++] = k;
+            }
+        }
+        return out;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
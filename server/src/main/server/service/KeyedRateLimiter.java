@@ -0,0 +1,70 @@
+package com.knowMoreQR.server.service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One {@link TokenBucket} per key (client IP, email, ...). Idle buckets are dropped once they have
+ * refilled, since a full bucket is the same as a new one. If the map still holds {@code maxKeys}
+ * after a sweep, new keys share a single overflow bucket, so a flood of distinct keys can neither
+ * grow memory without bound nor get a fresh burst allowance each. While the map is full, a new key
+ * triggers a sweep at most once per sweep interval; the rest go straight to the overflow bucket.
+ */
+public class KeyedRateLimiter {
+
+    private final double capacity;
+    private final double refillPerMinute;
+    private final int maxKeys;
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflow;
+    private final long sweepIntervalNanos;
+    private final AtomicLong nextSweepNanos = new AtomicLong(System.nanoTime());
+
+    public KeyedRateLimiter(double capacity, double refillPerMinute, int maxKeys) {
+        this(capacity, refillPerMinute, maxKeys, 1000);
+    }
+
+    public KeyedRateLimiter(double capacity, double refillPerMinute, int maxKeys, long sweepIntervalMillis) {
+        if (maxKeys <= 0) {
+            throw new IllegalArgumentException("maxKeys must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerMinute = refillPerMinute;
+        this.maxKeys = maxKeys;
+        this.overflow = new TokenBucket(capacity, refillPerMinute);
+        this.sweepIntervalNanos = TimeUnit.MILLISECONDS.toNanos(sweepIntervalMillis);
+    }
+
+    public boolean tryAcquire(String key) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys && claimSweep()) {
+                sweep();
+            }
+            bucket = buckets.size() < maxKeys
+                    ? buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, refillPerMinute))
+                    : overflow;
+        }
+        return bucket.tryAcquire();
+    }
+
+    /** Removes buckets nobody has drawn from recently; returns how many were dropped. */
+    public int sweep() {
+        int before = buckets.size();
+        buckets.values().removeIf(TokenBucket::isFull);
+        return before - buckets.size();
+    }
+
+    // Full sweeps are O(maxKeys); under a flood of new keys only one caller per interval pays for one
+    private boolean claimSweep() {
+        long due = nextSweepNanos.get();
+        long now = System.nanoTime();
+        return now - due >= 0 && nextSweepNanos.compareAndSet(due, now + sweepIntervalNanos);
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,63 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.service.OpenAiService.ParsedCommand;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keyword-based intent parser used when OpenAI is unavailable (breaker open, quota or
+ * concurrency limit hit). Only understands the simple phrasings, but that covers most traffic.
+ */
+@Component
+public class LocalCommandParser {
+
+    // Anything that sounds like emptying the list; only the bare form below is trusted as "clear"
+    private static final Pattern CLEAR_WORDS = Pattern.compile(
+            "\\b(clear|empty|wipe)\\b|\\b(remove|delete)\\s+(everything|all)\\b");
+    private static final Pattern BARE_CLEAR = Pattern.compile(
+            "(clear|empty|wipe)( out)?( everything| all)?|(remove|delete) (everything|all)");
+    private static final Pattern VIEW = Pattern.compile(
+            "\\b(show|view|list|see|display|what'?s in)\\b");
+    private static final Pattern ADD = Pattern.compile(
+            "\\b(add|save|put|keep)\\b\\s*(.*)");
+    private static final Pattern REMOVE = Pattern.compile(
+            "\\b(remove|delete|drop|get rid of|take out|take off)\\b\\s*(.*)");
+
+    // Filler around the item query, e.g. "add THE blue shirt TO MY WISHLIST"
+    private static final Pattern FILLER = Pattern.compile(
+            "\\b(the|a|an|my|please|to|from|in|on|of|it|this|that|wish ?list|list)\\b");
+
+    public ParsedCommand parse(String command) {
+        if (command == null || command.isBlank()) {
+            return new ParsedCommand("unknown", "", null);
+        }
+        String text = command.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9'\\s]", " ").trim();
+
+        if (CLEAR_WORDS.matcher(text).find()) {
+            // "remove everything blue" or "remove all shirts" is a filtered remove this parser can't
+            // express; guessing "clear" would empty the whole wishlist
+            return BARE_CLEAR.matcher(itemQuery(text)).matches()
+                    ? new ParsedCommand("clear", "", null)
+                    : new ParsedCommand("unknown", "", null);
+        }
+        Matcher remove = REMOVE.matcher(text);
+        if (remove.find()) {
+            return new ParsedCommand("remove", itemQuery(remove.group(2)), null);
+        }
+        Matcher add = ADD.matcher(text);
+        if (add.find()) {
+            return new ParsedCommand("add", itemQuery(add.group(2)), null);
+        }
+        if (VIEW.matcher(text).find()) {
+            return new ParsedCommand("view", "", null);
+        }
+        return new ParsedCommand("unknown", "", null);
+    }
+
+    private String itemQuery(String rest) {
+        return FILLER.matcher(rest).replaceAll(" ").replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,160 @@
+package com.knowMoreQR.server.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects items submitted within a short window (or until {@code maxBatchSize} is reached)
+ * and hands them to {@code batchHandler} in one call. The handler must return one output per
+ * input, in the same order; each caller gets its own future back.
+ *
+ * Batching only kicks in under load: an item submitted while no batch is running or waiting is
+ * dispatched straight away. Batches run on {@code dispatchExecutor}; the single timer thread here
+ * only ends windows, so a slow batch never holds up the next flush. If the executor rejects a
+ * batch, its futures fail with the {@link RejectedExecutionException}.
+ */
+public class MicroBatcher<I, O> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final Function<List<I>, List<O>> batchHandler;
+    private final Executor dispatchExecutor;
+    private final ScheduledExecutorService timer;
+
+    private final Object lock = new Object();
+    private List<Pending<I, O>> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private int running; // batches handed to the executor and not finished yet, guarded by lock
+
+    public MicroBatcher(String name, int maxBatchSize, long windowMillis, Executor dispatchExecutor,
+                        Function<List<I>, List<O>> batchHandler) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.windowMillis = windowMillis;
+        this.batchHandler = batchHandler;
+        this.dispatchExecutor = dispatchExecutor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-batch-timer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<O> submit(I item) {
+        Pending<I, O> p = new Pending<>(item);
+        List<Pending<I, O>> ready = null;
+        synchronized (lock) {
+            pending.add(p);
+            if (pending.size() >= maxBatchSize || (pending.size() == 1 && running == 0)) {
+                // full, or nothing else in flight to batch with
+                ready = takePending();
+            } else if (pending.size() == 1) {
+                // first item of a new batch starts the window
+                scheduledFlush = timer.schedule(this::flushDue, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return p.future;
+    }
+
+    private void flushDue() {
+        List<Pending<I, O>> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            dispatch(batch);
+        }
+    }
+
+    // caller holds lock; counts the batch as running from here on
+    private List<Pending<I, O>> takePending() {
+        List<Pending<I, O>> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (!batch.isEmpty()) {
+            running++;
+        }
+        return batch;
+    }
+
+    private void dispatch(List<Pending<I, O>> batch) {
+        try {
+            dispatchExecutor.execute(() -> run(batch));
+        } catch (RejectedExecutionException e) {
+            finished();
+            logger.debug("Batch of {} rejected: {}", batch.size(), e.getMessage());
+            for (Pending<I, O> p : batch) {
+                p.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void run(List<Pending<I, O>> batch) {
+        List<I> inputs = new ArrayList<>(batch.size());
+        for (Pending<I, O> p : batch) {
+            inputs.add(p.input);
+        }
+        List<O> outputs = null;
+        Throwable failure = null;
+        try {
+            outputs = batchHandler.apply(inputs);
+            if (outputs == null || outputs.size() != batch.size()) {
+                throw new IllegalStateException("Batch handler returned " + (outputs == null ? 0 : outputs.size())
+                        + " results for " + batch.size() + " inputs");
+            }
+        } catch (Throwable t) {
+            failure = t;
+        }
+        // done before waking callers, so one that submits again right away isn't held for a window
+        finished();
+        if (failure != null) {
+            logger.debug("Batch of {} failed: {}", batch.size(), failure.getMessage());
+            for (Pending<I, O> p : batch) {
+                p.future.completeExceptionally(failure);
+            }
+        } else {
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(outputs.get(i));
+            }
+        }
+    }
+
+    private void finished() {
+        synchronized (lock) {
+            running--;
+        }
+    }
+
+    @Override
+    public void close() {
+        flushDue();
+        timer.shutdown();
+    }
+
+    private static final class Pending<I, O> {
+        final I input;
+        final CompletableFuture<O> future = new CompletableFuture<>();
+
+        Pending(I input) {
+            this.input = input;
+        }
+    }
+}
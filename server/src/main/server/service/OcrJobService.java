@@ -0,0 +1,359 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.OcrJob;
+import com.knowMoreQR.server.OcrJobRepository;
+import com.knowMoreQR.server.PendingOcrJob;
+import com.knowMoreQR.server.PendingOcrJobRepository;
+import com.knowMoreQR.server.ProductDetails;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.data.cassandra.core.InsertOptions;
+import org.springframework.data.cassandra.core.query.Columns;
+import org.springframework.data.cassandra.core.query.Criteria;
+import org.springframework.data.cassandra.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs OCR uploads in the background. A job is written to ocr_job (with the image) before the
+ * client gets its id, so the table rather than the in-memory queue is the source of truth: the
+ * bounded worker pool is just the fast path, and a periodic sweep picks up anything it dropped —
+ * jobs rejected by a full queue, jobs waiting out a retry backoff, and jobs whose worker died with
+ * the process. The sweep reads the bucketed ocr_job_pending index, which holds only unfinished
+ * jobs, rather than scanning ocr_job.
+ *
+ * State changes are lightweight transactions. A claim moves QUEUED to RUNNING and stamps a fresh
+ * lease id; a worker may only finish a job whose lease id is still its own, so a job taken over
+ * after its lease expired can't be overwritten by the worker that was presumed dead. A job whose
+ * lease ran out on its last attempt is failed rather than claimed again, so an image that takes
+ * its worker down with it can't loop forever.
+ */
+@Service
+public class OcrJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrJobService.class);
+
+    private static final String CLAIM_CQL = "UPDATE ocr_job USING TTL ? SET status = ?, attempts = ?, lease_id = ?, "
+            + "lease_until = ?, updated_at = ? WHERE job_id = ? IF status = ? AND attempts = ?";
+    private static final String DONE_CQL = "UPDATE ocr_job USING TTL ? SET status = ?, result_id = ?, image = null, "
+            + "error = null, lease_until = null, updated_at = ? WHERE job_id = ? IF lease_id = ?";
+    private static final String FAILED_CQL = "UPDATE ocr_job USING TTL ? SET status = ?, image = null, error = ?, "
+            + "lease_until = null, updated_at = ? WHERE job_id = ? IF lease_id = ?";
+    private static final String REQUEUE_CQL = "UPDATE ocr_job USING TTL ? SET status = ?, attempts = ?, error = ?, "
+            + "not_before = ?, lease_until = null, updated_at = ? WHERE job_id = ? IF lease_id = ?";
+    private static final String EXHAUSTED_CQL = "UPDATE ocr_job USING TTL ? SET status = ?, image = null, error = ?, "
+            + "lease_until = null, updated_at = ? WHERE job_id = ? IF status = ? AND attempts = ?";
+
+    // everything except the image, for polling
+    private static final Columns SUMMARY = Columns.from("job_id", "status", "attempts", "result_id", "error",
+            "created_at", "updated_at", "not_before", "lease_until");
+
+    private final OcrJobRepository ocrJobRepository;
+    private final PendingOcrJobRepository pendingRepository;
+    private final CassandraOperations cassandraOperations;
+    private final ImageProcessingService imageProcessingService;
+    private final int workers;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final long leaseMillis;
+    private final long backoffMillis;
+    private final long sweepIntervalMillis;
+    private final int ttlSeconds;
+
+    // ids handed to the worker pool and not yet picked up, so a sweep doesn't queue them twice
+    private final Set<UUID> dispatched = ConcurrentHashMap.newKeySet();
+
+    private final Counter completed;
+    private final Counter failed;
+    private final Counter retried;
+
+    private ThreadPoolExecutor workerPool;
+    private ScheduledExecutorService scheduler;
+
+    public OcrJobService(OcrJobRepository ocrJobRepository,
+                         PendingOcrJobRepository pendingRepository,
+                         CassandraOperations cassandraOperations,
+                         ImageProcessingService imageProcessingService,
+                         @Value("${ocr.jobs.workers:0}") int workers,
+                         @Value("${ocr.jobs.queue-capacity:100}") int queueCapacity,
+                         @Value("${ocr.jobs.max-attempts:3}") int maxAttempts,
+                         @Value("${ocr.jobs.lease-ms:120000}") long leaseMillis,
+                         @Value("${ocr.jobs.retry-backoff-ms:5000}") long backoffMillis,
+                         @Value("${ocr.jobs.sweep-interval-ms:60000}") long sweepIntervalMillis,
+                         @Value("${ocr.jobs.ttl-days:7}") int ttlDays,
+                         MeterRegistry meterRegistry) {
+        this.ocrJobRepository = ocrJobRepository;
+        this.pendingRepository = pendingRepository;
+        this.cassandraOperations = cassandraOperations;
+        this.imageProcessingService = imageProcessingService;
+        // 0: one per core, the same as the Tesseract pool, so workers rarely queue for an engine
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.leaseMillis = leaseMillis;
+        this.backoffMillis = backoffMillis;
+        this.sweepIntervalMillis = sweepIntervalMillis;
+        this.ttlSeconds = (int) Duration.ofDays(ttlDays).getSeconds();
+
+        this.completed = meterRegistry.counter("ocr.jobs.completed");
+        this.failed = meterRegistry.counter("ocr.jobs.failed");
+        this.retried = meterRegistry.counter("ocr.jobs.retried");
+        Gauge.builder("ocr.jobs.queued", this, s -> s.workerPool == null ? 0 : s.workerPool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "ocr-job-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ocr-job-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Pick up whatever the last process left queued or half done, without waiting a full interval
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        scheduler.execute(this::sweep);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        // interrupted jobs are requeued without using up an attempt; any that can't be keep their
+        // lease and are taken over once it expires
+        workerPool.shutdownNow();
+    }
+
+    /** Stores the image as a new QUEUED job and hands it to a worker. */
+    public OcrJob submit(byte[] image) {
+        if (image == null || image.length == 0) {
+            throw new IllegalArgumentException("File cannot be null or empty");
+        }
+        OcrJob job = OcrJob.queued(image);
+        // index first: an index row without a job is cleaned up by the sweep, a job without one is lost to it
+        cassandraOperations.insert(new PendingOcrJob(job.getJobId(), job.getNotBefore()),
+                InsertOptions.builder().ttl(ttlSeconds).build());
+        cassandraOperations.insert(job, InsertOptions.builder().ttl(ttlSeconds).build());
+        dispatch(job.getJobId());
+        return job;
+    }
+
+    /** The job without its image, or empty if it doesn't exist (or has expired). */
+    public Optional<OcrJob> find(UUID jobId) {
+        Query query = Query.query(Criteria.where("job_id").is(jobId)).columns(SUMMARY);
+        return Optional.ofNullable(cassandraOperations.selectOne(query, OcrJob.class));
+    }
+
+    private void dispatch(UUID jobId) {
+        if (!dispatched.add(jobId)) {
+            return;
+        }
+        try {
+            workerPool.execute(() -> {
+                dispatched.remove(jobId);
+                run(jobId);
+            });
+        } catch (RejectedExecutionException e) {
+            // the row is already saved, so the next sweep retries it
+            dispatched.remove(jobId);
+            logger.debug("OCR job queue full, leaving job {} for the sweeper", jobId);
+        }
+    }
+
+    /**
+     * Re-dispatches due QUEUED jobs and RUNNING jobs whose lease ran out, one pending-index bucket at
+     * a time. The worker re-reads the job before claiming it, so a stale index row is harmless.
+     */
+    void sweep() {
+        Instant now = Instant.now();
+        for (int bucket = 0; bucket < PendingOcrJob.BUCKETS; bucket++) {
+            try {
+                for (PendingOcrJob pending : pendingRepository.findByBucket(bucket)) {
+                    if (pending.getDueAt() == null || !pending.getDueAt().isAfter(now)) {
+                        dispatch(pending.getJobId());
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("OCR job sweep of bucket {} failed: {}", bucket, e.getMessage());
+            }
+        }
+    }
+
+    private static boolean isDue(OcrJob job, Instant now) {
+        if (OcrJob.Status.QUEUED.name().equals(job.getStatus())) {
+            return job.getNotBefore() == null || !job.getNotBefore().isAfter(now);
+        }
+        return OcrJob.Status.RUNNING.name().equals(job.getStatus())
+                && (job.getLeaseUntil() == null || job.getLeaseUntil().isBefore(now));
+    }
+
+    private void run(UUID jobId) {
+        OcrJob job;
+        try {
+            job = ocrJobRepository.findById(jobId).orElse(null);
+        } catch (RuntimeException e) {
+            logger.warn("Could not load OCR job {}, the sweeper will retry: {}", jobId, e.getMessage());
+            return;
+        }
+        Instant now = Instant.now();
+        if (job == null || job.getImage() == null) {
+            clearPending(jobId); // finished or expired; the index row outlived it
+            return;
+        }
+        if (!isDue(job, now)) {
+            return;
+        }
+
+        int attempt = job.getAttempts() + 1;
+        if (attempt > maxAttempts) {
+            // the lease of its last attempt ran out: the worker died on it, so don't hand it to another
+            boolean exhausted = cassandraOperations.getCqlOperations().execute(EXHAUSTED_CQL, ttlSeconds,
+                    OcrJob.Status.FAILED.name(), "Gave up after " + job.getAttempts() + " attempts", now,
+                    jobId, job.getStatus(), job.getAttempts());
+            if (exhausted) {
+                logger.error("OCR job {} abandoned on its last attempt, failing it", jobId);
+                failed.increment();
+                clearPending(jobId);
+            }
+            return;
+        }
+
+        UUID leaseId = UUID.randomUUID();
+        Instant leaseUntil = now.plusMillis(leaseMillis);
+        boolean claimed = cassandraOperations.getCqlOperations().execute(CLAIM_CQL, ttlSeconds,
+                OcrJob.Status.RUNNING.name(), attempt, leaseId, leaseUntil, now,
+                jobId, job.getStatus(), job.getAttempts());
+        if (!claimed) {
+            return; // another worker or node got there first
+        }
+        markPending(jobId, leaseUntil);
+
+        try {
+            ProductDetails details = imageProcessingService.processImage(new ByteArrayInputStream(bytes(job.getImage())));
+            if (finish(DONE_CQL, jobId, leaseId, OcrJob.Status.DONE.name(), details.getId())) {
+                completed.increment();
+            }
+        } catch (TesseractPool.RejectedException e) {
+            // every engine busy with synchronous uploads: not the image's fault, so it doesn't use up an attempt
+            requeue(jobId, leaseId, job.getAttempts(), e.getMessage(), backoffMillis);
+        } catch (IllegalArgumentException e) {
+            // bad image, retrying won't help
+            fail(jobId, leaseId, e.getMessage());
+        } catch (Exception e) {
+            if (interruptedByShutdown(e)) {
+                // stop() cut the run short: not the image's fault, so the attempt is handed back. The
+                // interrupt is cleared for the requeue's own I/O and restored afterwards.
+                boolean interrupted = Thread.interrupted();
+                try {
+                    requeue(jobId, leaseId, job.getAttempts(), "Interrupted by shutdown", 0);
+                } finally {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            } else if (attempt >= maxAttempts) {
+                logger.error("OCR job {} failed after {} attempts", jobId, attempt, e);
+                fail(jobId, leaseId, e.getMessage());
+            } else {
+                logger.warn("OCR job {} attempt {} failed, retrying: {}", jobId, attempt, e.getMessage());
+                requeue(jobId, leaseId, attempt, e.getMessage(), backoffMillis << (attempt - 1));
+            }
+        }
+    }
+
+    // Depending on where the worker was, the interrupt from shutdownNow() surfaces as an
+    // InterruptedException, an I/O error, or just the flag
+    private boolean interruptedByShutdown(Exception e) {
+        return workerPool.isShutdown() || Thread.currentThread().isInterrupted() || e instanceof InterruptedException;
+    }
+
+    private void fail(UUID jobId, UUID leaseId, String error) {
+        if (finish(FAILED_CQL, jobId, leaseId, OcrJob.Status.FAILED.name(), error)) {
+            failed.increment();
+        }
+    }
+
+    private void requeue(UUID jobId, UUID leaseId, int attempts, String error, long delayMillis) {
+        Instant now = Instant.now();
+        Instant notBefore = now.plusMillis(delayMillis);
+        boolean applied = cassandraOperations.getCqlOperations().execute(REQUEUE_CQL, ttlSeconds,
+                OcrJob.Status.QUEUED.name(), attempts, error, notBefore, now, jobId, leaseId);
+        if (applied) {
+            retried.increment();
+            markPending(jobId, notBefore);
+            if (!scheduler.isShutdown()) {
+                scheduler.schedule(() -> dispatch(jobId), delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    // DONE and FAILED share a shape: status, one value, then the lease check
+    private boolean finish(String cql, UUID jobId, UUID leaseId, String status, Object value) {
+        boolean applied = cassandraOperations.getCqlOperations().execute(cql, ttlSeconds, status, value,
+                Instant.now(), jobId, leaseId);
+        if (!applied) {
+            logger.warn("OCR job {} was taken over before it finished, dropping result", jobId);
+            return false;
+        }
+        clearPending(jobId);
+        return true;
+    }
+
+    // The index is best effort after submit: a row left behind is dropped by run(), and one that
+    // lags behind a claim or requeue only gets the job looked at early
+    private void markPending(UUID jobId, Instant dueAt) {
+        try {
+            cassandraOperations.insert(new PendingOcrJob(jobId, dueAt), InsertOptions.builder().ttl(ttlSeconds).build());
+        } catch (RuntimeException e) {
+            logger.warn("Could not update pending index for OCR job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void clearPending(UUID jobId) {
+        try {
+            pendingRepository.deleteEntry(PendingOcrJob.bucketOf(jobId), jobId);
+        } catch (RuntimeException e) {
+            logger.warn("Could not remove OCR job {} from the pending index: {}", jobId, e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        ByteBuffer copy = buffer.duplicate();
+        byte[] out = new byte[copy.remaining()];
+        copy.get(out);
+        return out;
+    }
+}
@@ -0,0 +1,185 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.ProductDetails;
+import com.knowMoreQR.server.ProductDetailsRepository;
+import com.knowMoreQR.server.ProductHash;
+import com.knowMoreQR.server.ProductHashRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.cassandra.core.AsyncCassandraOperations;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dedupes OCR by image content. Uploads are keyed by the SHA-256 of their bytes: a hash already in
+ * product_hash returns the stored ProductDetails without decoding or OCR, and identical uploads
+ * that arrive while the first is still being processed wait for that one instead of starting
+ * their own.
+ *
+ * Coalescing is per node. Two nodes racing on the same new image both OCR it; the index keeps
+ * whichever mapping lands first (IF NOT EXISTS) and later uploads resolve to that one.
+ */
+@Service
+public class OcrResultCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OcrResultCache.class);
+
+    private static final String INDEX_CQL = "INSERT INTO product_hash (sha256, product_id, created_at) VALUES (?, ?, ?) IF NOT EXISTS";
+
+    private final ProductHashRepository productHashRepository;
+    private final ProductDetailsRepository productDetailsRepository;
+    private final AsyncCassandraOperations asyncCassandraOperations;
+    private final Map<String, CompletableFuture<ProductDetails>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter coalesced;
+    private final Counter misses;
+
+    public OcrResultCache(ProductHashRepository productHashRepository,
+                          ProductDetailsRepository productDetailsRepository,
+                          AsyncCassandraOperations asyncCassandraOperations,
+                          MeterRegistry meterRegistry) {
+        this.productHashRepository = productHashRepository;
+        this.productDetailsRepository = productDetailsRepository;
+        this.asyncCassandraOperations = asyncCassandraOperations;
+        this.hits = meterRegistry.counter("ocr.cache.hits");
+        this.coalesced = meterRegistry.counter("ocr.cache.coalesced");
+        this.misses = meterRegistry.counter("ocr.cache.misses");
+        Gauge.builder("ocr.cache.in-flight", inFlight, Map::size).register(meterRegistry);
+    }
+
+    /** Produces and saves the details for an image that isn't indexed yet. */
+    @FunctionalInterface
+    public interface Loader {
+        CompletableFuture<ProductDetails> load() throws IOException;
+    }
+
+    /**
+     * The details for the image with this hash: from the index, from an identical upload already in
+     * progress, or else from {@code loader}, whose result is then indexed. The index lookup runs on
+     * the calling thread; everything after that completes the returned future.
+     */
+    public CompletableFuture<ProductDetails> get(String sha256, Loader loader) {
+        Optional<ProductDetails> existing = lookup(sha256);
+        if (existing.isPresent()) {
+            hits.increment();
+            return CompletableFuture.completedFuture(existing.get());
+        }
+
+        CompletableFuture<ProductDetails> result = new CompletableFuture<>();
+        CompletableFuture<ProductDetails> running = inFlight.putIfAbsent(sha256, result);
+        if (running != null) {
+            coalesced.increment();
+            return running;
+        }
+
+        misses.increment();
+        CompletableFuture<ProductDetails> loaded;
+        try {
+            loaded = loader.load();
+        } catch (IOException | RuntimeException e) {
+            loaded = CompletableFuture.failedFuture(e);
+        }
+        loaded.thenCompose(details -> index(sha256, details))
+                .whenComplete((details, e) -> {
+                    // leave the map before completing, so a caller woken by this can't find it still running
+                    inFlight.remove(sha256, result);
+                    if (e != null) {
+                        result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    } else {
+                        result.complete(details);
+                    }
+                });
+        return result;
+    }
+
+    /** Waits for {@link #get}, rethrowing what the loader threw. */
+    public static ProductDetails await(CompletableFuture<ProductDetails> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to process image", cause);
+        }
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // every JRE ships it
+        }
+    }
+
+    public static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private Optional<ProductDetails> lookup(String sha256) {
+        try {
+            // a mapping whose product was deleted counts as a miss and gets overwritten below
+            return productHashRepository.findById(sha256)
+                    .flatMap(hash -> productDetailsRepository.findById(hash.getProductId()));
+        } catch (RuntimeException e) {
+            // the cache is an optimization: if the index can't be read, just do the OCR
+            logger.warn("OCR result index lookup failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    // Async so the caller isn't held up by the index write; a failed write only costs a future cache miss
+    private CompletableFuture<ProductDetails> index(String sha256, ProductDetails details) {
+        return asyncCassandraOperations.getAsyncCqlOperations()
+                .execute(INDEX_CQL, sha256, details.getId(), Instant.now())
+                .completable()
+                .handle((applied, e) -> {
+                    if (e != null) {
+                        logger.warn("Could not index OCR result {}: {}", details.getId(), e.getMessage());
+                    } else if (!applied) {
+                        repairStale(sha256, details);
+                    }
+                    return details;
+                });
+    }
+
+    // IF NOT EXISTS lost: either another node indexed the same image first (keep theirs), or the
+    // mapping points at a deleted product, which lookup() skipped over; repoint that one
+    private void repairStale(String sha256, ProductDetails details) {
+        ProductHash hash = new ProductHash();
+        hash.setSha256(sha256);
+        hash.setProductId(details.getId());
+        hash.setCreatedAt(Instant.now());
+        asyncCassandraOperations.selectOneById(sha256, ProductHash.class)
+                .completable()
+                .thenCompose(current -> current == null ? CompletableFuture.completedFuture(false)
+                        : asyncCassandraOperations.exists(current.getProductId(), ProductDetails.class).completable())
+                .thenAccept(stillValid -> {
+                    if (!stillValid) {
+                        asyncCassandraOperations.insert(hash);
+                    }
+                });
+    }
+}
@@ -0,0 +1,133 @@
+package com.knowMoreQR.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wraps every upstream OpenAI call with, in order:
+ * a circuit breaker (fail fast while the upstream is down),
+ * request/token per-minute quotas (token buckets), and
+ * an AIMD concurrency limit driven by observed latency.
+ * Rejected calls throw {@link RejectedException} so the caller can fall back locally.
+ */
+@Component
+public class OpenAiCallGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiCallGuard.class);
+
+    private final CircuitBreaker breaker;
+    private final TokenBucket requestBucket;
+    private final TokenBucket tokenBucket;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    private final Counter rejectedByBreaker;
+    private final Counter rejectedByQuota;
+    private final Counter rejectedByLimit;
+    private final Timer callTimer;
+
+    @Autowired
+    public OpenAiCallGuard(@Value("${openai.limit.requests-per-minute:500}") int requestsPerMinute,
+                           @Value("${openai.limit.tokens-per-minute:60000}") int tokensPerMinute,
+                           @Value("${openai.limit.concurrency.initial:4}") int initialConcurrency,
+                           @Value("${openai.limit.concurrency.max:32}") int maxConcurrency,
+                           @Value("${openai.limit.latency-threshold-ms:3000}") long latencyThresholdMs,
+                           @Value("${openai.breaker.failure-threshold:5}") int failureThreshold,
+                           @Value("${openai.breaker.open-ms:30000}") long breakerOpenMs,
+                           MeterRegistry meterRegistry) {
+        this(new CircuitBreaker(failureThreshold, breakerOpenMs),
+             new TokenBucket(requestsPerMinute, requestsPerMinute),
+             new TokenBucket(tokensPerMinute, tokensPerMinute),
+             new AdaptiveConcurrencyLimiter(initialConcurrency, 1, maxConcurrency, latencyThresholdMs, 0.5),
+             meterRegistry);
+    }
+
+    public OpenAiCallGuard(CircuitBreaker breaker, TokenBucket requestBucket, TokenBucket tokenBucket,
+                           AdaptiveConcurrencyLimiter limiter, MeterRegistry meterRegistry) {
+        this.breaker = breaker;
+        this.requestBucket = requestBucket;
+        this.tokenBucket = tokenBucket;
+        this.limiter = limiter;
+
+        Gauge.builder("openai.calls.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder("openai.calls.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        // 0 = closed, 1 = half open, 2 = open
+        Gauge.builder("openai.breaker.state", breaker, b -> b.getState().ordinal()).register(meterRegistry);
+        FunctionCounter.builder("openai.breaker.rejected", breaker, CircuitBreaker::getRejectedCount).register(meterRegistry);
+        this.rejectedByBreaker = Counter.builder("openai.calls.rejected").tag("reason", "breaker").register(meterRegistry);
+        this.rejectedByQuota = Counter.builder("openai.calls.rejected").tag("reason", "quota").register(meterRegistry);
+        this.rejectedByLimit = Counter.builder("openai.calls.rejected").tag("reason", "concurrency").register(meterRegistry);
+        this.callTimer = Timer.builder("openai.calls.latency").register(meterRegistry);
+    }
+
+    /**
+     * Runs {@code call} if the breaker, quotas and concurrency limit all allow it.
+     *
+     * @param estimatedTokens prompt + completion tokens charged against the per-minute token quota
+     * @throws RejectedException if the call was not attempted
+     */
+    public <T> T execute(int estimatedTokens, Callable<T> call) throws Exception {
+        if (!breaker.tryAcquirePermission()) {
+            rejectedByBreaker.increment();
+            throw new RejectedException("OpenAI circuit breaker is open");
+        }
+        if (!requestBucket.tryAcquire()) {
+            breaker.releasePermission();
+            rejectedByQuota.increment();
+            throw new RejectedException("OpenAI request quota exhausted");
+        }
+        if (!tokenBucket.tryAcquire(estimatedTokens)) {
+            requestBucket.refund(1);
+            breaker.releasePermission();
+            rejectedByQuota.increment();
+            throw new RejectedException("OpenAI token quota exhausted");
+        }
+        if (!limiter.tryAcquire()) {
+            requestBucket.refund(1);
+            tokenBucket.refund(estimatedTokens);
+            breaker.releasePermission();
+            rejectedByLimit.increment();
+            throw new RejectedException("Too many concurrent OpenAI calls");
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            long elapsed = System.nanoTime() - start;
+            limiter.onSuccess(elapsed);
+            breaker.onSuccess();
+            callTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Exception e) {
+            limiter.onFailure();
+            breaker.onFailure();
+            callTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (breaker.getState() == CircuitBreaker.State.OPEN) {
+                logger.warn("OpenAI circuit breaker is open after failure: {}", e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    public CircuitBreaker getBreaker() { return breaker; }
+    public AdaptiveConcurrencyLimiter getLimiter() { return limiter; }
+
+    /**
+     * Thrown when the guard refuses to call the upstream at all.
+     */
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
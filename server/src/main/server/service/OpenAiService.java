@@ -7,14 +7,24 @@ import com.openai.client.models.responses.chat.ChatCompletionResponse;
 import com.openai.client.impl.OpenAiClientImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonSyntaxException;
@@ -23,17 +33,69 @@ import com.google.gson.JsonSyntaxException;
 public class OpenAiService {
 
     private static final Logger logger = LoggerFactory.getLogger(OpenAiService.class);
+
+    // Attribute-based commands are answered with a WishlistFilter expression instead of an item name
+    private static final String FILTER_INSTRUCTIONS =
+            "If a remove or view command selects items by attributes rather than by name, also include 'filter': " +
+            "an expression using fields colour, carbon, water, recycled (values low, medium or high), " +
+            "price (e.g. price:<30 or price:20..50), series and material, combined with and / or / not " +
+            "and parentheses, and leave 'item_query' empty. " +
+            "Example command 'remove everything blue with a high carbon footprint', respond: " +
+            "{\"intent\": \"remove\", \"item_query\": \"\", \"filter\": \"colour:blue and carbon:high\"}. " +
+            "Omit 'filter' otherwise.";
+
+    private static final String SYSTEM_PROMPT = "You are an assistant managing a user's fashion wishlist. " +
+            "Analyze the user's command to determine the primary intent (add, remove, view, clear) " +
+            "and the target item or query if applicable. " +
+            "Respond ONLY with a JSON object containing two fields: 'intent' (string: add, remove, view, clear, or unknown) " +
+            "and 'item_query' (string: the identified item name/description, or empty string if not applicable/found). " +
+            "Example command 'add the blue sweater', respond: {\"intent\": \"add\", \"item_query\": \"blue sweater\"}. " +
+            "Example command 'show my list', respond: {\"intent\": \"view\", \"item_query\": \"\"}. " +
+            "Example command 'get rid of shirts', respond: {\"intent\": \"remove\", \"item_query\": \"shirts\"}. " +
+            FILTER_INSTRUCTIONS;
+
+    // Same task as SYSTEM_PROMPT, but for several numbered commands in one completion
+    private static final String BATCH_SYSTEM_PROMPT = "You are an assistant managing users' fashion wishlists. " +
+            "You will receive a JSON array of commands, each with an 'index' and a 'command'. " +
+            "For EACH command determine the primary intent (add, remove, view, clear, or unknown) " +
+            "and the target item or query if applicable (empty string if not applicable/found). " +
+            "Respond ONLY with a JSON object of the form {\"results\": [{\"index\": 0, \"intent\": \"add\", \"item_query\": \"blue sweater\"}, ...]} " +
+            "containing exactly one result per input index. Treat every command independently. " +
+            FILTER_INSTRUCTIONS;
+
     private final OpenAiClient openAiClient;
+    private final CommandCache commandCache;
+    private final OpenAiCallGuard callGuard;
+    private final LocalCommandParser localCommandParser;
+    private final MicroBatcher<String, ParsedCommand> commandBatcher; // null when batching is disabled
+    private final long batchWaitMillis;
     private final Gson gson = new Gson();
 
-    public OpenAiService(@Value("${openai.api.key}") String apiKey) {
+    public OpenAiService(@Value("${openai.api.key}") String apiKey,
+                         @Value("${openai.timeout-seconds:10}") long timeoutSeconds,
+                         CommandCache commandCache,
+                         OpenAiCallGuard callGuard,
+                         LocalCommandParser localCommandParser,
+                         @Value("${openai.batch.enabled:true}") boolean batchEnabled,
+                         @Value("${openai.batch.window-ms:40}") long batchWindowMs,
+                         @Value("${openai.batch.max-size:8}") int batchMaxSize,
+                         @Qualifier("aiBatchExecutor") ThreadPoolTaskExecutor aiBatchExecutor) {
+        this.commandCache = commandCache;
+        this.callGuard = callGuard;
+        this.localCommandParser = localCommandParser;
+        // Commands arriving within the window share one completion (and one copy of the system prompt)
+        this.commandBatcher = batchEnabled && batchMaxSize > 1
+                ? new MicroBatcher<>("openai", batchMaxSize, batchWindowMs, aiBatchExecutor, this::analyzeBatch)
+                : null;
+        // the window plus one upstream call; the client times the call itself out at timeoutSeconds
+        this.batchWaitMillis = batchWindowMs + TimeUnit.SECONDS.toMillis(timeoutSeconds);
         if (apiKey == null || apiKey.isEmpty() || apiKey.equals("YOUR_API_KEY_HERE")) {
             logger.warn("OpenAI API Key is not configured. AI features will be disabled.");
             this.openAiClient = null; // Or handle differently, e.g., throw exception
         } else {
             logger.info("Initializing OpenAI client...");
-            // Consider making timeout configurable
-            this.openAiClient = new OpenAiClientImpl(apiKey, Duration.ofSeconds(60));
+            // Keep this below nlp.wishlist.deadline-ms so a slow call fails before the request deadline
+            this.openAiClient = new OpenAiClientImpl(apiKey, Duration.ofSeconds(timeoutSeconds));
             logger.info("OpenAI client initialized successfully.");
         }
     }
@@ -51,16 +113,134 @@ public class OpenAiService {
             return new ParsedCommand("error", null, "AI processing is currently unavailable.");
         }
 
-        String systemPrompt = "You are an assistant managing a user's fashion wishlist. " +
-                "Analyze the user's command to determine the primary intent (add, remove, view, clear) " +
-                "and the target item or query if applicable. " +
-                "Respond ONLY with a JSON object containing two fields: 'intent' (string: add, remove, view, clear, or unknown) " +
-                "and 'item_query' (string: the identified item name/description, or empty string if not applicable/found). " +
-                "Example command 'add the blue sweater', respond: {\"intent\": \"add\", \"item_query\": \"blue sweater\"}. " +
-                "Example command 'show my list', respond: {\"intent\": \"view\", \"item_query\": \"\"}. " +
-                "Example command 'get rid of shirts', respond: {\"intent\": \"remove\", \"item_query\": \"shirts\"}.";
+        ParsedCommand cached = commandCache.get(command);
+        if (cached != null) {
+            logger.debug("Command cache hit for: {}", command);
+            return cached;
+        }
+
+        try {
+            ParsedCommand parsed = commandBatcher != null ? awaitBatched(command) : requestStructuredAnalysis(command);
+            commandCache.put(command, parsed); // errors are never cached
+            return parsed;
+        } catch (OpenAiCallGuard.RejectedException e) {
+            return fallback(command, e.getMessage());
+        }
+    }
+
+    private ParsedCommand awaitBatched(String command) {
+        try {
+            return commandBatcher.submit(command).get(batchWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ParsedCommand("error", null, "AI request was cancelled.");
+        } catch (TimeoutException e) {
+            // queued behind other batches for too long; answer locally like any other overload
+            throw new OpenAiCallGuard.RejectedException("Batched OpenAI call timed out");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OpenAiCallGuard.RejectedException) {
+                throw (OpenAiCallGuard.RejectedException) e.getCause();
+            }
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new OpenAiCallGuard.RejectedException("OpenAI batch queue is full");
+            }
+            logger.error("Batched OpenAI analysis failed: {}", e.getCause().getMessage(), e.getCause());
+            return new ParsedCommand("error", null, "Error calling AI service.");
+        }
+    }
+
+    /**
+     * Batch handler for {@link MicroBatcher}: one completion for all commands, results fanned back
+     * out by index. A single command just uses the regular prompt.
+     */
+    List<ParsedCommand> analyzeBatch(List<String> commands) {
+        if (commands.size() == 1) {
+            return List.of(requestStructuredAnalysis(commands.get(0)));
+        }
+
+        JsonArray numbered = new JsonArray();
+        int inputChars = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("index", i);
+            entry.addProperty("command", commands.get(i));
+            numbered.add(entry);
+            inputChars += commands.get(i).length();
+        }
+        String userContent = gson.toJson(numbered);
+        int maxTokens = 40 + 40 * commands.size();
+
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model("gpt-3.5-turbo-0125")
+                .messages(List.of(
+                        Message.builder().role("system").content(BATCH_SYSTEM_PROMPT).build(),
+                        Message.builder().role("user").content(userContent).build()))
+                .maxTokens(maxTokens)
+                .temperature(0.2)
+                .build();
 
-        Message systemMessage = Message.builder().role("system").content(systemPrompt).build();
+        List<ParsedCommand> results = new ArrayList<>(Collections.nCopies(commands.size(),
+                new ParsedCommand("error", null, "Failed to parse AI response.")));
+        try {
+            logger.debug("Sending batch of {} commands to OpenAI", commands.size());
+            ChatCompletionResponse response = callGuard.execute(
+                    estimateTokens(BATCH_SYSTEM_PROMPT, userContent, maxTokens),
+                    () -> openAiClient.createChatCompletion(request));
+            if (response == null || response.getChoices() == null || response.getChoices().isEmpty()) {
+                logger.error("Received no valid choices from OpenAI API for batch of {}.", commands.size());
+                return new ArrayList<>(Collections.nCopies(commands.size(),
+                        new ParsedCommand("error", null, "No response from AI.")));
+            }
+            String jsonResponse = stripCodeFence(response.getChoices().get(0).getMessage().getContent());
+            JsonArray items = JsonParser.parseString(jsonResponse).getAsJsonObject().getAsJsonArray("results");
+            for (JsonElement element : items) {
+                JsonObject item = element.getAsJsonObject();
+                int index = item.has("index") ? item.get("index").getAsInt() : -1;
+                if (index >= 0 && index < results.size()) {
+                    results.set(index, toParsedCommand(item));
+                }
+            }
+            return results;
+        } catch (OpenAiCallGuard.RejectedException e) {
+            throw e;
+        } catch (JsonSyntaxException | IllegalStateException | ClassCastException | NullPointerException e) {
+            logger.error("Failed to parse batched JSON response from OpenAI: {}", e.getMessage());
+            return results;
+        } catch (Exception e) {
+            logger.error("Error calling OpenAI API for batch: {}", e.getMessage(), e);
+            return new ArrayList<>(Collections.nCopies(commands.size(),
+                    new ParsedCommand("error", null, "Error calling AI service.")));
+        }
+    }
+
+    @PreDestroy
+    void shutdownBatcher() {
+        if (commandBatcher != null) {
+            commandBatcher.close();
+        }
+    }
+
+    /**
+     * Degraded answer when the guard refuses to call OpenAI: a previously cached (possibly expired)
+     * result if we have one, otherwise the local keyword parser. Never written back to the cache.
+     */
+    private ParsedCommand fallback(String command, String reason) {
+        ParsedCommand stale = commandCache.getStale(command);
+        if (stale != null) {
+            logger.info("OpenAI call skipped ({}), serving cached result for: {}", reason, command);
+            return stale;
+        }
+        logger.info("OpenAI call skipped ({}), using local parser for: {}", reason, command);
+        return localCommandParser.parse(command);
+    }
+
+    // Rough prompt + completion size used for the tokens-per-minute quota (~4 chars per token)
+    private static int estimateTokens(String prompt, String command, int maxTokens) {
+        return (prompt.length() + command.length()) / 4 + maxTokens;
+    }
+
+    private ParsedCommand requestStructuredAnalysis(String command) {
+        Message systemMessage = Message.builder().role("system").content(SYSTEM_PROMPT).build();
         Message userMessage = Message.builder().role("user").content(command).build();
 
         ChatCompletionRequest request = ChatCompletionRequest.builder()
@@ -74,19 +254,17 @@ public class OpenAiService {
 
         try {
             logger.debug("Sending command to OpenAI for structured analysis: {}", command);
-            ChatCompletionResponse response = openAiClient.createChatCompletion(request);
+            ChatCompletionResponse response = callGuard.execute(
+                    estimateTokens(SYSTEM_PROMPT, command, 150),
+                    () -> openAiClient.createChatCompletion(request));
             if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
                 String jsonResponse = response.getChoices().get(0).getMessage().getContent();
                 logger.debug("Received raw JSON response from OpenAI: {}", jsonResponse);
                 
                 // Attempt to parse the JSON response
                 try {
-                    // Basic cleanup in case the model includes markdown backticks
-                    jsonResponse = jsonResponse.trim().replace("```json", "").replace("```", "").trim(); 
-                    JsonObject parsedJson = JsonParser.parseString(jsonResponse).getAsJsonObject();
-                    String intent = parsedJson.has("intent") ? parsedJson.get("intent").getAsString() : "unknown";
-                    String itemQuery = parsedJson.has("item_query") ? parsedJson.get("item_query").getAsString() : "";
-                    return new ParsedCommand(intent, itemQuery, null); // Success
+                    jsonResponse = stripCodeFence(jsonResponse);
+                    return toParsedCommand(JsonParser.parseString(jsonResponse).getAsJsonObject()); // Success
                 } catch (JsonSyntaxException | IllegalStateException | ClassCastException e) {
                     logger.error("Failed to parse JSON response from OpenAI: {}. Error: {}", jsonResponse, e.getMessage());
                     return new ParsedCommand("error", null, "Failed to parse AI response.");
@@ -95,26 +273,48 @@ public class OpenAiService {
                 logger.error("Received no valid choices from OpenAI API.");
                 return new ParsedCommand("error", null, "No response from AI.");
             }
+        } catch (OpenAiCallGuard.RejectedException e) {
+            throw e; // handled by the caller's fallback
         } catch (Exception e) {
             logger.error("Error calling OpenAI API: {}", e.getMessage(), e);
             return new ParsedCommand("error", null, "Error calling AI service.");
         }
     }
 
+    // Basic cleanup in case the model includes markdown backticks
+    private static String stripCodeFence(String content) {
+        return content.trim().replace("```json", "").replace("```", "").trim();
+    }
+
+    private static ParsedCommand toParsedCommand(JsonObject json) {
+        String intent = json.has("intent") ? json.get("intent").getAsString() : "unknown";
+        String itemQuery = json.has("item_query") ? json.get("item_query").getAsString() : "";
+        String filter = json.has("filter") && !json.get("filter").isJsonNull() ? json.get("filter").getAsString() : "";
+        return new ParsedCommand(intent, itemQuery, filter, null);
+    }
+
     // Simple inner class to hold the parsed command structure
     public static class ParsedCommand {
         private final String intent;
         private final String itemQuery;
+        private final String filter; // WishlistFilter expression, empty unless the command selects by attributes
         private final String errorMessage; // Only populated on error
 
         public ParsedCommand(String intent, String itemQuery, String errorMessage) {
+            this(intent, itemQuery, "", errorMessage);
+        }
+
+        public ParsedCommand(String intent, String itemQuery, String filter, String errorMessage) {
             this.intent = intent != null ? intent : "unknown";
             this.itemQuery = itemQuery != null ? itemQuery : "";
+            this.filter = filter != null ? filter : "";
             this.errorMessage = errorMessage;
         }
 
         public String getIntent() { return intent; }
         public String getItemQuery() { return itemQuery; }
+        public String getFilter() { return filter; }
+        public boolean hasFilter() { return !filter.isBlank(); }
         public String getErrorMessage() { return errorMessage; }
         public boolean hasError() { return errorMessage != null; }
     }
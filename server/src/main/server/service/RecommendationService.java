@@ -0,0 +1,185 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagRepository;
+import com.knowMoreQR.server.auth.WishlistItem;
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * "Saved together" recommendations from wishlist co-occurrence, served from memory.
+ *
+ * The matrix is loaded once from wishlist_items at startup and then kept current from
+ * {@link WishlistChangedEvent}s (after commit), so there is no nightly rebuild and no LLM call per page view.
+ */
+@Service
+public class RecommendationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationService.class);
+
+    // Share of the final score taken by sustainability when re-ranking
+    private static final double SUSTAINABILITY_WEIGHT = 0.3;
+
+    private final WishlistItemRepository wishlistItemRepository;
+    private final TagRepository tagRepository;
+    private final int bootstrapPageSize;
+    private final CoOccurrenceIndex index;
+    private volatile boolean ready;
+    // events that arrive while the bootstrap is loading, replayed in order once it's done; null
+    // afterwards. Guarded by this.
+    private List<WishlistChangedEvent> pendingEvents = new ArrayList<>();
+
+    public RecommendationService(WishlistItemRepository wishlistItemRepository,
+                                 TagRepository tagRepository,
+                                 @Value("${recommend.top-n:50}") int topN,
+                                 @Value("${recommend.min-co-count:1}") int minCoCount,
+                                 @Value("${recommend.max-items-per-consumer:500}") int maxItemsPerConsumer,
+                                 @Value("${recommend.bootstrap-page-size:5000}") int bootstrapPageSize) {
+        this.wishlistItemRepository = wishlistItemRepository;
+        this.tagRepository = tagRepository;
+        this.bootstrapPageSize = bootstrapPageSize;
+        this.index = new CoOccurrenceIndex(topN, minCoCount, maxItemsPerConsumer);
+    }
+
+    /**
+     * Streams wishlist_items by primary key in pages on a background thread. Changes committed
+     * meanwhile are held back and replayed after the load: a page read before a remove committed
+     * would otherwise re-add the row after the remove had already been applied.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrap() {
+        Thread loader = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                long afterId = 0;
+                long rows = 0;
+                while (true) {
+                    List<WishlistItem> page = wishlistItemRepository.findPageAfter(afterId, PageRequest.of(0, bootstrapPageSize));
+                    for (WishlistItem item : page) {
+                        index.add(item.getConsumerId(), item.getTagId());
+                        afterId = item.getId();
+                    }
+                    rows += page.size();
+                    if (page.size() < bootstrapPageSize) {
+                        break;
+                    }
+                }
+                int replayed = replayPendingEvents();
+                logger.info("Co-occurrence index ready: {} rows (+{} replayed changes), {} tags, {} consumers in {} ms",
+                        rows, replayed, index.tagCount(), index.consumerCount(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to build co-occurrence index: {}", e.getMessage(), e);
+                // stay not-ready, but stop holding events back so the buffer can't grow forever
+                synchronized (this) {
+                    pendingEvents = null;
+                }
+            }
+        }, "recommend-bootstrap");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // returns how many events were replayed
+    private synchronized int replayPendingEvents() {
+        int replayed = pendingEvents.size();
+        for (WishlistChangedEvent event : pendingEvents) {
+            apply(event);
+        }
+        pendingEvents = null;
+        ready = true;
+        return replayed;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWishlistChanged(WishlistChangedEvent event) {
+        synchronized (this) {
+            if (pendingEvents != null) {
+                pendingEvents.add(event);
+                return;
+            }
+        }
+        apply(event);
+    }
+
+    private void apply(WishlistChangedEvent event) {
+        for (UUID tagId : event.getTagIds()) {
+            if (event.getType() == WishlistChangedEvent.Type.ADDED) {
+                index.add(event.getConsumerId(), tagId);
+            } else {
+                index.remove(event.getConsumerId(), tagId);
+            }
+        }
+    }
+
+    /**
+     * Tags most often saved together with {@code tagId}, best first. With {@code sustainable} set,
+     * the co-occurrence score is blended with {@link #sustainabilityScore} so greener alternatives rise.
+     * Deleted tags drop out because they no longer load from Cassandra.
+     */
+    public List<Tag> similar(UUID tagId, int limit, boolean sustainable) {
+        List<CoOccurrenceIndex.Neighbour> neighbours = index.similar(tagId);
+        if (neighbours.isEmpty()) {
+            return List.of();
+        }
+        // without re-ranking only the first `limit` can make the cut; re-ranking may promote any of them
+        List<CoOccurrenceIndex.Neighbour> candidates = sustainable || neighbours.size() <= limit
+                ? neighbours
+                : neighbours.subList(0, limit);
+
+        Map<UUID, Tag> tags = new HashMap<>();
+        for (Tag tag : tagRepository.findAllById(candidates.stream()
+                .map(CoOccurrenceIndex.Neighbour::getTagId)
+                .collect(Collectors.toList()))) {
+            tags.put(tag.getId(), tag);
+        }
+
+        double best = candidates.get(0).getScore();
+        List<Map.Entry<Tag, Double>> scored = new ArrayList<>(candidates.size());
+        for (CoOccurrenceIndex.Neighbour n : candidates) {
+            Tag tag = tags.get(n.getTagId());
+            if (tag == null) {
+                continue;
+            }
+            double score = n.getScore() / best;
+            if (sustainable) {
+                score = (1 - SUSTAINABILITY_WEIGHT) * score + SUSTAINABILITY_WEIGHT * sustainabilityScore(tag);
+            }
+            scored.add(Map.entry(tag, score));
+        }
+        return scored.stream()
+                .sorted(Map.Entry.<Tag, Double>comparingByValue(Comparator.reverseOrder()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 0..1, higher is greener: the mean of low carbon (vs 100 kg), low water (vs 10,000 l) and
+     * recycled content. Same metrics as the wishlist filter bands.
+     */
+    static double sustainabilityScore(Tag tag) {
+        double carbon = 1 - Math.min(Math.max(tag.getCarbonFootprint(), 0) / 100.0, 1);
+        double water = 1 - Math.min(Math.max(tag.getWaterUsage(), 0) / 10_000.0, 1);
+        double recycled = Math.min(Math.max(tag.getRecycledContentPercent(), 0) / 100.0, 1);
+        return (carbon + water + recycled) / 3;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+}
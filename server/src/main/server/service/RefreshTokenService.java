@@ -0,0 +1,167 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.auth.RefreshToken;
+import com.knowMoreQR.server.auth.RefreshTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opaque, rotating refresh tokens. Only a SHA-256 of each token is stored, so a leaked table can't
+ * be replayed. Refresh is the only place the database is consulted; access tokens are checked
+ * purely in memory (see {@link TokenDenylist}).
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final RefreshTokenRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final long purgeIntervalMillis;
+    private final SecureRandom random = new SecureRandom();
+
+    private ScheduledExecutorService executor;
+
+    public RefreshTokenService(RefreshTokenRepository repository,
+                               @Qualifier("jpaTransactionManager") PlatformTransactionManager transactionManager,
+                               @Value("${jwt.refresh-expiration-days:30}") long ttlDays,
+                               @Value("${jwt.refresh-purge-interval-ms:3600000}") long purgeIntervalMillis) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofDays(ttlDays);
+        this.purgeIntervalMillis = purgeIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "refresh-token-purge");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::purgeExpired, purgeIntervalMillis, purgeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    /** Starts a new token family (i.e. a login session) and returns its first token. */
+    @Transactional
+    public String issue(Long userId, String userType, String email) {
+        return issue(UUID.randomUUID().toString(), userId, userType, email);
+    }
+
+    private String issue(String familyId, Long userId, String userType, String email) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String raw = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        repository.save(new RefreshToken(hash(raw), familyId, userId, userType, email, Instant.now().plus(ttl)));
+        return raw;
+    }
+
+    /**
+     * Swaps a valid refresh token for its successor. Empty if the token is unknown, expired or
+     * revoked. A token that was already rotated is being replayed, so its whole family is revoked;
+     * that revocation commits even though the call reports failure.
+     */
+    @Transactional
+    public Optional<Rotation> rotate(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<RefreshToken> found = repository.findByTokenHashForUpdate(hash(rawToken));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        RefreshToken current = found.get();
+        Instant now = Instant.now();
+        if (current.getRevokedAt() != null || !current.getExpiresAt().isAfter(now)) {
+            return Optional.empty();
+        }
+        if (current.getUsedAt() != null) {
+            repository.revokeFamily(current.getFamilyId(), now);
+            logger.warn("Refresh token reuse for {} {}, revoked family {}",
+                    current.getUserType(), current.getUserId(), current.getFamilyId());
+            return Optional.empty();
+        }
+        current.setUsedAt(now);
+        String next = issue(current.getFamilyId(), current.getUserId(), current.getUserType(), current.getEmail());
+        return Optional.of(new Rotation(current.getUserId(), current.getUserType(), current.getEmail(), next));
+    }
+
+    /** Ends the session the token belongs to. Unknown tokens are ignored. */
+    @Transactional
+    public void revoke(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) {
+            return;
+        }
+        repository.findByTokenHashForUpdate(hash(rawToken))
+                .ifPresent(token -> repository.revokeFamily(token.getFamilyId(), Instant.now()));
+    }
+
+    void purgeExpired() {
+        try {
+            Integer removed = transactionTemplate.execute(status -> repository.deleteExpired(Instant.now()));
+            logger.debug("Purged {} expired refresh tokens", removed);
+        } catch (RuntimeException e) {
+            logger.warn("Refresh token purge failed: {}", e.getMessage());
+        }
+    }
+
+    static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // every JRE ships it
+        }
+    }
+
+    // Result of a successful rotate: who the token belonged to, and its replacement
+    public static class Rotation {
+        private final Long userId;
+        private final String userType;
+        private final String email;
+        private final String refreshToken;
+
+        public Rotation(Long userId, String userType, String email, String refreshToken) {
+            this.userId = userId;
+            this.userType = userType;
+            this.email = email;
+            this.refreshToken = refreshToken;
+        }
+
+        public Long getUserId() { return userId; }
+        public String getUserType() { return userType; }
+        public String getEmail() { return email; }
+        public String getRefreshToken() { return refreshToken; }
+    }
+}
@@ -0,0 +1,130 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import com.knowMoreQR.server.auth.WishlistOutboxEvent;
+import com.knowMoreQR.server.auth.WishlistOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.cassandra.core.CassandraOperations;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Drains wishlist_outbox into Tag.saves in Cassandra. Wishlist writes only append an outbox row in
+ * their own transaction; this relay locks a batch of rows, recounts the affected tags in MySQL and
+ * writes the absolute counts, then deletes the rows in the same transaction.
+ *
+ * Delivery is at-least-once: if the Cassandra write or the commit fails the rows stay and are retried.
+ * Writing recounted values rather than increments makes a retry harmless, and any number of events
+ * for one tag in a batch collapse into a single write.
+ */
+@Component
+public class SaveCountRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(SaveCountRelay.class);
+
+    // IF EXISTS so a tag deleted in the meantime isn't resurrected as a row holding only saves
+    private static final String UPDATE_CQL = "UPDATE tag SET saves = ? WHERE id = ? IF EXISTS";
+
+    private final WishlistOutboxRepository outboxRepository;
+    private final WishlistItemRepository wishlistItemRepository;
+    private final CassandraOperations cassandraOperations;
+    private final TransactionTemplate transactionTemplate;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final Counter relayed;
+    private final Counter failures;
+
+    private ScheduledExecutorService executor;
+
+    public SaveCountRelay(WishlistOutboxRepository outboxRepository,
+                          WishlistItemRepository wishlistItemRepository,
+                          CassandraOperations cassandraOperations,
+                          @Qualifier("jpaTransactionManager") PlatformTransactionManager transactionManager,
+                          @Value("${outbox.relay.interval-ms:1000}") long intervalMillis,
+                          @Value("${outbox.relay.batch-size:500}") int batchSize,
+                          MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.wishlistItemRepository = wishlistItemRepository;
+        this.cassandraOperations = cassandraOperations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intervalMillis = intervalMillis;
+        this.batchSize = Math.max(1, batchSize);
+        this.relayed = meterRegistry.counter("wishlist.outbox.relayed");
+        this.failures = meterRegistry.counter("wishlist.outbox.failures");
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "outbox-relay");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::drain, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    // Keeps going while batches come back full, so a backlog drains without waiting a tick per batch
+    void drain() {
+        try {
+            int handled;
+            do {
+                Integer count = transactionTemplate.execute(status -> relayBatch());
+                handled = count == null ? 0 : count;
+            } while (handled == batchSize && !executor.isShutdown());
+        } catch (RuntimeException e) {
+            // transaction rolled back: the locked rows are released and picked up next tick
+            failures.increment();
+            logger.warn("Save count relay failed, will retry: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        List<WishlistOutboxEvent> events = outboxRepository.lockOldest(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        Set<UUID> tagIds = new LinkedHashSet<>();
+        for (WishlistOutboxEvent event : events) {
+            tagIds.add(event.getTagId());
+        }
+
+        Map<UUID, Long> counts = new HashMap<>();
+        for (Object[] row : wishlistItemRepository.countByTagIdIn(tagIds)) {
+            counts.put((UUID) row[0], (Long) row[1]);
+        }
+        for (UUID tagId : tagIds) {
+            // tags nobody holds any more aren't in the result, so default to zero
+            int saves = counts.getOrDefault(tagId, 0L).intValue();
+            cassandraOperations.getCqlOperations().execute(UPDATE_CQL, saves, tagId);
+        }
+
+        outboxRepository.deleteByIdIn(events.stream().map(WishlistOutboxEvent::getId).collect(Collectors.toList()));
+        relayed.increment(events.size());
+        logger.debug("Relayed {} outbox events into save counts of {} tags", events.size(), tagIds.size());
+        return events.size();
+    }
+}
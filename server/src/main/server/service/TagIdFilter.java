@@ -0,0 +1,127 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagChangedEvent;
+import com.knowMoreQR.server.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bloom filter of every tag id, so wishlist writes can reject unknown ids without a Cassandra read.
+ * Built from a full scan at startup, then fed from {@link TagChangedEvent}s. A Bloom filter can't
+ * forget an id, so deletes are also kept in an exact set that {@link #mightExist} checks; a rebuild
+ * (which leaves deleted ids out) empties it. The filter is rebuilt at double the size once insertions
+ * outgrow it, and at the same size once {@code max-deleted} deletes have piled up.
+ */
+@Component
+public class TagIdFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagIdFilter.class);
+
+    private final TagRepository tagRepository;
+    private final double falsePositiveRate;
+    private final int maxDeleted;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building; // receives live writes while a rebuild scans
+    private final AtomicLong insertions = new AtomicLong();
+    // deleted id -> sequence number, so a rebuild only clears deletes its scan can't have seen
+    private final Map<UUID, Long> deleted = new ConcurrentHashMap<>();
+    private final AtomicLong deleteSequence = new AtomicLong();
+    private volatile boolean ready;
+
+    public TagIdFilter(TagRepository tagRepository,
+                       @Value("${wishlist.tag-filter.expected-tags:100000}") long expectedTags,
+                       @Value("${wishlist.tag-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                       @Value("${wishlist.tag-filter.max-deleted:10000}") int maxDeleted) {
+        this.tagRepository = tagRepository;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxDeleted = maxDeleted;
+        this.filter = new BloomFilter(expectedTags, falsePositiveRate);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildAtStartup() {
+        rebuildAsync(filter.getExpectedInsertions());
+    }
+
+    private synchronized void rebuildAsync(long expectedTags) {
+        if (building != null) {
+            return; // already rebuilding
+        }
+        BloomFilter next = new BloomFilter(expectedTags, falsePositiveRate);
+        building = next;
+        Thread loader = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                // deletes before this point are already gone from Cassandra, so the scan leaves them out
+                long scanStart = deleteSequence.get();
+                long count = 0;
+                for (Tag tag : tagRepository.findAll()) {
+                    next.put(tag.getId());
+                    count++;
+                }
+                filter = next;
+                insertions.set(count);
+                deleted.values().removeIf(sequence -> sequence < scanStart);
+                ready = true;
+                logger.info("Tag id filter ready: {} ids, {} bits, {} hashes in {} ms",
+                        count, next.getBitCount(), next.getHashCount(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to build tag id filter: {}", e.getMessage(), e);
+            } finally {
+                building = null;
+            }
+        }, "tag-id-filter");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    @EventListener
+    public void onTagChanged(TagChangedEvent event) {
+        if (event.getType() == TagChangedEvent.Type.DELETED) {
+            deleted.put(event.getTagId(), deleteSequence.getAndIncrement());
+            if (deleted.size() > maxDeleted) {
+                logger.info("Tag id filter has {} deleted ids, rebuilding", deleted.size());
+                rebuildAsync(filter.getExpectedInsertions());
+            }
+            return;
+        }
+        deleted.remove(event.getTagId());
+        BloomFilter pending = building;
+        if (pending != null) {
+            pending.put(event.getTagId());
+        }
+        BloomFilter current = filter;
+        current.put(event.getTagId());
+        if (insertions.incrementAndGet() > current.getExpectedInsertions()) {
+            logger.info("Tag id filter over capacity ({} ids), rebuilding", insertions.get());
+            rebuildAsync(current.getExpectedInsertions() * 2);
+        }
+    }
+
+    /**
+     * False means the tag definitely doesn't exist (never created, or deleted). Always true until the
+     * startup scan finishes, so callers must fall back to the database while {@link #isReady()} is false.
+     */
+    public boolean mightExist(UUID tagId) {
+        return !ready || (filter.mightContain(tagId) && !deleted.containsKey(tagId));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    int deletedCount() {
+        return deleted.size();
+    }
+}
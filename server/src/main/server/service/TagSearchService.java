@@ -0,0 +1,331 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagChangedEvent;
+import com.knowMoreQR.server.TagRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Hybrid tag search: approximate nearest neighbours over tag embeddings (name, series,
+ * description, materials) blended with a lexical score on name/series. Lexical hits are word
+ * prefixes looked up in the fuzzy matcher's term trie, so a query never scans every tag. A query
+ * word that prefixes nothing (a typo: "organik cotten tee") is matched by edit distance instead, so
+ * one correctly spelt word doesn't keep the misspelt ones from counting. The indexes are built
+ * once at startup, then kept current from {@link TagChangedEvent}s; the HNSW index is compacted in
+ * the background once enough of it is tombstones.
+ */
+@Service
+public class TagSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TagSearchService.class);
+
+    private final TagRepository tagRepository;
+    private final EmbeddingProvider embeddingProvider;
+    private final String indexPath;
+    private final double lexicalWeight;
+    private final double minSemanticScore;
+    private final long fuzzyBudgetNanos;
+    private final double addMargin;
+    private final double compactRatio;
+    private final int compactMinTombstones;
+
+    private final HnswIndex index;
+    private final FuzzyTagMatcher fuzzyMatcher = new FuzzyTagMatcher();
+    // Lower-cased "name series" per tag, for whole-phrase hits among the lexical candidates
+    private final Map<UUID, String> lexicalText = new ConcurrentHashMap<>();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile boolean ready;
+
+    public TagSearchService(TagRepository tagRepository,
+                            EmbeddingProvider embeddingProvider,
+                            @Value("${tag.search.index-path:}") String indexPath,
+                            @Value("${tag.search.lexical-weight:0.5}") double lexicalWeight,
+                            @Value("${tag.search.min-semantic-score:0.3}") double minSemanticScore,
+                            @Value("${tag.search.fuzzy-budget-ms:20}") long fuzzyBudgetMs,
+                            @Value("${tag.search.add-margin:0.15}") double addMargin,
+                            @Value("${tag.search.compact-ratio:0.3}") double compactRatio,
+                            @Value("${tag.search.compact-min-tombstones:1000}") int compactMinTombstones) throws IOException {
+        this.tagRepository = tagRepository;
+        this.embeddingProvider = embeddingProvider;
+        this.indexPath = indexPath;
+        this.lexicalWeight = lexicalWeight;
+        this.minSemanticScore = minSemanticScore;
+        this.fuzzyBudgetNanos = fuzzyBudgetMs * 1_000_000L;
+        this.addMargin = addMargin;
+        this.compactRatio = compactRatio;
+        this.compactMinTombstones = compactMinTombstones;
+        this.index = indexPath.isBlank()
+                ? HnswIndex.inMemory(embeddingProvider.dimension(), 16, 6, 100)
+                : HnswIndex.open(Paths.get(indexPath), embeddingProvider.dimension(), 16, 6, 100, embeddingProvider.id());
+    }
+
+    /**
+     * Reconciles the (possibly persisted) index with Cassandra on a background thread, so startup
+     * isn't blocked. Until it finishes, searches fall back to a plain scan.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        Thread builder = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                // only entries that predate this scan can be stale; tags saved meanwhile arrive via events
+                List<UUID> persisted = index.ids();
+                Set<UUID> seen = new HashSet<>();
+                int embedded = 0;
+                for (Tag tag : tagRepository.findAll()) {
+                    seen.add(tag.getId());
+                    if (index(tag)) {
+                        embedded++;
+                    }
+                }
+                for (UUID stale : persisted) {
+                    if (!seen.contains(stale)) {
+                        index.remove(stale);
+                        fuzzyMatcher.remove(stale);
+                    }
+                }
+                index.flush();
+                ready = true;
+                compactIfNeeded();
+                logger.info("Tag search index ready: {} tags ({} re-embedded), {} fuzzy terms in {} ms",
+                        index.size(), embedded, fuzzyMatcher.termCount(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to build tag search index: {}", e.getMessage(), e);
+            }
+        }, "tag-search-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    @EventListener
+    public void onTagChanged(TagChangedEvent event) {
+        if (event.getType() == TagChangedEvent.Type.DELETED) {
+            index.remove(event.getTagId());
+            lexicalText.remove(event.getTagId());
+            fuzzyMatcher.remove(event.getTagId());
+        } else if (event.getTag() != null) {
+            index(event.getTag());
+        }
+        compactIfNeeded();
+    }
+
+    // Updates and deletes leave tombstones that searches still walk through; rebuild off the request thread
+    private void compactIfNeeded() {
+        if (!ready || index.tombstones() < compactMinTombstones || index.tombstoneRatio() < compactRatio
+                || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        Thread compactor = new Thread(() -> {
+            try {
+                long start = System.currentTimeMillis();
+                int tombstones = index.tombstones();
+                index.compact();
+                index.flush();
+                logger.info("Compacted tag search index: dropped {} tombstones, {} tags in {} ms",
+                        tombstones, index.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("Failed to compact tag search index: {}", e.getMessage(), e);
+            } finally {
+                compacting.set(false);
+            }
+        }, "tag-search-compact");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Adds or refreshes one tag. Returns true if it had to be (re-)embedded.
+     */
+    private boolean index(Tag tag) {
+        if (tag.getId() == null) {
+            return false;
+        }
+        lexicalText.put(tag.getId(), lexicalText(tag));
+        fuzzyMatcher.put(tag.getId(), lexicalText(tag));
+        String text = embeddingText(tag);
+        int textHash = text.hashCode();
+        if (Objects.equals(index.textHash(tag.getId()), textHash)) {
+            return false; // persisted entry is still current
+        }
+        index.upsert(tag.getId(), embeddingProvider.embed(text), textHash);
+        return true;
+    }
+
+    /**
+     * Returns tags matching {@code query}, best first. Results well below the best score are dropped,
+     * so an exact name hit isn't diluted by loosely related tags.
+     */
+    public List<Tag> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        if (!ready) {
+            return scan(query, limit);
+        }
+        return loadInOrder(rank(query, limit, true));
+    }
+
+    /**
+     * For callers that act on the top result (the NLP add command): only tags that match the query's
+     * words in their name or series, never tags that are merely semantically close. If the best one
+     * beats the runner-up by at least {@code tag.search.add-margin}, it is returned alone.
+     */
+    public List<Tag> searchLexical(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            return List.of();
+        }
+        if (!ready) {
+            return scan(query, limit);
+        }
+        return loadInOrder(rank(query, limit, false));
+    }
+
+    // Ids best first; the lexical-only ranking also applies the add margin
+    List<UUID> rank(String query, int limit, boolean includeSemanticOnly) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT).trim();
+        Map<UUID, Double> semantic = new HashMap<>();
+        for (HnswIndex.Hit hit : index.search(embeddingProvider.embed(query), limit * 4, 64)) {
+            semantic.put(hit.getId(), (double) hit.getScore());
+        }
+
+        Map<UUID, Double> combined = new HashMap<>();
+        lexicalScores(lowerQuery).forEach((id, lexical) ->
+                combined.put(id, blend(lexical, semantic.getOrDefault(id, 0.0))));
+        if (includeSemanticOnly) {
+            for (Map.Entry<UUID, Double> e : semantic.entrySet()) {
+                if (e.getValue() >= minSemanticScore) {
+                    combined.putIfAbsent(e.getKey(), blend(0, e.getValue()));
+                }
+            }
+        }
+        if (combined.isEmpty()) {
+            return List.of();
+        }
+
+        double best = combined.values().stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        List<Map.Entry<UUID, Double>> ranked = combined.entrySet().stream()
+                .filter(e -> e.getValue() >= best * 0.75)
+                .sorted(Map.Entry.<UUID, Double>comparingByValue().reversed())
+                .limit(limit)
+                .collect(Collectors.toList());
+        if (!includeSemanticOnly && ranked.size() > 1 && ranked.get(0).getValue() - ranked.get(1).getValue() >= addMargin) {
+            ranked = ranked.subList(0, 1);
+        }
+        return ranked.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    private double blend(double lexical, double semantic) {
+        return lexicalWeight * lexical + (1 - lexicalWeight) * semantic;
+    }
+
+    /**
+     * 1.0 when name/series contains the whole query (the old substring behaviour), otherwise the
+     * query words matched, as a fraction of all of them, times 0.8. A word counts fully if it starts
+     * a word of the tag's name or series; a word that starts no word of any tag counts by its
+     * edit-distance similarity to the nearest one. Candidates come from the term trie, so only tags
+     * sharing a (near) word with the query are looked at.
+     */
+    private Map<UUID, Double> lexicalScores(String lowerQuery) {
+        String[] words = lowerQuery.split("[^\\p{L}\\p{N}]+");
+        long deadline = System.nanoTime() + fuzzyBudgetNanos;
+        Map<UUID, Double> found = new HashMap<>();
+        for (String word : words) {
+            if (word.length() <= 2) {
+                continue;
+            }
+            Set<UUID> prefixed = fuzzyMatcher.tagsWithPrefix(word);
+            if (!prefixed.isEmpty()) {
+                for (UUID id : prefixed) {
+                    found.merge(id, 1.0, Double::sum);
+                }
+            } else {
+                // likely a typo
+                fuzzyMatcher.similar(word, deadline).forEach((id, sim) -> found.merge(id, sim, Double::sum));
+            }
+        }
+        Map<UUID, Double> scores = new HashMap<>();
+        found.forEach((id, matched) -> {
+            String text = lexicalText.get(id);
+            scores.put(id, text != null && text.contains(lowerQuery) ? 1.0 : matched / words.length * 0.8);
+        });
+        return scores;
+    }
+
+    private List<Tag> loadInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, Tag> byId = new HashMap<>();
+        for (Tag tag : tagRepository.findAllById(ids)) {
+            byId.put(tag.getId(), tag);
+        }
+        List<Tag> ordered = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            Tag tag = byId.get(id);
+            if (tag != null) {
+                ordered.add(tag);
+            }
+        }
+        return ordered;
+    }
+
+    // Pre-index behaviour: full scan with substring matching
+    private List<Tag> scan(String query, int limit) {
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        return tagRepository.findAll().stream()
+                .filter(tag -> lexicalText(tag).contains(lowerQuery))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    private static String lexicalText(Tag tag) {
+        return (nullToEmpty(tag.getName()) + " " + nullToEmpty(tag.getSeries())).toLowerCase(Locale.ROOT);
+    }
+
+    private static String embeddingText(Tag tag) {
+        return String.join(" ", nullToEmpty(tag.getName()), nullToEmpty(tag.getSeries()),
+                nullToEmpty(tag.getDescription()), nullToEmpty(tag.getMaterials()));
+    }
+
+    private static String nullToEmpty(String s) {
+        return s == null ? "" : s;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    int indexTombstones() {
+        return index.tombstones();
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            index.close();
+        } catch (IOException e) {
+            logger.warn("Could not close tag search index {}: {}", indexPath, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.knowMoreQR.server.service;
+
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+import net.sourceforge.tess4j.TessAPI1;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One native Tesseract instance, initialized once and reused. tess4j's {@code Tesseract} class
+ * re-runs Init (reloading the traineddata) on every doOCR call; talking to the C API directly
+ * keeps the loaded model. Not thread-safe: {@link TesseractPool} hands each engine to one
+ * thread at a time.
+ */
+class TesseractEngine implements AutoCloseable {
+
+    private final TessAPI1.TessBaseAPI handle;
+
+    TesseractEngine(String datapath, String language) {
+        handle = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit3(handle, datapath, language) != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new IllegalStateException("Could not initialize Tesseract (datapath=" + datapath + ", language=" + language + ")");
+        }
+        TessAPI1.TessBaseAPISetPageSegMode(handle, TessPageSegMode.PSM_AUTO);
+    }
+
+    String recognize(BufferedImage image) {
+        BufferedImage gray = toGray(image);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(pixels.length);
+        buffer.put(pixels).flip();
+        try {
+            // 8 bits per pixel, rows packed back to back
+            TessAPI1.TessBaseAPISetImage(handle, buffer, gray.getWidth(), gray.getHeight(), 1, gray.getWidth());
+            Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+            if (text == null) {
+                return "";
+            }
+            try {
+                return text.getString(0, StandardCharsets.UTF_8.name());
+            } finally {
+                TessAPI1.TessDeleteText(text);
+            }
+        } finally {
+            TessAPI1.TessBaseAPIClear(handle); // drop the image and results, keep the model
+        }
+    }
+
+    private static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && image.getRaster().getDataBuffer().getSize() == image.getWidth() * image.getHeight()) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        gray.getGraphics().drawImage(image, 0, 0, null);
+        return gray;
+    }
+
+    @Override
+    public void close() {
+        TessAPI1.TessBaseAPIEnd(handle);
+        TessAPI1.TessBaseAPIDelete(handle);
+    }
+}
@@ -0,0 +1,143 @@
+package com.knowMoreQR.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed set of pre-initialized Tesseract engines, one per core by default. Each call borrows an
+ * engine for the duration of one image, so native memory is bounded by the pool size rather than
+ * by the number of concurrent uploads. At most {@code maxWaiting} callers may queue for an engine,
+ * each for at most {@code acquireTimeoutMs}; anyone beyond that is rejected straight away.
+ */
+@Component
+public class TesseractPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(TesseractPool.class);
+
+    private final String datapath;
+    private final String language;
+    private final int size;
+    private final long acquireTimeoutMs;
+    private final Semaphore admission;
+    private final int totalPermits;
+    private final BlockingQueue<TesseractEngine> idle;
+    private volatile int ready;
+
+    private final Timer ocrTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public TesseractPool(@Value("${ocr.tessdata-path:}") String datapath,
+                         @Value("${ocr.language:eng}") String language,
+                         @Value("${ocr.pool.size:0}") int size,
+                         @Value("${ocr.pool.max-waiting:16}") int maxWaiting,
+                         @Value("${ocr.pool.acquire-timeout-ms:10000}") long acquireTimeoutMs,
+                         MeterRegistry meterRegistry) {
+        // empty path: let Tesseract fall back to TESSDATA_PREFIX
+        this.datapath = datapath == null || datapath.isBlank() ? null : datapath;
+        this.language = language;
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.totalPermits = this.size + Math.max(0, maxWaiting);
+        this.admission = new Semaphore(totalPermits);
+        this.idle = new ArrayBlockingQueue<>(this.size);
+
+        Gauge.builder("ocr.pool.size", this, p -> p.ready).register(meterRegistry);
+        Gauge.builder("ocr.pool.in-use", this, p -> p.ready - p.idle.size()).register(meterRegistry);
+        Gauge.builder("ocr.pool.utilization", this, p -> p.ready == 0 ? 0.0 : (double) (p.ready - p.idle.size()) / p.ready)
+                .register(meterRegistry);
+        Gauge.builder("ocr.pool.waiting", this, p -> Math.max(0, p.queued())).register(meterRegistry);
+        this.ocrTimer = Timer.builder("ocr.image.duration").publishPercentiles(0.5, 0.95, 0.99).register(meterRegistry);
+        this.waitTimer = Timer.builder("ocr.pool.wait").register(meterRegistry);
+        this.rejected = meterRegistry.counter("ocr.pool.rejected");
+    }
+
+    @PostConstruct
+    public void start() {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            try {
+                idle.add(new TesseractEngine(datapath, language));
+                ready++;
+            } catch (RuntimeException | LinkageError e) {
+                // missing tessdata or native library: keep the app up, uploads will get 503s
+                logger.error("Tesseract engine {} failed to start: {}", i, e.getMessage());
+                break;
+            }
+        }
+        logger.info("Tesseract pool ready: {}/{} engines ({}) in {} ms", ready, size, language, System.currentTimeMillis() - start);
+    }
+
+    @PreDestroy
+    public void stop() {
+        TesseractEngine engine;
+        while ((engine = idle.poll()) != null) {
+            engine.close();
+        }
+    }
+
+    /**
+     * OCRs one image on a pooled engine.
+     *
+     * @throws RejectedException if the wait queue is full or no engine frees up in time
+     */
+    public String recognize(BufferedImage image) throws InterruptedException {
+        if (ready == 0) {
+            throw new RejectedException("OCR is unavailable");
+        }
+        if (!admission.tryAcquire()) {
+            rejected.increment();
+            throw new RejectedException("OCR queue is full");
+        }
+        try {
+            long waitStart = System.nanoTime();
+            TesseractEngine engine = idle.poll(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+            waitTimer.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+            if (engine == null) {
+                rejected.increment();
+                throw new RejectedException("Timed out waiting for an OCR engine");
+            }
+            try {
+                long ocrStart = System.nanoTime();
+                String text = engine.recognize(image);
+                ocrTimer.record(System.nanoTime() - ocrStart, TimeUnit.NANOSECONDS);
+                return text;
+            } finally {
+                idle.add(engine);
+            }
+        } finally {
+            admission.release();
+        }
+    }
+
+    /** Engines that started, i.e. how many images can be OCR'd at once. */
+    public int size() {
+        return ready;
+    }
+
+    // callers admitted but still waiting for an engine (approximate, for the gauge)
+    private int queued() {
+        int admitted = totalPermits - admission.availablePermits();
+        return admitted - (ready - idle.size());
+    }
+
+    public static class RejectedException extends RuntimeException {
+        public RejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.knowMoreQR.server.service;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. The whole state (tokens + last refill time) lives in one
+ * immutable snapshot that is swapped with CAS, so concurrent callers never block.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final AtomicReference<State> state;
+
+    /**
+     * @param capacity        maximum burst size
+     * @param refillPerMinute tokens added back per minute
+     */
+    public TokenBucket(double capacity, double refillPerMinute) {
+        if (capacity <= 0 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.refillPerNano = refillPerMinute / 60_000_000_000d;
+        this.state = new AtomicReference<>(new State(capacity, System.nanoTime()));
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    public boolean tryAcquire(double permits) {
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            double available = refilled(current, now);
+            if (available < permits) {
+                return false;
+            }
+            if (state.compareAndSet(current, new State(available - permits, now))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gives back permits taken by {@link #tryAcquire(double)} when a later check failed.
+     */
+    public void refund(double permits) {
+        while (true) {
+            State current = state.get();
+            long now = System.nanoTime();
+            double tokens = Math.min(capacity, refilled(current, now) + permits);
+            if (state.compareAndSet(current, new State(tokens, now))) {
+                return;
+            }
+        }
+    }
+
+    public double availableTokens() {
+        return refilled(state.get(), System.nanoTime());
+    }
+
+    /**
+     * True once the bucket has refilled completely, i.e. nobody has used it recently.
+     */
+    public boolean isFull() {
+        return availableTokens() >= capacity;
+    }
+
+    private double refilled(State s, long now) {
+        return Math.min(capacity, s.tokens + (now - s.lastRefillNanos) * refillPerNano);
+    }
+
+    private static final class State {
+        final double tokens;
+        final long lastRefillNanos;
+
+        State(double tokens, long lastRefillNanos) {
+            this.tokens = tokens;
+            this.lastRefillNanos = lastRefillNanos;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.auth.RevokedToken;
+import com.knowMoreQR.server.auth.RevokedTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked JWT ids, checked in memory on every authenticated request. The revoked_tokens table is
+ * the shared record: revocations are written through to it and every instance re-reads it
+ * periodically, so a token revoked on another node stops working within one sync interval.
+ * Entries are dropped once the token they name has expired.
+ *
+ * A Bloom filter sits in front of the exact set, so the common case (token not revoked) is a few
+ * bit reads with no hashing of map keys or lock traffic. Since Bloom entries can't be removed, the
+ * filter is rebuilt from the exact set on every sync.
+ */
+@Component
+public class TokenDenylist {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenDenylist.class);
+
+    private final RevokedTokenRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final long syncMillis;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+
+    // jti -> expiry (epoch millis)
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private ScheduledExecutorService executor;
+
+    public TokenDenylist(RevokedTokenRepository repository,
+                         @Qualifier("jpaTransactionManager") PlatformTransactionManager transactionManager,
+                         @Value("${jwt.denylist.sync-ms:30000}") long syncMillis,
+                         @Value("${jwt.denylist.expected-size:10000}") long expectedRevocations,
+                         @Value("${jwt.denylist.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.syncMillis = syncMillis;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-denylist-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        // first run immediately, so revocations survive a restart
+        executor.scheduleWithFixedDelay(this::sync, 0, syncMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public boolean isRevoked(String jti) {
+        // a Bloom "no" is definite; only a "maybe" needs the exact set
+        return jti != null && filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    /** Revokes a token until {@code expiresAt}; takes effect on this instance immediately. */
+    public void revoke(String jti, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) {
+            return; // nothing to revoke, or it's already unusable
+        }
+        repository.save(new RevokedToken(jti, expiresAt));
+        revoked.put(jti, expiresAt.toEpochMilli());
+        filter.put(jti);
+    }
+
+    // revoke() adds to the map before the filter, so the second pass catches any id that
+    // was put into the old filter while this one was being filled
+    private synchronized void rebuildFilter() {
+        BloomFilter next = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2L), falsePositiveRate);
+        for (String jti : revoked.keySet()) {
+            next.put(jti);
+        }
+        filter = next;
+        for (String jti : revoked.keySet()) {
+            next.put(jti);
+        }
+    }
+
+    void sync() {
+        try {
+            Instant now = Instant.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                repository.deleteExpired(now);
+                for (RevokedToken token : repository.findByExpiresAtAfter(now)) {
+                    revoked.put(token.getJti(), token.getExpiresAt().toEpochMilli());
+                }
+            });
+            long nowMillis = now.toEpochMilli();
+            revoked.values().removeIf(expiry -> expiry <= nowMillis);
+            rebuildFilter();
+        } catch (RuntimeException e) {
+            // keep serving from the last known set
+            logger.warn("Token denylist sync failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Plain-JDBC batched inserts for wishlist_items. WishlistItem uses IDENTITY ids, which makes Hibernate
+ * send one INSERT per entity; going through JdbcTemplate sends them as real JDBC batches (rewritten
+ * into multi-row INSERTs by Connector/J, see JpaConfig). Joins the caller's JPA transaction.
+ *
+ * INSERT IGNORE downgrades every error to a warning, not just the duplicate key it's here for, so the
+ * statement's warnings are checked and anything else (a bad foreign key, truncated data) is thrown.
+ */
+@Component
+public class WishlistBatchWriter {
+
+    static final String INSERT_SQL =
+            "INSERT IGNORE INTO wishlist_items (consumer_id, tag_id, added_at) VALUES (?, ?, ?)";
+
+    static final String OUTBOX_SQL =
+            "INSERT INTO wishlist_outbox (tag_id, created_at) VALUES (?, ?)";
+
+    private static final int ER_DUP_ENTRY = 1062;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public WishlistBatchWriter(@Qualifier("jpaDataSource") DataSource dataSource,
+                               @Value("${wishlist.batch.jdbc-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
+    }
+
+    /** Adds the pair unless it already exists, in one statement. Returns true if a row was inserted. */
+    public boolean insertIfAbsent(Long consumerId, UUID tagId) {
+        Boolean inserted = jdbcTemplate.execute(INSERT_SQL, (PreparedStatementCallback<Boolean>) ps -> {
+            bind(ps, consumerId, tagId, Timestamp.from(Instant.now()));
+            int rows = ps.executeUpdate();
+            throwIgnoredErrors(ps.getWarnings());
+            return rows > 0;
+        });
+        return Boolean.TRUE.equals(inserted);
+    }
+
+    /**
+     * Inserts every (consumerId, tagId) pair, skipping ones already present, and returns the ids that
+     * were actually inserted. Those come from the per-row update counts; a batch Connector/J rewrote
+     * into one multi-row INSERT reports no per-row counts, so its rows are read back instead. Under
+     * REPEATABLE READ that read only sees this transaction's own inserts and the rows that existed when
+     * its snapshot was taken, so callers must leave out the ids they already found in the wishlist.
+     */
+    public List<UUID> insertAll(Long consumerId, List<UUID> tagIds) {
+        if (tagIds.isEmpty()) {
+            return List.of();
+        }
+        Timestamp addedAt = Timestamp.from(Instant.now());
+        List<UUID> inserted = new ArrayList<>(tagIds.size());
+        List<UUID> uncounted = new ArrayList<>();
+        jdbcTemplate.execute(INSERT_SQL, (PreparedStatementCallback<Void>) ps -> {
+            for (int from = 0; from < tagIds.size(); from += batchSize) {
+                List<UUID> chunk = tagIds.subList(from, Math.min(tagIds.size(), from + batchSize));
+                for (UUID tagId : chunk) {
+                    bind(ps, consumerId, tagId, addedAt);
+                    ps.addBatch();
+                }
+                int[] counts = ps.executeBatch();
+                throwIgnoredErrors(ps.getWarnings());
+                ps.clearWarnings();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (i >= counts.length || counts[i] == Statement.SUCCESS_NO_INFO) {
+                        uncounted.add(chunk.get(i));
+                    } else if (counts[i] > 0) {
+                        inserted.add(chunk.get(i));
+                    }
+                }
+            }
+            return null;
+        });
+        if (!uncounted.isEmpty()) {
+            inserted.addAll(findPresent(consumerId, uncounted));
+        }
+        return inserted;
+    }
+
+    private List<UUID> findPresent(Long consumerId, List<UUID> tagIds) {
+        List<UUID> present = new ArrayList<>(tagIds.size());
+        for (int from = 0; from < tagIds.size(); from += batchSize) {
+            List<UUID> chunk = tagIds.subList(from, Math.min(tagIds.size(), from + batchSize));
+            Object[] args = new Object[chunk.size() + 1];
+            args[0] = consumerId;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = WishlistItemRepository.uuidToBytes(chunk.get(i));
+            }
+            String in = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            for (byte[] tagId : jdbcTemplate.queryForList(
+                    "SELECT tag_id FROM wishlist_items WHERE consumer_id = ? AND tag_id IN (" + in + ")", byte[].class, args)) {
+                present.add(WishlistItemRepository.uuidFromBytes(tagId));
+            }
+        }
+        return present;
+    }
+
+    private static void bind(PreparedStatement ps, Long consumerId, UUID tagId, Timestamp addedAt) throws SQLException {
+        ps.setLong(1, consumerId);
+        ps.setBytes(2, WishlistItemRepository.uuidToBytes(tagId));
+        ps.setTimestamp(3, addedAt);
+    }
+
+    // Rethrows what INSERT IGNORE turned into warnings, other than the duplicates it is meant to skip.
+    // JdbcTemplate translates the exception and the caller's transaction rolls back.
+    static void throwIgnoredErrors(SQLWarning warning) throws SQLException {
+        for (; warning != null; warning = warning.getNextWarning()) {
+            if (warning.getErrorCode() != ER_DUP_ENTRY) {
+                throw new SQLException(warning.getMessage(), warning.getSQLState(), warning.getErrorCode());
+            }
+        }
+    }
+
+    /**
+     * Records that the save counts of {@code tagIds} changed, for {@link SaveCountRelay} to pick up.
+     * Must run inside the transaction that made the change, so the two commit or roll back together.
+     */
+    public void appendOutbox(Collection<UUID> tagIds) {
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        jdbcTemplate.batchUpdate(OUTBOX_SQL, new ArrayList<>(tagIds), batchSize, (ps, tagId) -> {
+            ps.setBytes(1, WishlistItemRepository.uuidToBytes(tagId));
+            ps.setTimestamp(2, createdAt);
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.knowMoreQR.server.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Published by {@link WishlistService} whenever rows are added to or removed from a consumer's
+ * wishlist, so derived data (co-occurrence recommendations, counters...) can update incrementally.
+ */
+public class WishlistChangedEvent {
+
+    public enum Type { ADDED, REMOVED }
+
+    private final Type type;
+    private final Long consumerId;
+    private final List<UUID> tagIds;
+
+    private WishlistChangedEvent(Type type, Long consumerId, Collection<UUID> tagIds) {
+        this.type = type;
+        this.consumerId = consumerId;
+        this.tagIds = List.copyOf(tagIds);
+    }
+
+    public static WishlistChangedEvent added(Long consumerId, UUID tagId) {
+        return new WishlistChangedEvent(Type.ADDED, consumerId, List.of(tagId));
+    }
+
+    public static WishlistChangedEvent added(Long consumerId, Collection<UUID> tagIds) {
+        return new WishlistChangedEvent(Type.ADDED, consumerId, tagIds);
+    }
+
+    public static WishlistChangedEvent removed(Long consumerId, Collection<UUID> tagIds) {
+        return new WishlistChangedEvent(Type.REMOVED, consumerId, tagIds);
+    }
+
+    public Type getType() { return type; }
+    public Long getConsumerId() { return consumerId; }
+    public List<UUID> getTagIds() { return tagIds; }
+}
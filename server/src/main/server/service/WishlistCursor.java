@@ -0,0 +1,44 @@
+package com.knowMoreQR.server.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for wishlist pages: the (added_at, id) of the last row returned.
+ * Encoded as URL-safe base64 so clients treat it as a token, not something to construct.
+ */
+public final class WishlistCursor {
+
+    private final Instant addedAt;
+    private final long id;
+
+    public WishlistCursor(Instant addedAt, long id) {
+        this.addedAt = addedAt;
+        this.id = id;
+    }
+
+    public String encode() {
+        String raw = addedAt.getEpochSecond() + ":" + addedAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static WishlistCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor.");
+            }
+            return new WishlistCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException | DateTimeException e) {
+            // NumberFormatException is an IllegalArgumentException too
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public Instant getAddedAt() { return addedAt; }
+    public long getId() { return id; }
+}
@@ -0,0 +1,82 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.WishlistEntry;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Flattened, filter-friendly projection of one wishlist entry: just the attributes the
+ * filter language can reference, pre-lower-cased and unboxed.
+ */
+public final class WishlistEntryView {
+
+    private final UUID tagId;
+    private final String name;
+    private final String series;
+    private final String materials;
+    private final String[] colours;
+    private final double price;
+    private final double carbonFootprint;
+    private final double waterUsage;
+    private final double recycledContentPercent;
+
+    public WishlistEntryView(UUID tagId, String name, String series, String materials, String[] colours,
+                             double price, double carbonFootprint, double waterUsage, double recycledContentPercent) {
+        this.tagId = tagId;
+        this.name = name;
+        this.series = series;
+        this.materials = materials;
+        this.colours = colours;
+        this.price = price;
+        this.carbonFootprint = carbonFootprint;
+        this.waterUsage = waterUsage;
+        this.recycledContentPercent = recycledContentPercent;
+    }
+
+    public static WishlistEntryView of(Tag tag) {
+        String[][] colourways = tag.getColourways();
+        String[] colours;
+        if (colourways == null) {
+            colours = new String[0];
+        } else {
+            colours = new String[colourways.length];
+            for (int i = 0; i < colourways.length; i++) {
+                colours[i] = colourways[i] != null && colourways[i].length > 0 ? lower(colourways[i][0]) : "";
+            }
+        }
+        // A sale price of 0 means "not on sale"
+        double price = tag.getSalePrice() > 0 ? tag.getSalePrice() : tag.getUnitPrice();
+        return new WishlistEntryView(tag.getId(), lower(tag.getName()), lower(tag.getSeries()),
+                lower(tag.getMaterials()), colours, price, tag.getCarbonFootprint(), tag.getWaterUsage(),
+                tag.getRecycledContentPercent());
+    }
+
+    public static WishlistEntryView of(WishlistEntry entry) {
+        List<String> colourways = entry.getColours();
+        String[] colours = new String[colourways.size()];
+        for (int i = 0; i < colours.length; i++) {
+            colours[i] = lower(colourways.get(i));
+        }
+        double price = entry.getSalePrice() > 0 ? entry.getSalePrice() : entry.getUnitPrice();
+        return new WishlistEntryView(entry.getTagId(), lower(entry.getName()), lower(entry.getSeries()),
+                lower(entry.getMaterials()), colours, price, entry.getCarbonFootprint(), entry.getWaterUsage(),
+                entry.getRecycledContentPercent());
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    public UUID getTagId() { return tagId; }
+    public String getName() { return name; }
+    public String getSeries() { return series; }
+    public String getMaterials() { return materials; }
+    public String[] getColours() { return colours; }
+    public double getPrice() { return price; }
+    public double getCarbonFootprint() { return carbonFootprint; }
+    public double getWaterUsage() { return waterUsage; }
+    public double getRecycledContentPercent() { return recycledContentPercent; }
+}
@@ -0,0 +1,370 @@
+package com.knowMoreQR.server.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small filter language for bulk wishlist operations, compiled once into a predicate tree.
+ *
+ * <pre>
+ *   colour:blue and carbon:high
+ *   (colour:red or colour:"forest green") and not material:polyester
+ *   price:20..50 recycled:high          (juxtaposition means AND)
+ *   price:&lt;30   water:&gt;=2000   series:"summer 24"   colour:blue,green
+ * </pre>
+ *
+ * Fields: colour/color, carbon, water, recycled, price, series, material/materials, name.
+ * The sustainability fields accept the bands low / medium / high, or numeric comparisons and ranges.
+ * Syntax errors throw {@link IllegalArgumentException} with the offending position.
+ */
+public abstract class WishlistFilter implements Predicate<WishlistEntryView> {
+
+    // Band edges: [low, medium) / [medium, high) / [high, ...)
+    // carbon: kg CO2 (same thresholds the NLP controller used), water: litres, recycled: percent
+    private static final Map<String, double[]> BANDS = Map.of(
+            "carbon", new double[] {30, 60},
+            "water", new double[] {1000, 5000},
+            "recycled", new double[] {20, 50});
+
+    private static final Map<String, ToDoubleFunction<WishlistEntryView>> NUMERIC_FIELDS = Map.of(
+            "carbon", WishlistEntryView::getCarbonFootprint,
+            "water", WishlistEntryView::getWaterUsage,
+            "recycled", WishlistEntryView::getRecycledContentPercent,
+            "price", WishlistEntryView::getPrice);
+
+    public static WishlistFilter compile(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Filter cannot be empty.");
+        }
+        return new Parser(expression).parse();
+    }
+
+    // --- Predicate tree ---
+
+    static final class And extends WishlistFilter {
+        private final WishlistFilter[] children;
+
+        And(List<WishlistFilter> children) {
+            this.children = children.toArray(new WishlistFilter[0]);
+        }
+
+        @Override
+        public boolean test(WishlistEntryView e) {
+            for (WishlistFilter child : children) {
+                if (!child.test(e)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    static final class Or extends WishlistFilter {
+        private final WishlistFilter[] children;
+
+        Or(List<WishlistFilter> children) {
+            this.children = children.toArray(new WishlistFilter[0]);
+        }
+
+        @Override
+        public boolean test(WishlistEntryView e) {
+            for (WishlistFilter child : children) {
+                if (child.test(e)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class Not extends WishlistFilter {
+        private final WishlistFilter child;
+
+        Not(WishlistFilter child) {
+            this.child = child;
+        }
+
+        @Override
+        public boolean test(WishlistEntryView e) {
+            return !child.test(e);
+        }
+    }
+
+    /** min <= value < max (or <= max when maxInclusive). */
+    static final class NumericRange extends WishlistFilter {
+        private final ToDoubleFunction<WishlistEntryView> field;
+        private final double min;
+        private final double max;
+        private final boolean maxInclusive;
+
+        NumericRange(ToDoubleFunction<WishlistEntryView> field, double min, double max, boolean maxInclusive) {
+            this.field = field;
+            this.min = min;
+            this.max = max;
+            this.maxInclusive = maxInclusive;
+        }
+
+        @Override
+        public boolean test(WishlistEntryView e) {
+            double v = field.applyAsDouble(e);
+            return v >= min && (maxInclusive ? v <= max : v < max);
+        }
+    }
+
+    static final class ColourIn extends WishlistFilter {
+        private final Set<String> colours;
+
+        ColourIn(Set<String> colours) {
+            this.colours = colours;
+        }
+
+        @Override
+        public boolean test(WishlistEntryView e) {
+            for (String c : e.getColours()) {
+                if (colours.contains(c)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static final class TextContains extends WishlistFilter {
+        private final String field;
+        private final String[] needles;
+
+        TextContains(String field, String[] needles) {
+            this.field = field;
+            this.needles = needles;
+        }
+
+        @Override
+        public boolean test(WishlistEntryView e) {
+            String text;
+            switch (field) {
+                case "series": text = e.getSeries(); break;
+                case "material": text = e.getMaterials(); break;
+                default: text = e.getName(); break;
+            }
+            for (String needle : needles) {
+                if (text.contains(needle)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // --- Recursive-descent parser ---
+
+    private static final class Parser {
+        // field, operator, value - value may be quoted
+        private static final Pattern TERM = Pattern.compile(
+                "([a-z][a-z0-9]*)\\s*(<=|>=|:<=|:>=|:<|:>|<|>|:|=)\\s*(\"[^\"]*\"|[^\\s()\"]+)");
+        private static final Pattern RANGE = Pattern.compile("(-?[0-9.]*)\\.\\.(-?[0-9.]*)");
+
+        private final String input;
+        private final String lower;
+        private int pos;
+
+        Parser(String input) {
+            this.input = input;
+            this.lower = input.toLowerCase(Locale.ROOT);
+        }
+
+        WishlistFilter parse() {
+            WishlistFilter result = parseOr();
+            skipSpaces();
+            if (pos < input.length()) {
+                throw error("Unexpected '" + input.charAt(pos) + "'");
+            }
+            return result;
+        }
+
+        private WishlistFilter parseOr() {
+            List<WishlistFilter> parts = new ArrayList<>();
+            parts.add(parseAnd());
+            while (acceptKeyword("or") || accept('|')) {
+                parts.add(parseAnd());
+            }
+            return parts.size() == 1 ? parts.get(0) : new Or(parts);
+        }
+
+        private WishlistFilter parseAnd() {
+            List<WishlistFilter> parts = new ArrayList<>();
+            parts.add(parseUnary());
+            while (true) {
+                if (acceptKeyword("and") || accept('&')) {
+                    parts.add(parseUnary());
+                } else if (startsOperand()) {
+                    parts.add(parseUnary()); // implicit AND
+                } else {
+                    break;
+                }
+            }
+            return parts.size() == 1 ? parts.get(0) : new And(parts);
+        }
+
+        private WishlistFilter parseUnary() {
+            if (acceptKeyword("not") || accept('!') || accept('-')) {
+                return new Not(parseUnary());
+            }
+            if (accept('(')) {
+                WishlistFilter inner = parseOr();
+                if (!accept(')')) {
+                    throw error("Missing ')'");
+                }
+                return inner;
+            }
+            return parseTerm();
+        }
+
+        private WishlistFilter parseTerm() {
+            skipSpaces();
+            Matcher m = TERM.matcher(lower);
+            m.region(pos, lower.length());
+            if (!m.lookingAt()) {
+                throw error("Expected field:value");
+            }
+            String field = canonicalField(m.group(1));
+            String op = m.group(2).replace(":", "");
+            // take the value from the original input so quoted text keeps its spacing
+            String value = input.substring(m.start(3), m.end(3)).toLowerCase(Locale.ROOT);
+            if (value.startsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            int termStart = pos;
+            pos = m.end();
+
+            switch (field) {
+                case "colour":
+                    requireOp(op, field, termStart);
+                    return new ColourIn(new HashSet<>(List.of(splitList(value))));
+                case "series":
+                case "material":
+                case "name":
+                    requireOp(op, field, termStart);
+                    return new TextContains(field, splitList(value));
+                default:
+                    return numeric(field, op, value, termStart);
+            }
+        }
+
+        private WishlistFilter numeric(String field, String op, String value, int termStart) {
+            ToDoubleFunction<WishlistEntryView> getter = NUMERIC_FIELDS.get(field);
+            if (getter == null) {
+                throw error("Unknown field '" + field + "'", termStart);
+            }
+            double inf = Double.POSITIVE_INFINITY;
+            if (op.isEmpty() || op.equals("=")) {
+                double[] band = BANDS.get(field);
+                if (band != null) {
+                    switch (value) {
+                        case "low": return new NumericRange(getter, -inf, band[0], false);
+                        case "medium": return new NumericRange(getter, band[0], band[1], false);
+                        case "high": return new NumericRange(getter, band[1], inf, true);
+                        default: break;
+                    }
+                }
+                Matcher range = RANGE.matcher(value);
+                if (range.matches()) {
+                    double min = range.group(1).isEmpty() ? -inf : number(range.group(1), termStart);
+                    double max = range.group(2).isEmpty() ? inf : number(range.group(2), termStart);
+                    return new NumericRange(getter, min, max, true);
+                }
+                double exact = number(value, termStart);
+                return new NumericRange(getter, exact, exact, true);
+            }
+            double n = number(value, termStart);
+            switch (op) {
+                case "<": return new NumericRange(getter, -inf, n, false);
+                case "<=": return new NumericRange(getter, -inf, n, true);
+                case ">": return new NumericRange(getter, Math.nextUp(n), inf, true);
+                default: return new NumericRange(getter, n, inf, true); // >=
+            }
+        }
+
+        private double number(String value, int at) {
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw error("Expected a number, low, medium, high or min..max but got '" + value + "'", at);
+            }
+        }
+
+        private void requireOp(String op, String field, int at) {
+            if (!op.isEmpty() && !op.equals("=")) {
+                throw error("Field '" + field + "' only supports ':'", at);
+            }
+        }
+
+        private static String canonicalField(String field) {
+            switch (field) {
+                case "color": return "colour";
+                case "materials": return "material";
+                case "co2": return "carbon";
+                default: return field;
+            }
+        }
+
+        private static String[] splitList(String value) {
+            return value.trim().split("\\s*,\\s*");
+        }
+
+        private boolean startsOperand() {
+            skipSpaces();
+            if (pos >= lower.length()) {
+                return false;
+            }
+            char c = lower.charAt(pos);
+            if (c == ')' || c == '|') {
+                return false;
+            }
+            return !lower.startsWith("or", pos) || !isWordBoundary(pos + 2);
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipSpaces();
+            if (lower.startsWith(keyword, pos) && isWordBoundary(pos + keyword.length())) {
+                pos += keyword.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isWordBoundary(int i) {
+            return i >= lower.length() || !Character.isLetterOrDigit(lower.charAt(i)) && lower.charAt(i) != ':';
+        }
+
+        private boolean accept(char c) {
+            skipSpaces();
+            if (pos < input.length() && input.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (pos < input.length() && Character.isWhitespace(input.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return error(message, pos);
+        }
+
+        private IllegalArgumentException error(String message, int at) {
+            return new IllegalArgumentException(message + " at position " + at + " in filter '" + input + "'");
+        }
+    }
+}
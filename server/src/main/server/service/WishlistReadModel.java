@@ -0,0 +1,226 @@
+package com.knowMoreQR.server.service;
+
+import com.knowMoreQR.server.Tag;
+import com.knowMoreQR.server.TagChangedEvent;
+import com.knowMoreQR.server.TagConsumer;
+import com.knowMoreQR.server.TagConsumerRepository;
+import com.knowMoreQR.server.TagRepository;
+import com.knowMoreQR.server.WishlistEntry;
+import com.knowMoreQR.server.WishlistEntryRepository;
+import com.knowMoreQR.server.auth.WishlistItem;
+import com.knowMoreQR.server.auth.WishlistItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps wishlist_by_consumer (and its reverse index consumers_by_tag) in step with MySQL
+ * wishlist_items and the Cassandra tag table, so reading a wishlist is one partition read.
+ *
+ * MySQL stays the source of truth. Updates run after commit; if one fails the consumer's partition
+ * is dropped and rebuilt from MySQL on the next read, so the model can lag but not drift. A rebuild
+ * re-reads MySQL after writing and drops what it wrote if the wishlist changed in the meantime.
+ * Tag edits fan out to the holders' wishlists on a background thread, a chunk of consumers per
+ * query, with repeated edits of one tag collapsed into the latest.
+ */
+@Service
+public class WishlistReadModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(WishlistReadModel.class);
+
+    private final WishlistEntryRepository entryRepository;
+    private final TagConsumerRepository tagConsumerRepository;
+    private final WishlistItemRepository wishlistItemRepository;
+    private final TagRepository tagRepository;
+    private final int fanoutChunk;
+
+    // latest unpropagated change per tag
+    private final Map<UUID, TagChangedEvent> pendingTagChanges = new ConcurrentHashMap<>();
+    private ExecutorService tagPropagator;
+
+    public WishlistReadModel(WishlistEntryRepository entryRepository,
+                             TagConsumerRepository tagConsumerRepository,
+                             WishlistItemRepository wishlistItemRepository,
+                             TagRepository tagRepository,
+                             @Value("${wishlist.read-model.fanout-chunk:100}") int fanoutChunk) {
+        this.entryRepository = entryRepository;
+        this.tagConsumerRepository = tagConsumerRepository;
+        this.wishlistItemRepository = wishlistItemRepository;
+        this.tagRepository = tagRepository;
+        this.fanoutChunk = Math.max(1, fanoutChunk);
+    }
+
+    @PostConstruct
+    public void start() {
+        tagPropagator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "wishlist-tag-fanout");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        tagPropagator.shutdown();
+    }
+
+    /** The consumer's wishlist summaries, newest first. */
+    public List<WishlistEntry> getWishlist(Long consumerId) {
+        List<WishlistEntry> rows = entryRepository.findByConsumerId(consumerId);
+        List<WishlistEntry> entries;
+        if (rows.stream().anyMatch(WishlistEntry::isMarker)) {
+            entries = rows.stream().filter(e -> !e.isMarker()).collect(Collectors.toList());
+        } else {
+            // never materialized, or dropped after a failed update
+            entries = rebuild(consumerId);
+        }
+        List<WishlistEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(WishlistEntry::getAddedAt, Comparator.nullsLast(Comparator.reverseOrder())));
+        return sorted;
+    }
+
+    private boolean isMaterialized(Long consumerId) {
+        return !entryRepository.findEntries(List.of(consumerId), WishlistEntry.MATERIALIZED).isEmpty();
+    }
+
+    private List<WishlistEntry> rebuild(Long consumerId) {
+        List<WishlistItem> items = wishlistItemRepository.findByConsumerIdOrderByAddedAtDesc(consumerId);
+        Map<UUID, Instant> addedAt = new HashMap<>();
+        for (WishlistItem item : items) {
+            addedAt.put(item.getTagId(), item.getAddedAt());
+        }
+        List<WishlistEntry> entries = new ArrayList<>(items.size());
+        if (!addedAt.isEmpty()) {
+            for (Tag tag : tagRepository.findAllById(addedAt.keySet())) {
+                entries.add(WishlistEntry.of(consumerId, tag, addedAt.get(tag.getId())));
+            }
+            entryRepository.saveAll(entries);
+            tagConsumerRepository.saveAll(entries.stream()
+                    .map(e -> new TagConsumer(e.getTagId(), consumerId))
+                    .collect(Collectors.toList()));
+        }
+        // written last, also for an empty wishlist, so the next read needn't rebuild
+        entryRepository.save(WishlistEntry.materialized(consumerId));
+
+        // An add that committed meanwhile skipped the then-unmarked partition, and a remove may have run
+        // before the copy above put its row back. Either way MySQL no longer matches what was written.
+        if (!new HashSet<>(wishlistItemRepository.findTagIdsByConsumerId(consumerId)).equals(addedAt.keySet())) {
+            logger.info("Wishlist of consumer {} changed during rebuild, dropping it for the next read", consumerId);
+            invalidate(consumerId);
+            return entries;
+        }
+        logger.info("Materialized wishlist read model for consumer {} ({} entries)", consumerId, entries.size());
+        return entries;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onWishlistChanged(WishlistChangedEvent event) {
+        Long consumerId = event.getConsumerId();
+        try {
+            if (event.getType() == WishlistChangedEvent.Type.ADDED) {
+                if (!isMaterialized(consumerId)) {
+                    // not materialized: a partial partition would hide the rest, so let the next read rebuild it
+                    return;
+                }
+                // added_at from the rows themselves; one removed again since is gone here too
+                Map<UUID, Instant> addedAt = new HashMap<>();
+                for (WishlistItem item : wishlistItemRepository.findByConsumerIdAndTagIdIn(consumerId, event.getTagIds())) {
+                    addedAt.put(item.getTagId(), item.getAddedAt());
+                }
+                if (addedAt.isEmpty()) {
+                    return;
+                }
+                List<WishlistEntry> entries = new ArrayList<>();
+                for (Tag tag : tagRepository.findAllById(addedAt.keySet())) {
+                    entries.add(WishlistEntry.of(consumerId, tag, addedAt.get(tag.getId())));
+                }
+                entryRepository.saveAll(entries);
+                tagConsumerRepository.saveAll(entries.stream()
+                        .map(e -> new TagConsumer(e.getTagId(), consumerId))
+                        .collect(Collectors.toList()));
+            } else {
+                for (UUID tagId : event.getTagIds()) {
+                    entryRepository.deleteEntry(consumerId, tagId);
+                    tagConsumerRepository.deleteEntry(tagId, consumerId);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Wishlist read model update failed for consumer {}, dropping partition: {}", consumerId, e.getMessage());
+            invalidate(consumerId);
+        }
+    }
+
+    /**
+     * Queues a changed tag's summary to be re-copied into every wishlist that holds it. Returns at
+     * once; an edit of a tag that's still queued replaces the queued one.
+     */
+    @EventListener
+    public void onTagChanged(TagChangedEvent event) {
+        if (pendingTagChanges.put(event.getTagId(), event) == null) {
+            tagPropagator.execute(() -> propagate(event.getTagId()));
+        }
+    }
+
+    private void propagate(UUID tagId) {
+        TagChangedEvent event = pendingTagChanges.remove(tagId);
+        if (event == null) {
+            return;
+        }
+        boolean deleted = event.getType() == TagChangedEvent.Type.DELETED;
+        try {
+            List<Long> holders = tagConsumerRepository.findByTagId(tagId).stream()
+                    .map(TagConsumer::getConsumerId)
+                    .collect(Collectors.toList());
+            for (int from = 0; from < holders.size(); from += fanoutChunk) {
+                List<Long> chunk = holders.subList(from, Math.min(holders.size(), from + fanoutChunk));
+                try {
+                    if (deleted) {
+                        entryRepository.deleteEntries(chunk, tagId);
+                    } else {
+                        // only refresh rows that exist; keep their original added_at
+                        List<WishlistEntry> refreshed = new ArrayList<>(chunk.size());
+                        for (WishlistEntry current : entryRepository.findEntries(chunk, tagId)) {
+                            refreshed.add(WishlistEntry.of(current.getConsumerId(), event.getTag(), current.getAddedAt()));
+                        }
+                        entryRepository.saveAll(refreshed);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Could not refresh tag {} in {} wishlists: {}", tagId, chunk.size(), e.getMessage());
+                    chunk.forEach(this::invalidate);
+                }
+            }
+            if (deleted) {
+                tagConsumerRepository.deletePartition(tagId);
+            }
+            logger.debug("Propagated {} of tag {} to {} wishlists", event.getType(), tagId, holders.size());
+        } catch (RuntimeException e) {
+            logger.warn("Could not propagate {} of tag {}: {}", event.getType(), tagId, e.getMessage());
+        }
+    }
+
+    private void invalidate(Long consumerId) {
+        try {
+            entryRepository.deletePartition(consumerId);
+        } catch (RuntimeException e) {
+            logger.error("Could not drop wishlist read model partition for consumer {}: {}", consumerId, e.getMessage());
+        }
+    }
+}
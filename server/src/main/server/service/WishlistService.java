@@ -2,16 +2,27 @@ package com.knowMoreQR.server.service;
 
 import com.knowMoreQR.server.Tag;
 import com.knowMoreQR.server.TagRepository;
+import com.knowMoreQR.server.WishlistEntry;
 import com.knowMoreQR.server.auth.WishlistItem;
 import com.knowMoreQR.server.auth.WishlistItemRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -26,27 +37,47 @@ public class WishlistService {
     @Autowired
     private TagRepository tagRepository; // To fetch Tag details
 
+    @Autowired
+    private TagSearchService tagSearchService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TagIdFilter tagIdFilter;
+
+    @Autowired
+    private WishlistBatchWriter batchWriter;
+
+    @Autowired
+    private WishlistReadModel readModel;
+
+    @Value("${wishlist.batch.max-items:1000}")
+    private int maxBatchItems;
+
     // --- Core Wishlist Actions --- 
 
-    @Transactional // Ensure atomicity if needed
-    public WishlistItem addItem(Long consumerId, UUID tagId) {
-        // Check if tag exists in Cassandra
-        if (!tagRepository.existsById(tagId)) {
+    /**
+     * Adds a tag to the wishlist; returns false if it was already there. Unknown ids are rejected by
+     * the in-memory tag filter, so the common case is a single INSERT IGNORE round-trip.
+     */
+    @Transactional
+    public boolean addItem(Long consumerId, UUID tagId) {
+        // Bloom filter says "definitely not a tag"; until it's built, ask Cassandra instead
+        if (!tagIdFilter.mightExist(tagId) || (!tagIdFilter.isReady() && !tagRepository.existsById(tagId))) {
             logger.warn("Attempted to add non-existent tag {} to wishlist for consumer {}", tagId, consumerId);
             throw new IllegalArgumentException("Tag with ID " + tagId + " not found.");
         }
-        
-        // Check if item already exists in wishlist
-        if (wishlistItemRepository.existsByConsumerIdAndTagId(consumerId, tagId)) {
+
+        // (consumer_id, tag_id) is unique, so a duplicate add is a no-op in the database itself
+        if (!batchWriter.insertIfAbsent(consumerId, tagId)) {
             logger.info("Tag {} already in wishlist for consumer {}", tagId, consumerId);
-            // Return existing item or handle as needed
-            return wishlistItemRepository.findByConsumerIdAndTagId(consumerId, tagId).orElse(null);
+            return false;
         }
-        
-        WishlistItem newItem = new WishlistItem(consumerId, tagId);
-        WishlistItem savedItem = wishlistItemRepository.save(newItem);
+        batchWriter.appendOutbox(List.of(tagId));
+        eventPublisher.publishEvent(WishlistChangedEvent.added(consumerId, tagId));
         logger.info("Added tag {} to wishlist for consumer {}", tagId, consumerId);
-        return savedItem;
+        return true;
     }
 
     @Transactional
@@ -54,6 +85,8 @@ public class WishlistService {
         Optional<WishlistItem> itemOpt = wishlistItemRepository.findByConsumerIdAndTagId(consumerId, tagId);
         if (itemOpt.isPresent()) {
             wishlistItemRepository.delete(itemOpt.get());
+            batchWriter.appendOutbox(List.of(tagId));
+            eventPublisher.publishEvent(WishlistChangedEvent.removed(consumerId, List.of(tagId)));
             logger.info("Removed tag {} from wishlist for consumer {}", tagId, consumerId);
             return true;
         } else {
@@ -64,17 +97,169 @@ public class WishlistService {
 
     @Transactional
     public void clearWishlist(Long consumerId) {
-        wishlistItemRepository.deleteByConsumerId(consumerId);
+        List<UUID> tagIds = wishlistItemRepository.findTagIdsByConsumerId(consumerId);
+        if (!tagIds.isEmpty()) {
+            wishlistItemRepository.deleteAllByConsumerIdInBulk(consumerId); // one DELETE, no entity loading
+            batchWriter.appendOutbox(tagIds);
+            eventPublisher.publishEvent(WishlistChangedEvent.removed(consumerId, tagIds));
+        }
         logger.info("Cleared wishlist for consumer {}", consumerId);
     }
 
+    /**
+     * Applies many removals and additions in one transaction: removals as one bulk DELETE, additions
+     * as JDBC batches. Removals run first, so an id in both lists ends up in the wishlist.
+     * Unknown tag ids are skipped and reported back rather than failing the whole batch.
+     */
+    @Transactional
+    public BatchResult applyBatch(Long consumerId, Collection<UUID> toAdd, Collection<UUID> toRemove) {
+        Set<UUID> addIds = new LinkedHashSet<>(toAdd);
+        Set<UUID> removeIds = new LinkedHashSet<>(toRemove);
+        if (addIds.size() + removeIds.size() > maxBatchItems) {
+            throw new IllegalArgumentException("At most " + maxBatchItems + " items per batch.");
+        }
+
+        int removed = 0;
+        if (!removeIds.isEmpty()) {
+            // only ids actually in the wishlist change a save count
+            List<UUID> present = wishlistItemRepository.findTagIdsByConsumerIdAndTagIdIn(consumerId, removeIds);
+            removed = wishlistItemRepository.deleteByConsumerIdAndTagIdIn(consumerId, removeIds);
+            if (!present.isEmpty()) {
+                batchWriter.appendOutbox(present);
+                eventPublisher.publishEvent(WishlistChangedEvent.removed(consumerId, present));
+            }
+        }
+
+        List<UUID> rejected = new ArrayList<>();
+        List<UUID> candidates = new ArrayList<>(addIds.size());
+        for (UUID tagId : addIds) {
+            if (tagIdFilter.mightExist(tagId)) {
+                candidates.add(tagId);
+            } else {
+                rejected.add(tagId);
+            }
+        }
+        if (!tagIdFilter.isReady() && !candidates.isEmpty()) {
+            // filter not built yet: one batched Cassandra read instead
+            Set<UUID> known = new HashSet<>();
+            tagRepository.findAllById(candidates).forEach(tag -> known.add(tag.getId()));
+            candidates.removeIf(tagId -> {
+                if (known.contains(tagId)) {
+                    return false;
+                }
+                rejected.add(tagId);
+                return true;
+            });
+        }
+
+        List<UUID> added = List.of();
+        if (!candidates.isEmpty()) {
+            Set<UUID> existing = new HashSet<>(wishlistItemRepository.findTagIdsByConsumerIdAndTagIdIn(consumerId, candidates));
+            candidates.removeAll(existing);
+            // INSERT IGNORE skips a concurrent add of the same tag; only rows inserted here count
+            added = batchWriter.insertAll(consumerId, candidates);
+            if (!added.isEmpty()) {
+                batchWriter.appendOutbox(added);
+                eventPublisher.publishEvent(WishlistChangedEvent.added(consumerId, added));
+            }
+        }
+        int alreadyPresent = addIds.size() - rejected.size() - added.size();
+
+        logger.info("Batch for consumer {}: {} added, {} already present, {} removed, {} rejected",
+                consumerId, added.size(), alreadyPresent, removed, rejected.size());
+        return new BatchResult(added.size(), alreadyPresent, removed, rejected);
+    }
+
+    // Outcome of applyBatch
+    public static class BatchResult {
+        private final int added;
+        private final int alreadyPresent;
+        private final int removed;
+        private final List<UUID> rejected;
+
+        public BatchResult(int added, int alreadyPresent, int removed, List<UUID> rejected) {
+            this.added = added;
+            this.alreadyPresent = alreadyPresent;
+            this.removed = removed;
+            this.rejected = rejected;
+        }
+
+        public int getAdded() { return added; }
+        public int getAlreadyPresent() { return alreadyPresent; }
+        public int getRemoved() { return removed; }
+        public List<UUID> getRejected() { return rejected; }
+    }
+
     // --- Wishlist Retrieval --- 
 
+    @Transactional(readOnly = true) // may be served by the read replica
     public List<WishlistItem> getWishlistItems(Long consumerId) {
         return wishlistItemRepository.findByConsumerIdOrderByAddedAtDesc(consumerId);
     }
 
+    /**
+     * One page of the wishlist, newest first. Cost depends on {@code limit}, not on wishlist size:
+     * an index range scan in MySQL plus a Cassandra read for just the page's tags.
+     */
+    @Transactional(readOnly = true)
+    public WishlistPage getWishlistPage(Long consumerId, int limit, String afterCursor) {
+        // one extra row tells us whether there is a next page
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<WishlistItem> items;
+        if (afterCursor == null || afterCursor.isBlank()) {
+            items = wishlistItemRepository.findByConsumerIdOrderByAddedAtDescIdDesc(consumerId, page);
+        } else {
+            WishlistCursor cursor = WishlistCursor.decode(afterCursor);
+            items = wishlistItemRepository.findPageBefore(consumerId, cursor.getAddedAt(), cursor.getId(), page);
+        }
+
+        String nextCursor = null;
+        if (items.size() > limit) {
+            items = items.subList(0, limit);
+            WishlistItem last = items.get(limit - 1);
+            nextCursor = new WishlistCursor(last.getAddedAt(), last.getId()).encode();
+        }
+        if (items.isEmpty()) {
+            return new WishlistPage(List.of(), nextCursor);
+        }
+
+        Map<UUID, Tag> tags = new HashMap<>();
+        for (Tag tag : tagRepository.findAllById(items.stream().map(WishlistItem::getTagId).collect(Collectors.toList()))) {
+            tags.put(tag.getId(), tag);
+        }
+        List<Tag> ordered = new ArrayList<>(items.size());
+        for (WishlistItem item : items) {
+            Tag tag = tags.get(item.getTagId());
+            if (tag != null) { // tag deleted since it was saved
+                ordered.add(tag);
+            }
+        }
+        return new WishlistPage(ordered, nextCursor);
+    }
+
+    public static class WishlistPage {
+        private final List<Tag> items;
+        private final String nextCursor; // null on the last page
+
+        public WishlistPage(List<Tag> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<Tag> getItems() { return items; }
+        public String getNextCursor() { return nextCursor; }
+    }
+
+    // Summary fields only (name, series, prices, first colour/image, sustainability), newest first,
+    // from the denormalized read model: one Cassandra partition read, no MySQL query
+    public List<Tag> getWishlistSummary(Long consumerId) {
+        return readModel.getWishlist(consumerId).stream()
+                .map(WishlistEntry::toTag)
+                .collect(Collectors.toList());
+    }
+
     // Method to get the full Tag details for items in the wishlist
+    @Transactional(readOnly = true)
     public List<Tag> getWishlistTags(Long consumerId) {
         List<WishlistItem> items = getWishlistItems(consumerId);
         List<UUID> tagIds = items.stream()
@@ -89,19 +274,40 @@ public class WishlistService {
         return tagRepository.findAllById(tagIds);
     }
 
+    /**
+     * Returns the wishlist tags matching {@code filter}, deleting them in a single statement first
+     * when {@code remove} is set. The filter runs over the read model's compact rows (one partition
+     * read), and matches come back as the same summary tags as {@link #getWishlistSummary}.
+     */
+    @Transactional
+    public List<Tag> filterWishlist(Long consumerId, WishlistFilter filter, boolean remove) {
+        List<WishlistEntry> matched = new ArrayList<>();
+        for (WishlistEntry entry : readModel.getWishlist(consumerId)) {
+            if (filter.test(WishlistEntryView.of(entry))) {
+                matched.add(entry);
+            }
+        }
+        if (remove && !matched.isEmpty()) {
+            // the read model trails MySQL by a commit, so only rows still there are removed and reported
+            Set<UUID> present = new HashSet<>(wishlistItemRepository.findTagIdsByConsumerIdAndTagIdIn(consumerId,
+                    matched.stream().map(WishlistEntry::getTagId).collect(Collectors.toList())));
+            matched.removeIf(entry -> !present.contains(entry.getTagId()));
+            if (!matched.isEmpty()) {
+                List<UUID> tagIds = matched.stream().map(WishlistEntry::getTagId).collect(Collectors.toList());
+                int removed = wishlistItemRepository.deleteByConsumerIdAndTagIdIn(consumerId, tagIds);
+                batchWriter.appendOutbox(tagIds);
+                eventPublisher.publishEvent(WishlistChangedEvent.removed(consumerId, tagIds));
+                logger.info("Removed {} filtered items from wishlist for consumer {}", removed, consumerId);
+            }
+        }
+        return matched.stream().map(WishlistEntry::toTag).collect(Collectors.toList());
+    }
+
     // --- Methods for NLP integration (Example Placeholders) ---
 
-    // Example: Find tags matching some criteria (e.g., name containing text)
-    // This would ideally use more efficient Cassandra queries if possible
+    // Find tags whose name/series match a free-text item query; a clear winner comes back alone
     public List<Tag> findTagsByName(String nameQuery) {
-        // Naive implementation: fetch all and filter (inefficient for large datasets!)
-        // Consider adding specific query methods to TagRepository if feasible
-        logger.warn("findTagsByName performing inefficient scan. Consider optimizing Cassandra query.");
-        String lowerCaseQuery = nameQuery.toLowerCase();
-        return tagRepository.findAll().stream()
-                .filter(tag -> (tag.getName() != null && tag.getName().toLowerCase().contains(lowerCaseQuery)) || 
-                               (tag.getSeries() != null && tag.getSeries().toLowerCase().contains(lowerCaseQuery)))
-                .collect(Collectors.toList());
+        return tagSearchService.searchLexical(nameQuery, 10);
     }
     
     // Example: Find tags matching sustainability criteria (more complex)